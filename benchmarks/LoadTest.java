@@ -0,0 +1,116 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load generator: N clients each send requests back to back for a fixed duration and
+ * record latency. The mix is database-bound on purpose (keyset search plus status PATCHes), since
+ * that is where request threads block.
+ *
+ *   java benchmarks/LoadTest.java http://localhost:8080 200 60
+ *
+ * Prints one line: clients, requests, errors, throughput, p50, p99, max.
+ */
+public class LoadTest {
+
+    private static final String[] STATUSES = {"IN_TRANSIT", "DELIVERED"};
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        int shipments = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        long firstId = seed(http, baseUrl, shipments);
+
+        // warm-up: JIT, connection pool, caches
+        run(http, baseUrl, clients, 10, firstId, shipments);
+        Result result = run(http, baseUrl, clients, seconds, firstId, shipments);
+
+        long[] latencies = result.latencies();
+        Arrays.sort(latencies);
+        System.out.printf("clients=%d requests=%d errors=%d throughput=%.0f req/s p50=%.1fms p99=%.1fms max=%.1fms%n",
+                clients, latencies.length, result.errors(), latencies.length / (double) seconds,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+    }
+
+    private record Result(long[] latencies, long errors) {
+    }
+
+    private static Result run(HttpClient http, String baseUrl, int clients, int seconds,
+                              long firstId, int shipments) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<Future<long[]>> results = new ArrayList<>();
+        // the generator itself must never be the bottleneck, so each client is a virtual thread
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                results.add(pool.submit(() -> {
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        HttpRequest request = random.nextInt(10) < 8
+                                ? HttpRequest.newBuilder(URI.create(baseUrl + "/api/shipments/search/cursor?status=IN_TRANSIT&size=20")).GET().build()
+                                : HttpRequest.newBuilder(URI.create(baseUrl + "/api/shipments/" + (firstId + random.nextInt(shipments)) + "/status"))
+                                        .header("Content-Type", "application/json")
+                                        .method("PATCH", HttpRequest.BodyPublishers.ofString(
+                                                "{\"status\": \"" + STATUSES[random.nextInt(STATUSES.length)] + "\"}"))
+                                        .build();
+                        long start = System.nanoTime();
+                        try {
+                            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            // 409 is an expected outcome of the random status walk, not a failure
+                            if (status >= 500) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        if (count == samples.length) {
+                            samples = Arrays.copyOf(samples, count * 2);
+                        }
+                        samples[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(samples, count);
+                }));
+            }
+        }
+        List<long[]> all = new ArrayList<>();
+        for (Future<long[]> result : results) {
+            all.add(result.get());
+        }
+        return new Result(all.stream().flatMapToLong(Arrays::stream).toArray(), errors.get());
+    }
+
+    // Creates the shipments the PATCH requests target and returns the lowest id
+    private static long seed(HttpClient http, String baseUrl, int shipments) throws Exception {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        long firstId = Long.MAX_VALUE;
+        for (int i = 0; i < shipments; i++) {
+            String body = "{\"origin\": \"Load\", \"destination\": \"Test\", \"status\": \"PENDING\", \"trackingNumber\": \"LT"
+                    + run + "-" + i + "\"}";
+            String response = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/shipments"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString()).body();
+            int idStart = response.indexOf("\"id\":") + 5;
+            firstId = Math.min(firstId, Long.parseLong(response.substring(idStart, response.indexOf(',', idStart)).trim()));
+        }
+        return firstId;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+}
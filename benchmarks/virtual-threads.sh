@@ -0,0 +1,37 @@
+#!/usr/bin/env bash
+# Throughput and p99 latency with platform threads (default) vs. virtual threads, same build, same DB.
+#
+# Needs Java 21 and a scratch PostgreSQL database (rows are added to it):
+#   DB_URL=jdbc:postgresql://db-host:5432/freight_bench DB_USERNAME=... DB_PASSWORD=... \
+#     benchmarks/virtual-threads.sh 50 200 1000
+#
+# Arguments are the client counts to try (default: 50 200 1000). Run the database on another host, or
+# add latency with `tc qdisc add dev eth0 root netem delay 2ms`: with a database on localhost requests
+# barely block and both modes look the same.
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+CLIENTS=("$@")
+[ $# -eq 0 ] && CLIENTS=(50 200 1000)
+DURATION=${DURATION:-60}
+PORT=${PORT:-8080}
+
+./mvnw -q -DskipTests package
+JAR=$(ls target/freight-tracker-*.jar | grep -v plain | head -1)
+
+for virtual in false true; do
+  for clients in "${CLIENTS[@]}"; do
+    # SQL and request logging off: the comparison is about threads, not stdout
+    java -jar "$JAR" --server.port="$PORT" --spring.threads.virtual.enabled="$virtual" \
+      --spring.jpa.show-sql=false --logging.level.org.springframework.web=INFO \
+      > "target/load-virtual-$virtual-$clients.log" 2>&1 &
+    APP=$!
+    until curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; do sleep 1; done
+
+    printf 'virtual=%-5s ' "$virtual"
+    java benchmarks/LoadTest.java "http://localhost:$PORT" "$clients" "$DURATION"
+
+    kill "$APP"
+    wait "$APP" || true
+  done
+done
@@ -0,0 +1,33 @@
+-- Time-partitioned shipment_event table for PostgreSQL.
+--
+-- Run once, before the application first starts against the database (ddl-auto=update would
+-- otherwise create a plain table). Then set freight.events.partitioning.enabled=true so the app
+-- keeps monthly partitions created ahead of time (ShipmentEventPartitionMaintainer).
+--
+-- Range scans over a time window only touch the partitions for that window, each partition's
+-- indexes stay small enough to be cached, and old months can be detached or dropped in O(1):
+--   ALTER TABLE shipment_event DETACH PARTITION shipment_event_p2025_01;
+
+CREATE SEQUENCE IF NOT EXISTS shipment_event_seq INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS shipment_event (
+    id              bigint       NOT NULL,
+    shipment_id     bigint       NOT NULL,
+    sequence        bigint       NOT NULL,
+    event_type      varchar(255),
+    tracking_number varchar(255),
+    previous_status varchar(255),
+    status          varchar(255),
+    occurred_at     timestamp(6) NOT NULL,
+    -- unique constraints on a partitioned table must include the partition key
+    PRIMARY KEY (id, occurred_at),
+    CONSTRAINT uk_event_shipment_sequence UNIQUE (shipment_id, sequence, occurred_at)
+) PARTITION BY RANGE (occurred_at);
+
+-- Same names as the JPA mapping, so ddl-auto=update sees them as present
+CREATE INDEX IF NOT EXISTS idx_event_time_id ON shipment_event (occurred_at, id);
+CREATE INDEX IF NOT EXISTS idx_event_status_time_id ON shipment_event (status, occurred_at, id);
+
+-- Safety net for rows outside every monthly partition; should stay empty. Creating a monthly
+-- partition fails while the default one holds rows for that month.
+CREATE TABLE IF NOT EXISTS shipment_event_default PARTITION OF shipment_event DEFAULT;
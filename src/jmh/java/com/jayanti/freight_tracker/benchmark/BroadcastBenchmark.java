@@ -0,0 +1,86 @@
+package com.jayanti.freight_tracker.benchmark;
+
+import com.jayanti.freight_tracker.model.Priority;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentEventType;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.websocket.ShipmentStatusBroadcaster;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One relay batch through the broadcaster: queue, coalesce, and flush to the three topics with JSON
+ * conversion. The broker channel only hands messages to a Blackhole, so fan-out to sessions is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({"1", "100"})
+    private int batchSize;
+
+    private ShipmentStatusBroadcaster broadcaster;
+    private List<ShipmentOutboxEvent> updates;
+    private List<ShipmentOutboxEvent> bulk;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        MessageChannel brokerChannel = (message, timeout) -> {
+            blackhole.consume(message);
+            return true;
+        };
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate(brokerChannel);
+        messagingTemplate.setMessageConverter(new MappingJackson2MessageConverter());
+
+        broadcaster = new ShipmentStatusBroadcaster();
+        ReflectionTestUtils.setField(broadcaster, "messagingTemplate", messagingTemplate);
+        ReflectionTestUtils.setField(broadcaster, "maxPending", 10_000);
+
+        updates = new ArrayList<>(batchSize);
+        bulk = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Shipment shipment = shipment(i + 1L);
+            updates.add(ShipmentOutboxEvent.of(shipment, ShipmentEventType.UPDATED, ShipmentStatus.PENDING, false));
+            bulk.add(ShipmentOutboxEvent.of(shipment, ShipmentEventType.CREATED, null, true));
+        }
+    }
+
+    @Benchmark
+    public void publishAndFlush() {
+        broadcaster.publish(updates);
+        broadcaster.flush();
+    }
+
+    @Benchmark
+    public void publishBulk() {
+        broadcaster.publish(bulk);
+    }
+
+    private Shipment shipment(long id) {
+        return Shipment.builder()
+                .id(id)
+                .origin("New York")
+                .destination("Chicago")
+                .status(ShipmentStatus.IN_TRANSIT)
+                .lastUpdatedTime(LocalDateTime.of(2025, 7, 12, 18, 30).plusSeconds(id))
+                .trackingNumber("TRK" + (100000 + id))
+                .carrier("FedEx")
+                .priority(Priority.HIGH)
+                .version(1)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.jayanti.freight_tracker.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayanti.freight_tracker.model.Priority;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.util.DateUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON encoding of the REST responses and the date formatting used by WebSocket messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 7, 12, 18, 30, 15);
+
+    private ObjectMapper objectMapper;
+    private Shipment shipment;
+
+    @State(Scope.Benchmark)
+    public static class PageState {
+        @Param({"20", "100"})
+        private int pageSize;
+
+        private Page<Shipment> page;
+
+        @Setup
+        public void setUp() {
+            List<Shipment> content = new ArrayList<>(pageSize);
+            for (int i = 0; i < pageSize; i++) {
+                content.add(shipment(i + 1L));
+            }
+            page = new PageImpl<>(content, PageRequest.of(0, pageSize), 10_000);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        // same defaults Spring Boot applies to the application's mapper
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        shipment = shipment(1L);
+    }
+
+    @Benchmark
+    public byte[] serializeShipment() throws Exception {
+        return objectMapper.writeValueAsBytes(shipment);
+    }
+
+    @Benchmark
+    public byte[] serializePage(PageState state) throws Exception {
+        return objectMapper.writeValueAsBytes(state.page);
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return DateUtils.format(TIME);
+    }
+
+    private static Shipment shipment(long id) {
+        return Shipment.builder()
+                .id(id)
+                .origin("New York")
+                .destination("Chicago")
+                .status(ShipmentStatus.IN_TRANSIT)
+                .lastUpdatedTime(TIME.plusSeconds(id))
+                .trackingNumber("TRK" + (100000 + id))
+                .carrier("FedEx")
+                .priority(Priority.HIGH)
+                .version(3)
+                .build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.jayanti.freight_tracker.benchmark;
+
+import com.jayanti.freight_tracker.FreightTrackerApplication;
+import com.jayanti.freight_tracker.dto.CreateShipmentRequest;
+import com.jayanti.freight_tracker.dto.ShipmentSearchHit;
+import com.jayanti.freight_tracker.dto.ShipmentStatsDTO;
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.dto.UpdateShipmentRequest;
+import com.jayanti.freight_tracker.model.Priority;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.service.ShipmentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service hot paths end to end (transaction, outbox row, cache, stats snapshot) against the in-memory
+ * H2 database of the test profile. Absolute numbers say little about PostgreSQL; compare runs of the
+ * same benchmark between releases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShipmentServiceBenchmark {
+
+    static final String[] ORIGINS = {"New York", "Chicago", "Dallas", "Seattle", "Miami"};
+
+    @Param({"10000"})
+    private int seedShipments;
+
+    private ConfigurableApplicationContext context;
+    private ShipmentService shipmentService;
+    private final AtomicLong trackingNumbers = new AtomicLong();
+    private List<Long> pendingIds;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(FreightTrackerApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN",
+                        "logging.level.org.springframework.web=WARN")
+                .run();
+        shipmentService = context.getBean(ShipmentService.class);
+
+        List<CreateShipmentRequest> seed = new ArrayList<>(seedShipments);
+        for (int i = 0; i < seedShipments; i++) {
+            ShipmentStatus status = i % 2 == 0 ? ShipmentStatus.PENDING : ShipmentStatus.IN_TRANSIT;
+            seed.add(createRequest(ORIGINS[i % ORIGINS.length], status));
+        }
+        shipmentService.createShipments(seed);
+
+        Page<ShipmentView> pending = shipmentService.searchShipments(null, ShipmentStatus.PENDING, PageRequest.of(0, 1000));
+        pendingIds = pending.map(ShipmentView::id).getContent();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Shipment createShipment() {
+        return shipmentService.createShipment(createRequest("Chicago", ShipmentStatus.PENDING));
+    }
+
+    // keeps the status so the shipment never reaches a final state; every call still bumps the version
+    // and writes an outbox row
+    @Benchmark
+    public Shipment updateShipment() {
+        Long id = pendingIds.get(ThreadLocalRandom.current().nextInt(pendingIds.size()));
+        UpdateShipmentRequest request = new UpdateShipmentRequest();
+        request.setStatus(ShipmentStatus.PENDING);
+        request.setDestination("Dest-" + trackingNumbers.incrementAndGet());
+        return shipmentService.updateShipment(id, request, null);
+    }
+
+    @Benchmark
+    public Page<ShipmentView> searchShipments() {
+        return shipmentService.searchShipments("New York", ShipmentStatus.IN_TRANSIT, PageRequest.of(0, 20));
+    }
+
+    // typeahead on a partial tracking number, and a misspelled city; both served from the in-memory index
+    @Benchmark
+    public List<ShipmentSearchHit> searchTextPrefix() {
+        return shipmentService.searchText("bench12", null, 20);
+    }
+
+    @Benchmark
+    public List<ShipmentSearchHit> searchTextFuzzy() {
+        return shipmentService.searchText("chicgo", ShipmentStatus.PENDING, 20);
+    }
+
+    @Benchmark
+    public ShipmentStatsDTO getShipmentStats() {
+        return shipmentService.getShipmentStats();
+    }
+
+    private CreateShipmentRequest createRequest(String origin, ShipmentStatus status) {
+        CreateShipmentRequest request = new CreateShipmentRequest();
+        request.setOrigin(origin);
+        request.setDestination("Boston");
+        request.setStatus(status);
+        request.setTrackingNumber("BENCH" + trackingNumbers.incrementAndGet());
+        request.setCarrier("FedEx");
+        request.setPriority(Priority.MEDIUM);
+        return request;
+    }
+}
@@ -0,0 +1,72 @@
+package com.jayanti.freight_tracker.config;
+
+import com.jayanti.freight_tracker.service.ActiveShipmentView;
+import com.jayanti.freight_tracker.service.ShipmentSearchIndex;
+import com.jayanti.freight_tracker.websocket.ShipmentEventStream;
+import com.jayanti.freight_tracker.websocket.ShipmentStatusBroadcaster;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.WebSocketMessageBrokerStats;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+/**
+ * Application metrics on top of what Actuator already records (http.server.requests per endpoint,
+ * spring.data.repository.invocations per repository method). Histograms are switched on in
+ * application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    // makes @Timed work on Spring beans, e.g. ShipmentServiceImpl
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    // read from the broadcaster on scrape, so the write path only bumps its own counters
+    @Bean
+    public MeterBinder broadcastMetrics(ShipmentStatusBroadcaster broadcaster, WebSocketMessageBrokerStats webSocketStats,
+                                        ShipmentEventStream eventStream) {
+        return registry -> {
+            FunctionCounter.builder("freight.broadcast.sent", broadcaster, ShipmentStatusBroadcaster::getSentCount)
+                    .description("Shipment updates sent to WebSocket topics")
+                    .register(registry);
+            FunctionCounter.builder("freight.broadcast.rejected", broadcaster, ShipmentStatusBroadcaster::getRejectedCount)
+                    .description("Outbox batches left for a later drain because the broadcast queue was full")
+                    .register(registry);
+            Gauge.builder("freight.broadcast.pending", broadcaster, ShipmentStatusBroadcaster::getPendingCount)
+                    .description("Shipments waiting for the next broadcast flush")
+                    .register(registry);
+            Gauge.builder("freight.websocket.sessions", webSocketStats, MetricsConfig::sessionCount)
+                    .description("Open WebSocket and SockJS sessions")
+                    .register(registry);
+            Gauge.builder("freight.sse.connections", eventStream, ShipmentEventStream::getSubscriberCount)
+                    .description("Open Server-Sent Events streams")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder searchMetrics(ShipmentSearchIndex searchIndex) {
+        return registry -> Gauge.builder("freight.search.documents", searchIndex, ShipmentSearchIndex::size)
+                .description("Shipments in the in-memory text search index")
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder activeViewMetrics(ActiveShipmentView activeView) {
+        return registry -> Gauge.builder("freight.active-view.shipments", activeView, ActiveShipmentView::size)
+                .description("Active shipments held in the in-memory read model")
+                .register(registry);
+    }
+
+    private static double sessionCount(WebSocketMessageBrokerStats webSocketStats) {
+        SubProtocolWebSocketHandler.Stats stats = webSocketStats.getWebSocketSessionStats();
+        return stats != null ? stats.getTotalSessions() : 0;
+    }
+}
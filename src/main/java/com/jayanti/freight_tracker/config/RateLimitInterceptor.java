@@ -0,0 +1,149 @@
+package com.jayanti.freight_tracker.config;
+
+import com.jayanti.freight_tracker.exception.TooManyRequestsException;
+import com.jayanti.freight_tracker.service.LoadShedder;
+import com.jayanti.freight_tracker.util.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Per-client, per-endpoint rate limits on /api/**, plus load shedding. A client is its X-API-Key header if
+ * that is one of freight.ratelimit.api-keys, or else its address (set server.forward-headers-strategy behind
+ * a proxy); any other key is ignored, so making up new keys does not buy new buckets. Each client gets a bucket per
+ * endpoint, with the limit of the endpoint's group. Rejections are counted in freight.requests.rejected.
+ */
+@Component
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    static final String API_KEY_HEADER = "X-API-Key";
+
+    enum Group {
+        // creates, updates and deletes
+        WRITE,
+        // endpoints clients call on a timer: /stats, /changes, missed events
+        POLL,
+        READ
+    }
+
+    record BucketKey(String client, String endpoint) {
+    }
+
+    @Autowired
+    private LoadShedder loadShedder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${freight.ratelimit.write.per-second:20}")
+    private double writePerSecond;
+
+    @Value("${freight.ratelimit.write.burst:40}")
+    private int writeBurst;
+
+    @Value("${freight.ratelimit.poll.per-second:5}")
+    private double pollPerSecond;
+
+    @Value("${freight.ratelimit.poll.burst:20}")
+    private int pollBurst;
+
+    @Value("${freight.ratelimit.read.per-second:100}")
+    private double readPerSecond;
+
+    @Value("${freight.ratelimit.read.burst:200}")
+    private int readBurst;
+
+    // keys that get their own buckets; empty means every client is limited by address
+    @Value("${freight.ratelimit.api-keys:}")
+    private Set<String> apiKeys;
+
+    // what shed requests are told to wait
+    @Value("${freight.shedding.retry-after:PT1S}")
+    private Duration sheddingRetryAfter;
+
+    private RateLimiter<BucketKey> limiter = new RateLimiter<>(System::nanoTime);
+    private RateLimiter.Limit writeLimit;
+    private RateLimiter.Limit pollLimit;
+    private RateLimiter.Limit readLimit;
+
+    @PostConstruct
+    void init() {
+        writeLimit = new RateLimiter.Limit(writePerSecond, writeBurst);
+        pollLimit = new RateLimiter.Limit(pollPerSecond, pollBurst);
+        readLimit = new RateLimiter.Limit(readPerSecond, readBurst);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // CORS preflights, static resources and errors are not limited
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Group group = group(request.getMethod(), pattern);
+        // reads are mostly served from memory, so only writes and polling are shed
+        if (group != Group.READ && loadShedder.isOverloaded()) {
+            reject(group, "overload");
+            throw new TooManyRequestsException("Service is overloaded, retry later",
+                    Math.max(1, sheddingRetryAfter.toSeconds()));
+        }
+        long waitNanos = limiter.tryAcquire(new BucketKey(client(request), request.getMethod() + " " + pattern),
+                limit(group));
+        if (waitNanos > 0) {
+            reject(group, "rate-limit");
+            throw new TooManyRequestsException("Rate limit exceeded", (long) Math.ceil(waitNanos / 1e9));
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${freight.ratelimit.evict-interval:PT1M}")
+    public void evictIdleBuckets() {
+        limiter.evictIdle();
+    }
+
+    static Group group(String method, String pattern) {
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+            return Group.WRITE;
+        }
+        if (pattern != null && (pattern.startsWith("/api/shipments/stats") || pattern.equals("/api/shipments/changes")
+                || pattern.endsWith("/events"))) {
+            return Group.POLL;
+        }
+        return Group.READ;
+    }
+
+    private RateLimiter.Limit limit(Group group) {
+        return switch (group) {
+            case WRITE -> writeLimit;
+            case POLL -> pollLimit;
+            case READ -> readLimit;
+        };
+    }
+
+    String client(HttpServletRequest request) {
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        return apiKey != null && apiKeys.contains(apiKey) ? "key:" + apiKey : "addr:" + request.getRemoteAddr();
+    }
+
+    private void reject(Group group, String reason) {
+        log.debug("Rejected {} request, reason={}", group, reason);
+        meterRegistry.counter("freight.requests.rejected", "group", group.name().toLowerCase(), "reason", reason)
+                .increment();
+    }
+}
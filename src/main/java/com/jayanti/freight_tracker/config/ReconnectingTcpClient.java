@@ -0,0 +1,43 @@
+package com.jayanti.freight_tracker.config;
+
+import org.springframework.messaging.tcp.ReconnectStrategy;
+import org.springframework.messaging.tcp.TcpConnectionHandler;
+import org.springframework.messaging.tcp.TcpOperations;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Wraps the relay's TCP client so the system-session reconnect schedule is configurable.
+ * StompBrokerRelayMessageHandler always asks for a fixed 5 second interval; this swaps in an
+ * exponential backoff instead.
+ */
+class ReconnectingTcpClient implements TcpOperations<byte[]> {
+
+    private final TcpOperations<byte[]> delegate;
+    private final ReconnectStrategy reconnectStrategy;
+
+    ReconnectingTcpClient(TcpOperations<byte[]> delegate, Duration initialDelay, Duration maxDelay) {
+        this.delegate = delegate;
+        this.reconnectStrategy = attempt -> {
+            long delay = initialDelay.toMillis() << Math.min(Math.max(attempt - 1, 0), 20);
+            return Math.min(delay, maxDelay.toMillis());
+        };
+    }
+
+    @Override
+    public CompletableFuture<Void> connectAsync(TcpConnectionHandler<byte[]> connectionHandler) {
+        return delegate.connectAsync(connectionHandler);
+    }
+
+    @Override
+    public CompletableFuture<Void> connectAsync(TcpConnectionHandler<byte[]> connectionHandler,
+                                                ReconnectStrategy ignored) {
+        return delegate.connectAsync(connectionHandler, reconnectStrategy);
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdownAsync() {
+        return delegate.shutdownAsync();
+    }
+}
@@ -0,0 +1,33 @@
+package com.jayanti.freight_tracker.config;
+
+import com.jayanti.freight_tracker.util.ReplicaRouting;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Where read-only transactions get their connection: the replica, unless the thread is pinned to the
+ * primary (ReplicaRouting) or the replica lags too far behind (ReplicaLagMonitor).
+ */
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return !ReplicaRouting.isPinnedToPrimary() && lagMonitor.isReplicaUsable() ? Target.REPLICA : Target.PRIMARY;
+    }
+}
@@ -0,0 +1,109 @@
+package com.jayanti.freight_tracker.config;
+
+import com.jayanti.freight_tracker.util.ReplicaRouting;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.time.Duration;
+
+/**
+ * Read-your-writes on /api/**: for freight.replica.sticky-window after a client's successful write, its
+ * requests read from the primary, so it never sees the replica without its own change.
+ *
+ * The write time travels with the client, so whichever node serves the next request can honour it: write
+ * responses set it as a cookie and as the X-Last-Write header, and a request carrying either, within the
+ * window of the node's clock, is pinned to the primary. Clients that do not keep cookies send the header
+ * back. The time is taken as the response body is written, after the write has committed.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "freight.replica.url")
+class ReplicaStickinessInterceptor implements AsyncHandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    static final String LAST_WRITE_COOKIE = "freight_last_write";
+    static final String LAST_WRITE_HEADER = "X-Last-Write";
+
+    @Value("${freight.replica.sticky-window:PT5S}")
+    private Duration stickyWindow;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Long lastWrite = lastWrite(request);
+        // a time too far in the future (bad clock, or forged to stay pinned) is ignored like an old one
+        if (lastWrite != null && Math.abs(System.currentTimeMillis() - lastWrite) < stickyWindow.toMillis()) {
+            ReplicaRouting.pinToPrimary(true);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        ReplicaRouting.pinToPrimary(false);
+    }
+
+    // streaming responses continue on another thread; this one goes back to the pool
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        ReplicaRouting.pinToPrimary(false);
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    // Runs once the handler has returned, so the write is committed, and before the response is committed
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (RateLimitInterceptor.group(request.getMethod().name(), null) == RateLimitInterceptor.Group.WRITE
+                && response instanceof ServletServerHttpResponse servletResponse
+                && servletResponse.getServletResponse().getStatus() < 400) {
+            String now = Long.toString(System.currentTimeMillis());
+            response.getHeaders().add(HttpHeaders.SET_COOKIE, ResponseCookie.from(LAST_WRITE_COOKIE, now)
+                    .path("/api")
+                    .maxAge(stickyWindow)
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build()
+                    .toString());
+            response.getHeaders().set(LAST_WRITE_HEADER, now);
+        }
+        return body;
+    }
+
+    private static Long lastWrite(HttpServletRequest request) {
+        String value = request.getHeader(LAST_WRITE_HEADER);
+        if (value == null && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (LAST_WRITE_COOKIE.equals(cookie.getName())) {
+                    value = cookie.getValue();
+                }
+            }
+        }
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
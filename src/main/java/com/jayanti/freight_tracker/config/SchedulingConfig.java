@@ -0,0 +1,55 @@
+package com.jayanti.freight_tracker.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.task.SimpleAsyncTaskSchedulerBuilder;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Two schedulers, so the jobs that can run for minutes never hold up the ones that must keep their schedule:
+ * <ul>
+ *     <li>taskScheduler (the default for @Scheduled, spring.task.scheduling.*): the outbox relay, broadcast flush,
+ *     change and SSE polls, lag check and the reconciles, which each take milliseconds to seconds</li>
+ *     <li>{@value #LONG_JOBS} (freight.scheduling.long-jobs-pool-size): rebuilds of the in-memory views, the
+ *     archiver and other maintenance, chosen with {@code @Scheduled(scheduler = SchedulingConfig.LONG_JOBS)}</li>
+ * </ul>
+ * Defining taskScheduler here replaces Spring Boot's, which backs off once any other scheduler bean exists. With
+ * spring.threads.virtual.enabled=true both start a virtual thread per run instead of using a pool.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+
+    public static final String LONG_JOBS = "longJobScheduler";
+
+    @Bean(name = "taskScheduler")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskScheduler taskScheduler(ThreadPoolTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    @Bean(name = "taskScheduler")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskScheduler taskSchedulerVirtualThreads(SimpleAsyncTaskSchedulerBuilder builder) {
+        return builder.build();
+    }
+
+    @Bean(name = LONG_JOBS)
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskScheduler longJobScheduler(ThreadPoolTaskSchedulerBuilder builder,
+                                                    @Value("${freight.scheduling.long-jobs-pool-size:2}") int poolSize) {
+        return builder.poolSize(poolSize).threadNamePrefix("long-job-").build();
+    }
+
+    @Bean(name = LONG_JOBS)
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskScheduler longJobSchedulerVirtualThreads(SimpleAsyncTaskSchedulerBuilder builder) {
+        return builder.threadNamePrefix("long-job-").build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.jayanti.freight_tracker.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the STOMP message broker behind /ws (prefix freight.websocket).
+ *
+ * With broker=simple (the default) each node keeps its own in-memory broker, so clients only see
+ * updates written on the node they are connected to. With broker=relay every node forwards to a
+ * shared external STOMP broker (RabbitMQ, ActiveMQ/Artemis, ...) and fan-out works across nodes.
+ */
+@Data
+@ConfigurationProperties(prefix = "freight.websocket")
+public class WebSocketBrokerProperties {
+
+    public enum BrokerMode {
+        SIMPLE,
+        RELAY
+    }
+
+    private BrokerMode broker = BrokerMode.SIMPLE;
+
+    private Relay relay = new Relay();
+
+    // executor for messages coming in from WebSocket clients
+    private ChannelPool inbound = new ChannelPool();
+
+    // executor for messages going out to WebSocket clients
+    private ChannelPool outbound = new ChannelPool();
+
+    @Data
+    public static class Relay {
+        private String host = "localhost";
+        private int port = 61613;
+        private String virtualHost;
+        private String clientLogin = "guest";
+        private String clientPasscode = "guest";
+        private String systemLogin = "guest";
+        private String systemPasscode = "guest";
+        private Duration systemHeartbeatSendInterval = Duration.ofSeconds(10);
+        private Duration systemHeartbeatReceiveInterval = Duration.ofSeconds(10);
+        // reconnects of the shared system session back off exponentially between these bounds
+        private Duration reconnectInitialDelay = Duration.ofSeconds(1);
+        private Duration reconnectMaxDelay = Duration.ofSeconds(30);
+    }
+
+    // Threads beyond the core size are only started once the queue is full, and a message that finds both
+    // full is rejected (the sender gets a MessageDeliveryException) instead of growing the heap without bound.
+    @Data
+    public static class ChannelPool {
+        private int corePoolSize = Runtime.getRuntime().availableProcessors() * 2;
+        // tasks only hand frames to the session, so a second set of threads is enough to ride out a stall
+        private int maxPoolSize = Runtime.getRuntime().availableProcessors() * 4;
+        // one task per message per session: a full broadcast flush (freight.broadcast.max-pending, 10,000)
+        // to one subscriber each fits, and that drains in well under a second
+        private int queueCapacity = 10_000;
+    }
+}
@@ -1,26 +1,77 @@
 package com.jayanti.freight_tracker.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompReactorNettyCodec;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
 import org.springframework.web.socket.config.annotation.*;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@EnableConfigurationProperties(WebSocketBrokerProperties.class)
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Autowired
+    private WebSocketBrokerProperties properties;
+
+    // same origins as the REST API (see CorsConfig)
+    @Value("${freight.cors.allowed-origins:http://localhost:5173,https://freighttracker.netlify.app}")
+    private String[] allowedOrigins;
+
     @Override
     // sets up initial handshake/connection point for websocket connections
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Register the WebSocket endpoint and enable SockJS fallback
-        registry.addEndpoint("/ws").setAllowedOriginPatterns("*").withSockJS();
+        registry.addEndpoint("/ws").setAllowedOrigins(allowedOrigins).withSockJS();
     }
 
     @Override
     // this method sets up how messages are routed
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        // Configure the message broker with a simple in-memory broker
-        registry.enableSimpleBroker("/topic");
+        if (properties.getBroker() == WebSocketBrokerProperties.BrokerMode.RELAY) {
+            // Relay /topic to an external STOMP broker shared by all nodes
+            WebSocketBrokerProperties.Relay relay = properties.getRelay();
+            ReactorNettyTcpClient<byte[]> tcpClient =
+                    new ReactorNettyTcpClient<>(relay.getHost(), relay.getPort(), new StompReactorNettyCodec());
+            registry.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relay.getHost())
+                    .setRelayPort(relay.getPort())
+                    .setVirtualHost(relay.getVirtualHost())
+                    .setClientLogin(relay.getClientLogin())
+                    .setClientPasscode(relay.getClientPasscode())
+                    .setSystemLogin(relay.getSystemLogin())
+                    .setSystemPasscode(relay.getSystemPasscode())
+                    .setSystemHeartbeatSendInterval(relay.getSystemHeartbeatSendInterval().toMillis())
+                    .setSystemHeartbeatReceiveInterval(relay.getSystemHeartbeatReceiveInterval().toMillis())
+                    .setTcpClient(new ReconnectingTcpClient(tcpClient,
+                            relay.getReconnectInitialDelay(), relay.getReconnectMaxDelay()));
+        } else {
+            // Configure the message broker with a simple in-memory broker
+            registry.enableSimpleBroker("/topic");
+        }
         // Set the prefix for messages that the application will handle
         registry.setApplicationDestinationPrefixes("/app");
     }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        WebSocketBrokerProperties.ChannelPool pool = properties.getInbound();
+        registration.taskExecutor()
+                .corePoolSize(pool.getCorePoolSize())
+                .maxPoolSize(pool.getMaxPoolSize())
+                .queueCapacity(pool.getQueueCapacity());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        WebSocketBrokerProperties.ChannelPool pool = properties.getOutbound();
+        registration.taskExecutor()
+                .corePoolSize(pool.getCorePoolSize())
+                .maxPoolSize(pool.getMaxPoolSize())
+                .queueCapacity(pool.getQueueCapacity());
+    }
 }
@@ -1,51 +1,212 @@
 package com.jayanti.freight_tracker.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayanti.freight_tracker.dto.BatchCreateShipmentResponse;
+import com.jayanti.freight_tracker.dto.BulkStatusUpdateItem;
+import com.jayanti.freight_tracker.dto.BulkStatusUpdateResponse;
 import com.jayanti.freight_tracker.dto.CreateShipmentRequest;
+import com.jayanti.freight_tracker.dto.CursorPage;
+import com.jayanti.freight_tracker.dto.DeliveryTimeStats;
+import com.jayanti.freight_tracker.dto.HeavyHitter;
+import com.jayanti.freight_tracker.dto.ShipmentChanges;
+import com.jayanti.freight_tracker.dto.ShipmentCursor;
+import com.jayanti.freight_tracker.dto.ShipmentField;
+import com.jayanti.freight_tracker.dto.ShipmentSearchHit;
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.dto.ExportFormat;
 import com.jayanti.freight_tracker.dto.ShipmentStatsDTO;
+import com.jayanti.freight_tracker.dto.ShipmentStatusChange;
+import com.jayanti.freight_tracker.dto.StatusUpdateRequest;
 import com.jayanti.freight_tracker.dto.UpdateShipmentRequest;
+import com.jayanti.freight_tracker.exception.BadRequestException;
 import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentEvent;
 import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.service.ShipmentChangeClock;
 import com.jayanti.freight_tracker.service.ShipmentService;
+import com.jayanti.freight_tracker.util.ETags;
+import com.jayanti.freight_tracker.websocket.ShipmentEventStream;
+import com.jayanti.freight_tracker.websocket.ShipmentUpdateMessage;
 
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 
 @RestController
 @RequestMapping("/api/shipments")
 public class ShipmentController {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 500;
+    private static final int MAX_TOP_LIMIT = 100;
+    private static final int MAX_CHANGES_LIMIT = 5000;
+    private static final int MAX_TEXT_SEARCH_LIMIT = 100;
+
     @Autowired
     private ShipmentService shipmentService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShipmentEventStream eventStream;
+
+    @Autowired
+    private ShipmentChangeClock changeClock;
+
     @PostMapping
     public Shipment createShipment(@Valid @RequestBody CreateShipmentRequest request) {
         return shipmentService.createShipment(request);
     }
 
+    // Rows are read one at a time and validated individually by the service, so one bad row does not reject the
+    // batch: an element that does not map (unknown status, wrong type) is a row error, like in the NDJSON upload.
+    // Anything but an array, or a syntax error, is a 400
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BatchCreateShipmentResponse createShipments(InputStream body) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("Expected a JSON array of shipments");
+            }
+            // the reader starts at the first element, so it reads the elements and stops at the closing bracket
+            if (parser.nextToken() == JsonToken.END_ARRAY) {
+                return shipmentService.createShipments(List.of());
+            }
+            return createRows(objectMapper.readerFor(CreateShipmentRequest.class).readValues(parser));
+        }
+    }
+
+    // Same as above, but one JSON object per line (application/x-ndjson), read and written as it streams in.
+    // A row that does not map is a row error; a syntax error ends the upload with 400, and rows before it
+    // stay created (sending the file again reports them as existing)
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BatchCreateShipmentResponse createShipmentsFromNdjson(InputStream body) throws IOException {
+        return createRows(objectMapper.readerFor(CreateShipmentRequest.class).readValues(body));
+    }
+
+    private BatchCreateShipmentResponse createRows(MappingIterator<CreateShipmentRequest> rows) throws IOException {
+        try (rows) {
+            return shipmentService.createShipments(rows);
+        } catch (RuntimeException e) {
+            // MappingIterator wraps parse errors to fit Iterator
+            if (e.getCause() instanceof JsonProcessingException malformed) {
+                throw malformed;
+            }
+            throw e;
+        }
+    }
+
+    // ?fields=trackingNumber,status returns only those columns (plus id), see ShipmentField
     @GetMapping
-    public List<Shipment> getAllShipments() {
-        return shipmentService.getAllShipments();
+    public List<?> getAllShipments(@RequestParam(required = false) String fields, WebRequest webRequest) {
+        if (notModified(webRequest)) {
+            return null;
+        }
+        Set<ShipmentField> selected = ShipmentField.fromParam(fields);
+        if (selected == null) {
+            return shipmentService.getAllShipments();
+        }
+        return shipmentService.searchShipmentFields(null, null, selected, Pageable.unpaged(Sort.by("id"))).getContent();
+    }
+
+    // Streams the whole table straight to the response instead of building a List in memory
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportShipments(
+            @RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+        StreamingResponseBody body = out -> shipmentService.exportShipments(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=shipments." + exportFormat.getExtension())
+                .body(body);
     }
 
+    // includeArchived=true also finds delivered/cancelled shipments ShipmentArchiver has moved out
     @GetMapping("/{id}")
-    public ResponseEntity<Shipment> getShipmentById(@PathVariable Long id) {
-        Shipment shipment = shipmentService.getShipmentByIdOrThrow(id); // create this method
-        return ResponseEntity.ok(shipment);
+    public ResponseEntity<Shipment> getShipmentById(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        return withValidators(shipmentService.getShipmentByIdOrThrow(id, includeArchived));
     }
 
+    @GetMapping("/tracking/{trackingNumber}")
+    public ResponseEntity<Shipment> getShipmentByTrackingNumber(
+            @PathVariable String trackingNumber,
+            @RequestParam(defaultValue = "false") boolean includeArchived) {
+        return withValidators(shipmentService.getShipmentByTrackingNumberOrThrow(trackingNumber, includeArchived));
+    }
+
+    // Replays the updates a reconnecting client missed; events are kept for freight.outbox.retention
+    @GetMapping("/{id}/events")
+    public List<ShipmentUpdateMessage> getShipmentEvents(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") long afterSequence) {
+        return shipmentService.getShipmentEventsAfter(id, afterSequence).stream()
+                .map(ShipmentUpdateMessage::from)
+                .toList();
+    }
+
+    // Live updates as Server-Sent Events, for clients without STOMP; reconnects resume from Last-Event-ID
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamShipments(
+            @RequestParam(required = false) ShipmentStatus status,
+            @RequestParam(required = false) String origin,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return eventStream.subscribe(status, origin, lastEventId);
+    }
+
+    // Every status the shipment has been in, oldest first
+    @GetMapping("/{id}/history")
+    public List<ShipmentEvent> getShipmentHistory(@PathVariable Long id) {
+        return shipmentService.getShipmentHistory(id);
+    }
+
+    // Send the ETag from GET back as If-Match to fail with 412 instead of overwriting someone else's change
     @PutMapping("/{id}")
     public ResponseEntity<Shipment> updateShipment(
             @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @Valid @RequestBody UpdateShipmentRequest request) {
-        Shipment updated = shipmentService.updateShipment(id, request);
-        return ResponseEntity.ok(updated);
+        Shipment updated = shipmentService.updateShipment(id, request, ETags.parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(updated.getVersion())).body(updated);
+    }
+
+    // Status-only fast path: no entity load, one conditional UPDATE. Honours If-Match like PUT.
+    @PatchMapping("/{id}/status")
+    public ResponseEntity<ShipmentStatusChange> updateShipmentStatus(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody StatusUpdateRequest request) {
+        ShipmentStatusChange change = shipmentService.updateShipmentStatus(id, request.getStatus(), ETags.parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(change.getVersion())).body(change);
+    }
+
+    // Bulk form for carrier feeds; rows are checked individually, like POST /batch
+    @PatchMapping("/status")
+    public BulkStatusUpdateResponse updateShipmentStatuses(@RequestBody List<BulkStatusUpdateItem> items) {
+        return shipmentService.updateShipmentStatuses(items);
     }
 
     @DeleteMapping("/{id}")
@@ -54,17 +215,169 @@ public class ShipmentController {
         return ResponseEntity.ok("Shipment with ID " + id + " has been deleted.");
     }
 
+    // Hot table only: an offset page over hot and archived rows together would have to count and skip through the
+    // whole archive, which is what /search/cursor avoids, so includeArchived=true is rejected rather than ignored
     @GetMapping("/search")
-    public Page<Shipment> searchShipments(
+    public Page<?> searchShipments(
             @RequestParam(required = false) String origin,
             @RequestParam(required = false) ShipmentStatus status,
-            Pageable pageable
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            Pageable pageable,
+            WebRequest webRequest
     ) {
-        return shipmentService.searchShipments(origin, status, pageable);
+        if (includeArchived) {
+            throw new BadRequestException("includeArchived is only supported by /search/cursor");
+        }
+        if (notModified(webRequest)) {
+            return null;
+        }
+        Set<ShipmentField> selected = ShipmentField.fromParam(fields);
+        if (selected == null) {
+            return shipmentService.searchShipments(origin, status, pageable);
+        }
+        return shipmentService.searchShipmentFields(origin, status, selected, pageable);
+    }
+
+    // Keyset pagination, newest first: cost per page does not grow with how deep the client scrolls
+    @GetMapping("/search/cursor")
+    public CursorPage<?> searchShipmentsByCursor(
+            @RequestParam(required = false) String origin,
+            @RequestParam(required = false) ShipmentStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String fields,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            WebRequest webRequest
+    ) {
+        if (notModified(webRequest)) {
+            return null;
+        }
+        ShipmentCursor after = cursor == null ? ShipmentCursor.START : ShipmentCursor.decode(cursor);
+        int pageSize = Math.min(Math.max(size, 1), MAX_CURSOR_PAGE_SIZE);
+        Set<ShipmentField> selected = ShipmentField.fromParam(fields);
+        if (selected == null) {
+            Slice<ShipmentView> slice = shipmentService.searchShipmentsAfter(origin, status, after, pageSize, includeArchived);
+            return cursorPage(slice, pageSize, last -> new ShipmentCursor(last.lastUpdatedTime(), last.id()));
+        }
+        if (includeArchived) {
+            throw new BadRequestException("fields cannot be combined with includeArchived");
+        }
+        // the next cursor is built from the last row, so it always carries lastUpdatedTime
+        selected.add(ShipmentField.LAST_UPDATED_TIME);
+        Slice<Map<String, Object>> slice = shipmentService.searchShipmentFieldsAfter(origin, status, selected, after, pageSize);
+        return cursorPage(slice, pageSize, last -> new ShipmentCursor(
+                (LocalDateTime) last.get(ShipmentField.LAST_UPDATED_TIME.getProperty()),
+                (Long) last.get(ShipmentField.ID.getProperty())));
+    }
+
+    // Typeahead and fuzzy search (partial tracking numbers, misspelled cities, carriers), served from memory
+    @GetMapping("/search/text")
+    public List<ShipmentSearchHit> searchShipmentsByText(
+            @RequestParam String q,
+            @RequestParam(required = false) ShipmentStatus status,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        if (q.isBlank()) {
+            throw new BadRequestException("q must not be blank");
+        }
+        return shipmentService.searchText(q, status, Math.min(Math.max(limit, 1), MAX_TEXT_SEARCH_LIMIT));
+    }
+
+    private static <T> CursorPage<T> cursorPage(Slice<T> slice, int pageSize, Function<T, ShipmentCursor> position) {
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            nextCursor = position.apply(slice.getContent().get(slice.getNumberOfElements() - 1)).encode();
+        }
+        return CursorPage.<T>builder()
+                .content(slice.getContent())
+                .size(pageSize)
+                .hasNext(slice.hasNext())
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // Delta sync: what was created, modified or deleted after the position a client last saw. Subscribe to
+    // updates first, then page through this until hasMore is false; omit since to get every shipment.
+    @GetMapping("/changes")
+    public ShipmentChanges getChanges(
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "1000") int limit
+    ) {
+        return shipmentService.getChangesSince(since, afterId, Math.min(Math.max(limit, 1), MAX_CHANGES_LIMIT));
     }
 
     @GetMapping("/stats")
-    public ShipmentStatsDTO getShipmentStats() {
+    public ShipmentStatsDTO getShipmentStats(WebRequest webRequest) {
+        if (notModified(webRequest)) {
+            return null;
+        }
         return shipmentService.getShipmentStats();
     }
+
+    // Analytics below are served from in-memory rollups (ShipmentAnalytics); top-K lists are approximate
+    // between rebuilds, with each entry's possible overcount in "error"
+    @GetMapping("/stats/origins")
+    public List<HeavyHitter> getTopOrigins(@RequestParam(defaultValue = "10") int limit, WebRequest webRequest) {
+        if (notModified(webRequest)) {
+            return null;
+        }
+        return shipmentService.getTopOrigins(topLimit(limit));
+    }
+
+    @GetMapping("/stats/destinations")
+    public List<HeavyHitter> getTopDestinations(@RequestParam(defaultValue = "10") int limit, WebRequest webRequest) {
+        if (notModified(webRequest)) {
+            return null;
+        }
+        return shipmentService.getTopDestinations(topLimit(limit));
+    }
+
+    @GetMapping("/stats/lanes")
+    public List<HeavyHitter> getTopLanes(@RequestParam(defaultValue = "10") int limit, WebRequest webRequest) {
+        if (notModified(webRequest)) {
+            return null;
+        }
+        return shipmentService.getTopLanes(topLimit(limit));
+    }
+
+    @GetMapping("/stats/carriers")
+    public Map<String, Long> getCarrierCounts(WebRequest webRequest) {
+        if (notModified(webRequest)) {
+            return null;
+        }
+        return shipmentService.getCarrierCounts();
+    }
+
+    @GetMapping("/stats/priorities")
+    public Map<String, Long> getPriorityCounts(WebRequest webRequest) {
+        if (notModified(webRequest)) {
+            return null;
+        }
+        return shipmentService.getPriorityCounts();
+    }
+
+    @GetMapping("/stats/delivery-times")
+    public DeliveryTimeStats getDeliveryTimeStats(WebRequest webRequest) {
+        if (notModified(webRequest)) {
+            return null;
+        }
+        return shipmentService.getDeliveryTimeStats();
+    }
+
+    // Lists and stats: 304 while the change clock has not moved since the client's copy, before any query runs
+    private boolean notModified(WebRequest webRequest) {
+        return webRequest.checkNotModified(changeClock.etag());
+    }
+
+    // A shipment's ETag is its version. No Last-Modified: with one-second precision, If-Modified-Since
+    // would answer 304 for a second update within the same second
+    private static ResponseEntity<Shipment> withValidators(Shipment shipment) {
+        return ResponseEntity.ok().eTag(ETags.of(shipment.getVersion())).body(shipment);
+    }
+
+    private static int topLimit(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_TOP_LIMIT);
+    }
 }
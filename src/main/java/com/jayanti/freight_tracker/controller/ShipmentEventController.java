@@ -0,0 +1,63 @@
+package com.jayanti.freight_tracker.controller;
+
+import com.jayanti.freight_tracker.dto.CursorPage;
+import com.jayanti.freight_tracker.dto.ShipmentCursor;
+import com.jayanti.freight_tracker.exception.BadRequestException;
+import com.jayanti.freight_tracker.model.ShipmentEvent;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.service.ShipmentService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDateTime;
+
+/**
+ * Time-window queries over the shipment status history, across all shipments.
+ */
+@RestController
+@RequestMapping("/api/events")
+public class ShipmentEventController {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    @Autowired
+    private ShipmentService shipmentService;
+
+    // Events with from <= occurredAt < to, oldest first, paged with an opaque cursor
+    @GetMapping
+    public CursorPage<ShipmentEvent> searchEvents(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) ShipmentStatus status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size
+    ) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("'from' must be before 'to'");
+        }
+        // ids start at 1, so (from, 0) sorts before every event at exactly 'from'
+        ShipmentCursor after = cursor == null ? new ShipmentCursor(from, 0) : ShipmentCursor.decode(cursor);
+        if (after.lastUpdatedTime().isBefore(from)) {
+            throw new BadRequestException("Cursor does not belong to this time window");
+        }
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Slice<ShipmentEvent> slice = shipmentService.searchEventsAfter(status, after, to, pageSize);
+
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            ShipmentEvent last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = new ShipmentCursor(last.getOccurredAt(), last.getId()).encode();
+        }
+        return CursorPage.<ShipmentEvent>builder()
+                .content(slice.getContent())
+                .size(pageSize)
+                .hasNext(slice.hasNext())
+                .nextCursor(nextCursor)
+                .build();
+    }
+}
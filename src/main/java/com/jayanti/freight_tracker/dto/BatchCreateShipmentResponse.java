@@ -0,0 +1,15 @@
+package com.jayanti.freight_tracker.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCreateShipmentResponse {
+    private int received;
+    private int created;
+    private List<BatchRowError> rejected;
+}
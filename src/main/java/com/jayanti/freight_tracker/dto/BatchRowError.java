@@ -0,0 +1,15 @@
+package com.jayanti.freight_tracker.dto;
+
+import lombok.*;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRowError {
+    private int row;                    // zero-based position in the submitted batch
+    private String trackingNumber;
+    private Map<String, String> errors; // field -> message, same shape as validation errors
+}
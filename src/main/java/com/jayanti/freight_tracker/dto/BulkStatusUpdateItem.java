@@ -0,0 +1,14 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import lombok.*;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateItem {
+    private Long id;                // either id ...
+    private String trackingNumber;  // ... or tracking number, not both
+    private ShipmentStatus status;
+}
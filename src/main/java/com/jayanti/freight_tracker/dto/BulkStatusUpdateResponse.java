@@ -0,0 +1,16 @@
+package com.jayanti.freight_tracker.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkStatusUpdateResponse {
+    private int received;
+    private int updated;
+    private int unchanged;          // rows that already had the requested status; nothing was written
+    private List<BatchRowError> rejected;
+}
@@ -0,0 +1,16 @@
+package com.jayanti.freight_tracker.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;  // pass back as ?cursor= to get the following page; null on the last page
+}
@@ -0,0 +1,6 @@
+package com.jayanti.freight_tracker.dto;
+
+import java.time.LocalDateTime;
+
+public record DeliveryInterval(LocalDateTime createdAt, LocalDateTime deliveredAt) {
+}
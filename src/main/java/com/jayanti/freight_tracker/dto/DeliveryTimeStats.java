@@ -0,0 +1,16 @@
+package com.jayanti.freight_tracker.dto;
+
+import lombok.*;
+
+// Time from creation to DELIVERED, in seconds; percentiles are accurate to about 2%
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeliveryTimeStats {
+    private long deliveries;
+    private Long p50Seconds;
+    private Long p90Seconds;
+    private Long p95Seconds;
+    private Long p99Seconds;
+}
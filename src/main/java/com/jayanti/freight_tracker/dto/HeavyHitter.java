@@ -0,0 +1,5 @@
+package com.jayanti.freight_tracker.dto;
+
+// One entry of an approximate top-K: count may overestimate the true count by at most error
+public record HeavyHitter(String key, long count, long error) {
+}
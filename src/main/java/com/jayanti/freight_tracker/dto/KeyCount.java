@@ -0,0 +1,5 @@
+package com.jayanti.freight_tracker.dto;
+
+// GROUP BY row for the analytics rollups (carrier, destination, lane)
+public record KeyCount(String key, long count) {
+}
@@ -0,0 +1,5 @@
+package com.jayanti.freight_tracker.dto;
+
+// Row of a GROUP BY origin aggregate
+public record OriginCount(String origin, long count) {
+}
@@ -0,0 +1,6 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.model.Priority;
+
+public record PriorityCount(Priority priority, long count) {
+}
@@ -0,0 +1,19 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.model.ShipmentTombstone;
+import lombok.*;
+
+import java.util.List;
+
+// One page of GET /api/shipments/changes, in change order
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShipmentChanges {
+    private List<ShipmentView> changed;         // created or modified, current state
+    private List<ShipmentTombstone> deleted;
+    private long version;       // pass back as ?since= (with ?afterId=) to get what changed next
+    private Long afterId;
+    private boolean hasMore;    // more changes are ready now; otherwise poll again later
+}
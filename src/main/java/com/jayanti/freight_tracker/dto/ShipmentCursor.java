@@ -0,0 +1,34 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated search: the (lastUpdatedTime, id) of the last row a client has seen.
+ * Clients only ever see it as an opaque token.
+ */
+public record ShipmentCursor(LocalDateTime lastUpdatedTime, long id) {
+
+    // Sorts after every real row, so the first page uses the same seek query as the rest
+    public static final ShipmentCursor START = new ShipmentCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    public String encode() {
+        String raw = lastUpdatedTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ShipmentCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new ShipmentCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor: " + token);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.exception.BadRequestException;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Columns a client can ask for with {@code ?fields=}. The name is both the entity attribute and the JSON
+ * property, and the declaration order is the order they appear in a response.
+ */
+public enum ShipmentField {
+    ID("id"),
+    ORIGIN("origin"),
+    DESTINATION("destination"),
+    STATUS("status"),
+    LAST_UPDATED_TIME("lastUpdatedTime"),
+    CREATED_AT("createdAt"),
+    TRACKING_NUMBER("trackingNumber"),
+    CARRIER("carrier"),
+    PRIORITY("priority"),
+    VERSION("version"),
+    CHANGE_VERSION("changeVersion");
+
+    private final String property;
+
+    ShipmentField(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    /**
+     * Parses a comma-separated list such as {@code trackingNumber,status}. {@code id} is always included so
+     * rows stay addressable.
+     *
+     * @param value The query parameter, may be null.
+     * @return The requested fields, or null when the parameter is absent or blank (full rows).
+     */
+    public static Set<ShipmentField> fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Set<ShipmentField> fields = EnumSet.of(ID);
+        for (String name : value.split(",")) {
+            fields.add(fromProperty(name.trim()));
+        }
+        return fields;
+    }
+
+    private static ShipmentField fromProperty(String name) {
+        for (ShipmentField field : values()) {
+            if (field.property.equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new BadRequestException("Unknown field: " + name);
+    }
+}
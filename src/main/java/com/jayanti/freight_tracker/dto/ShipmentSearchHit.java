@@ -0,0 +1,8 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+
+// One result of GET /api/shipments/search/text; score sums the best match per query word (1 = exact)
+public record ShipmentSearchHit(Long id, String trackingNumber, String origin, String destination, String carrier,
+                                ShipmentStatus status, double score) {
+}
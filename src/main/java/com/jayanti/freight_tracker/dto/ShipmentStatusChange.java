@@ -0,0 +1,19 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShipmentStatusChange {
+    private Long id;
+    private String trackingNumber;
+    private ShipmentStatus previousStatus;
+    private ShipmentStatus status;
+    private long version;
+    private LocalDateTime lastUpdatedTime;
+}
@@ -0,0 +1,11 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+
+import java.time.LocalDateTime;
+
+// The few columns the status fast path needs, read without loading the entity
+// (origin goes into the outbox event; createdAt feeds the delivery-time analytics when the status becomes DELIVERED)
+public record ShipmentStatusView(Long id, String trackingNumber, String origin, ShipmentStatus status, long version,
+                                 LocalDateTime createdAt) {
+}
@@ -0,0 +1,31 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.model.Priority;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+
+import java.time.LocalDateTime;
+
+// Read-side shape of a shipment for list, search and export. Selected straight into this record, so no entity
+// is hydrated or tracked by the persistence context; serializes to the same JSON as Shipment.
+public record ShipmentView(Long id, String origin, String destination, ShipmentStatus status,
+                           LocalDateTime lastUpdatedTime, LocalDateTime createdAt, String trackingNumber, String carrier,
+                           Priority priority, long version, long changeVersion) {
+
+    // Detached, for the in-memory counters that take a Shipment (see ShipmentChangeFollower); no originKey
+    public Shipment toShipment() {
+        return Shipment.builder()
+                .id(id)
+                .origin(origin)
+                .destination(destination)
+                .status(status)
+                .lastUpdatedTime(lastUpdatedTime)
+                .createdAt(createdAt)
+                .trackingNumber(trackingNumber)
+                .carrier(carrier)
+                .priority(priority)
+                .version(version)
+                .changeVersion(changeVersion)
+                .build();
+    }
+}
@@ -0,0 +1,7 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+
+// Row of a GROUP BY status aggregate
+public record StatusCount(ShipmentStatus status, long count) {
+}
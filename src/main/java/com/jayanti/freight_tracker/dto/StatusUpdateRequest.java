@@ -0,0 +1,12 @@
+package com.jayanti.freight_tracker.dto;
+
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class StatusUpdateRequest {
+
+    @NotNull(message = "Status cannot be null")
+    private ShipmentStatus status;
+}
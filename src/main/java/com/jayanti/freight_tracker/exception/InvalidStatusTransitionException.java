@@ -0,0 +1,9 @@
+package com.jayanti.freight_tracker.exception;
+
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+
+public class InvalidStatusTransitionException extends RuntimeException {
+    public InvalidStatusTransitionException(Long id, ShipmentStatus from, ShipmentStatus to) {
+        super("Shipment " + id + " cannot move from " + from + " to " + to);
+    }
+}
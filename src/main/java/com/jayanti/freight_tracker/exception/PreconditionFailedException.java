@@ -0,0 +1,7 @@
+package com.jayanti.freight_tracker.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(Long id, long expectedVersion, long currentVersion) {
+        super("Shipment " + id + " is at version " + currentVersion + ", not " + expectedVersion);
+    }
+}
@@ -0,0 +1,7 @@
+package com.jayanti.freight_tracker.exception;
+
+public class ShipmentConflictException extends RuntimeException {
+    public ShipmentConflictException(Long id) {
+        super("Shipment " + id + " was modified concurrently, re-read it and try again");
+    }
+}
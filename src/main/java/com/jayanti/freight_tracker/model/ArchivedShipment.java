@@ -0,0 +1,79 @@
+package com.jayanti.freight_tracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A shipment moved out of the hot shipment table: delivered or cancelled ones by
+ * {@link com.jayanti.freight_tracker.service.ShipmentArchiver} once they are old enough, and deleted ones
+ * (deletedAt set) by DELETE /api/shipments/{id}. Same columns as {@link Shipment}, so rows are moved with a
+ * single INSERT ... SELECT (see ShipmentRepository.moveToArchive).
+ */
+@Entity
+@Table(name = "shipment_archive", indexes = {
+        // tracking numbers are only unique in the hot table: a deleted one may be reused
+        @Index(name = "idx_shipment_archive_tracking", columnList = "trackingNumber"),
+        // keyset seek of ?includeArchived=true searches, like idx_shipment_updated_id
+        @Index(name = "idx_shipment_archive_updated_id", columnList = "lastUpdatedTime, id"),
+        @Index(name = "idx_shipment_archive_origin_status", columnList = "originKey, status, lastUpdatedTime")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedShipment {
+
+    // the id it had in the shipment table
+    @Id
+    private Long id;
+
+    private String origin;
+
+    private String originKey;
+
+    private String destination;
+
+    @Enumerated(EnumType.STRING)
+    private ShipmentStatus status;
+
+    private LocalDateTime lastUpdatedTime;
+
+    private LocalDateTime createdAt;
+
+    private String trackingNumber;
+
+    private String carrier;
+
+    @Enumerated(EnumType.STRING)
+    private Priority priority;
+
+    private long version;
+
+    private long changeVersion;
+
+    // null for archived shipments; soft-deleted ones are kept for audit but never served
+    private LocalDateTime deletedAt;
+
+    private LocalDateTime archivedAt;
+
+    // Same JSON as a live shipment for GET ...?includeArchived=true
+    public Shipment toShipment() {
+        return Shipment.builder()
+                .id(id)
+                .origin(origin)
+                .originKey(originKey)
+                .destination(destination)
+                .status(status)
+                .lastUpdatedTime(lastUpdatedTime)
+                .createdAt(createdAt)
+                .trackingNumber(trackingNumber)
+                .carrier(carrier)
+                .priority(priority)
+                .version(version)
+                .changeVersion(changeVersion)
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.jayanti.freight_tracker.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Which node runs a scheduled job that only one node should run at a time, such as
+ * {@link com.jayanti.freight_tracker.service.ShipmentArchiver}: the holder keeps it by renewing it before
+ * lockedUntil, and any node can take it over once lockedUntil has passed. See JobLeaseRepository.tryAcquire.
+ */
+@Entity
+@Table(name = "job_lease")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobLease {
+
+    @Id
+    private String name;
+
+    // JobLeaseRepository.HOLDER of the node that took it
+    private String holder;
+
+    private LocalDateTime lockedUntil;
+}
@@ -1,11 +1,24 @@
 package com.jayanti.freight_tracker.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
+@Table(indexes = {
+        // backs the keyset seek in ShipmentRepository.findViewSliceBefore and ShipmentRepositoryCustom.findFieldsBefore
+        @Index(name = "idx_shipment_updated_id", columnList = "lastUpdatedTime, id"),
+        // status filters (search, countByStatus), newest first
+        @Index(name = "idx_shipment_status_updated", columnList = "status, lastUpdatedTime"),
+        // origin and origin+status filters; the leading column also serves origin-only lookups
+        @Index(name = "idx_shipment_origin_status", columnList = "originKey, status, lastUpdatedTime"),
+        // GET /api/shipments/changes: everything after a (changeVersion, id) position
+        @Index(name = "idx_shipment_change_version", columnList = "changeVersion, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -13,12 +26,22 @@ import java.time.LocalDateTime;
 @Builder
 public class Shipment {
 
+    // source of changeVersion, one value per write transaction (see ShipmentRepositoryCustom.nextChangeVersion)
+    public static final String CHANGE_VERSION_SEQUENCE = "shipment_change_seq";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence instead of IDENTITY so Hibernate can batch inserts (see createShipments)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shipment_seq")
+    @SequenceGenerator(name = "shipment_seq", sequenceName = "shipment_seq", allocationSize = 50)
     private Long id;
 
     private String origin;
 
+    // Normalized copy of origin so case-insensitive search is a plain indexed equality
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private String originKey;
+
     private String destination;
 
     @Enumerated(EnumType.STRING)
@@ -26,6 +49,10 @@ public class Shipment {
 
     private LocalDateTime lastUpdatedTime;
 
+    // null for rows created before this column existed; they are left out of delivery-time analytics
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
     @Column(nullable = false, unique = true)
     private String trackingNumber;
 
@@ -33,4 +60,25 @@ public class Shipment {
 
     @Enumerated(EnumType.STRING)
     private Priority priority;
+
+    // Optimistic lock: every UPDATE checks and bumps it, so concurrent writers cannot silently overwrite
+    // each other. Also the ETag of the shipment, and version + 1 is the sequence of its latest event.
+    @Version
+    @ColumnDefault("0")
+    private long version;
+
+    // Global, increases with every committed write to any shipment; clients resume from it via
+    // GET /api/shipments/changes?since=. Rows written before this column existed have 0.
+    @ColumnDefault("0")
+    private long changeVersion;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeKeys() {
+        originKey = normalizeOrigin(origin);
+    }
+
+    public static String normalizeOrigin(String origin) {
+        return origin == null ? null : origin.trim().toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,65 @@
+package com.jayanti.freight_tracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One status transition of a shipment. Rows are only ever appended (by
+ * {@link com.jayanti.freight_tracker.service.ShipmentHistoryRecorder}) and never updated.
+ *
+ * On PostgreSQL the table is meant to be range-partitioned by occurred_at, see db/shipment_event_partitioned.sql.
+ */
+@Entity
+@Table(name = "shipment_event", indexes = {
+        // history of one shipment
+        @Index(name = "uk_event_shipment_sequence", columnList = "shipmentId, sequence", unique = true),
+        // time-window scans, optionally narrowed by status; id breaks ties for the keyset cursor
+        @Index(name = "idx_event_time_id", columnList = "occurredAt, id"),
+        @Index(name = "idx_event_status_time_id", columnList = "status, occurredAt, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShipmentEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shipment_event_seq")
+    @SequenceGenerator(name = "shipment_event_seq", sequenceName = "shipment_event_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long shipmentId;
+
+    // the outbox sequence of the change that produced this row
+    private long sequence;
+
+    @Enumerated(EnumType.STRING)
+    private ShipmentEventType eventType;
+
+    private String trackingNumber;
+
+    @Enumerated(EnumType.STRING)
+    private ShipmentStatus previousStatus;
+
+    @Enumerated(EnumType.STRING)
+    private ShipmentStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime occurredAt;
+
+    public static ShipmentEvent from(ShipmentOutboxEvent event) {
+        return ShipmentEvent.builder()
+                .shipmentId(event.getShipmentId())
+                .sequence(event.getSequence())
+                .eventType(event.getEventType())
+                .trackingNumber(event.getTrackingNumber())
+                .previousStatus(event.getPreviousStatus())
+                .status(event.getStatus())
+                .occurredAt(event.getLastUpdatedTime())
+                .build();
+    }
+}
@@ -0,0 +1,7 @@
+package com.jayanti.freight_tracker.model;
+
+public enum ShipmentEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,112 @@
+package com.jayanti.freight_tracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shipment change written in the same transaction as the change itself and published afterwards
+ * by {@link com.jayanti.freight_tracker.service.ShipmentOutboxRelay}. Rows are kept for a retention
+ * window after publishing so clients can replay missed events by sequence number.
+ */
+@Entity
+@Table(name = "shipment_outbox", indexes = {
+        // relay poll: WHERE published_at IS NULL ORDER BY id
+        @Index(name = "idx_outbox_published_id", columnList = "publishedAt, id"),
+        // stream poll: WHERE change_version > ? ORDER BY change_version, id
+        @Index(name = "idx_outbox_change_version", columnList = "changeVersion, id"),
+        @Index(name = "uk_outbox_shipment_sequence", columnList = "shipmentId, sequence", unique = true)
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShipmentOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shipment_outbox_seq")
+    @SequenceGenerator(name = "shipment_outbox_seq", sequenceName = "shipment_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long shipmentId;
+
+    // per-shipment, increases by one with every event for that shipment (the shipment's version + 1)
+    private long sequence;
+
+    // the shipment's changeVersion after this write (see Shipment.changeVersion)
+    private long changeVersion;
+
+    @Enumerated(EnumType.STRING)
+    private ShipmentEventType eventType;
+
+    // written by bulk ingestion; published as part of a single batch message
+    private boolean bulk;
+
+    private String trackingNumber;
+
+    // lets stream subscribers filter by origin without a lookup
+    private String origin;
+
+    @Enumerated(EnumType.STRING)
+    private ShipmentStatus status;
+
+    @Enumerated(EnumType.STRING)
+    private ShipmentStatus previousStatus;
+
+    private LocalDateTime lastUpdatedTime;
+
+    private LocalDateTime publishedAt;
+
+    // The shipment must already be persisted or flushed, so its version is the one being committed
+    public static ShipmentOutboxEvent of(Shipment shipment, ShipmentEventType eventType,
+                                         ShipmentStatus previousStatus, boolean bulk) {
+        return ShipmentOutboxEvent.builder()
+                .shipmentId(shipment.getId())
+                .sequence(shipment.getVersion() + 1)
+                .changeVersion(shipment.getChangeVersion())
+                .eventType(eventType)
+                .bulk(bulk)
+                .trackingNumber(shipment.getTrackingNumber())
+                .origin(shipment.getOrigin())
+                .status(shipment.getStatus())
+                .previousStatus(previousStatus)
+                .lastUpdatedTime(shipment.getLastUpdatedTime())
+                .build();
+    }
+
+    // For writes that bypass the entity (status fast path); newVersion is the version the UPDATE wrote
+    public static ShipmentOutboxEvent ofStatusChange(Long shipmentId, String trackingNumber, String origin,
+                                                     ShipmentStatus previousStatus, ShipmentStatus status,
+                                                     long newVersion, long changeVersion,
+                                                     LocalDateTime lastUpdatedTime) {
+        return ShipmentOutboxEvent.builder()
+                .shipmentId(shipmentId)
+                .sequence(newVersion + 1)
+                .changeVersion(changeVersion)
+                .eventType(ShipmentEventType.UPDATED)
+                .trackingNumber(trackingNumber)
+                .origin(origin)
+                .status(status)
+                .previousStatus(previousStatus)
+                .lastUpdatedTime(lastUpdatedTime)
+                .build();
+    }
+
+    // The last event of a shipment; its latest write already used sequence version + 1
+    public static ShipmentOutboxEvent ofDeletion(Shipment shipment, long changeVersion, LocalDateTime deletedAt) {
+        return ShipmentOutboxEvent.builder()
+                .shipmentId(shipment.getId())
+                .sequence(shipment.getVersion() + 2)
+                .changeVersion(changeVersion)
+                .eventType(ShipmentEventType.DELETED)
+                .trackingNumber(shipment.getTrackingNumber())
+                .origin(shipment.getOrigin())
+                .status(shipment.getStatus())
+                .previousStatus(shipment.getStatus())
+                .lastUpdatedTime(deletedAt)
+                .build();
+    }
+}
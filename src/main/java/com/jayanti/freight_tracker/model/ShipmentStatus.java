@@ -4,5 +4,20 @@ public enum ShipmentStatus {
     PENDING,
     IN_TRANSIT,
     DELIVERED,
-    CANCELLED
+    CANCELLED;
+
+    /**
+     * Whether a shipment may move from this status to {@code next}. Staying in the same status is
+     * always allowed (updates that only touch other fields); DELIVERED and CANCELLED are final.
+     */
+    public boolean canTransitionTo(ShipmentStatus next) {
+        if (next == this) {
+            return true;
+        }
+        return switch (this) {
+            case PENDING -> next == IN_TRANSIT || next == DELIVERED || next == CANCELLED;
+            case IN_TRANSIT -> next == DELIVERED || next == CANCELLED;
+            case DELIVERED, CANCELLED -> false;
+        };
+    }
 }
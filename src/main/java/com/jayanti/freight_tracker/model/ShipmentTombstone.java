@@ -0,0 +1,36 @@
+package com.jayanti.freight_tracker.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marker left behind by a deleted or archived shipment so GET /api/shipments/changes (and
+ * ShipmentChangeFollower on every node) can tell clients to drop it. Written in the same transaction as the
+ * delete or archive and kept indefinitely: one small row per shipment that left the shipment table.
+ */
+@Entity
+@Table(name = "shipment_tombstone", indexes = {
+        @Index(name = "idx_tombstone_change_version", columnList = "changeVersion, shipmentId")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShipmentTombstone {
+
+    @Id
+    private Long shipmentId;
+
+    private String trackingNumber;
+
+    private long changeVersion;
+
+    // when it left the shipment table
+    private LocalDateTime deletedAt;
+
+    // moved to the archive by ShipmentArchiver rather than deleted: still readable with ?includeArchived=true
+    private boolean archived;
+}
@@ -0,0 +1,45 @@
+package com.jayanti.freight_tracker.repository;
+
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.model.ArchivedShipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+// Cold side of ?includeArchived=true; soft-deleted rows (deletedAt set) are never returned
+@Repository
+@Transactional(readOnly = true)
+public interface ArchivedShipmentRepository extends JpaRepository<ArchivedShipment, Long> {
+
+    Optional<ArchivedShipment> findByIdAndDeletedAtIsNull(Long id);
+
+    Optional<ArchivedShipment> findFirstByTrackingNumberAndDeletedAtIsNullOrderByArchivedAtDesc(String trackingNumber);
+
+    // Archive counterpart of ShipmentRepository.findViewSliceBefore and its filtered variants. One query with
+    // optional filters is enough here: the archive is only read on request, not on the hot path.
+    @Query("SELECT new com.jayanti.freight_tracker.dto.ShipmentView(a.id, a.origin, a.destination, a.status, " +
+            "a.lastUpdatedTime, a.createdAt, a.trackingNumber, a.carrier, a.priority, a.version, a.changeVersion) " +
+            "FROM ArchivedShipment a WHERE a.deletedAt IS NULL " +
+            "AND (:originKey IS NULL OR a.originKey = :originKey) AND (:status IS NULL OR a.status = :status) " +
+            "AND (a.lastUpdatedTime, a.id) < (:lastUpdatedTime, :id) ORDER BY a.lastUpdatedTime DESC, a.id DESC")
+    Slice<ShipmentView> findViewSliceBefore(String originKey, ShipmentStatus status, LocalDateTime lastUpdatedTime,
+                                            Long id, Pageable pageable);
+
+    // Rows archived before originKey existed; see OriginKeyBackfill
+    @Query("SELECT DISTINCT a.origin FROM ArchivedShipment a WHERE a.originKey IS NULL AND a.origin IS NOT NULL")
+    List<String> findOriginsWithoutKey();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ArchivedShipment a SET a.originKey = :originKey WHERE a.origin = :origin AND a.originKey IS NULL")
+    int fillOriginKey(String origin, String originKey);
+}
@@ -0,0 +1,24 @@
+package com.jayanti.freight_tracker.repository;
+
+import com.jayanti.freight_tracker.model.Shipment;
+import org.hibernate.boot.ResourceStreamLocator;
+import org.hibernate.boot.model.naming.Identifier;
+import org.hibernate.boot.model.relational.Sequence;
+import org.hibernate.boot.spi.AdditionalMappingContributions;
+import org.hibernate.boot.spi.AdditionalMappingContributor;
+import org.hibernate.boot.spi.InFlightMetadataCollector;
+import org.hibernate.boot.spi.MetadataBuildingContext;
+
+/**
+ * Adds the change-version sequence to the schema Hibernate manages. No entity id is generated from it,
+ * so it would not be created otherwise. Registered in META-INF/services.
+ */
+public class ChangeVersionSequenceContributor implements AdditionalMappingContributor {
+
+    @Override
+    public void contribute(AdditionalMappingContributions contributions, InFlightMetadataCollector metadata,
+                           ResourceStreamLocator resourceStreamLocator, MetadataBuildingContext buildingContext) {
+        contributions.contributeSequence(new Sequence(getContributorName(), null, null,
+                Identifier.toIdentifier(Shipment.CHANGE_VERSION_SEQUENCE), 1, 1));
+    }
+}
@@ -0,0 +1,45 @@
+package com.jayanti.freight_tracker.repository;
+
+import com.jayanti.freight_tracker.model.JobLease;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+    // "pid@host": one holder per process, so every scheduler thread of a node can renew its lease
+    String HOLDER = ManagementFactory.getRuntimeMXBean().getName();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE JobLease l SET l.holder = :holder, l.lockedUntil = :lockedUntil " +
+            "WHERE l.name = :name AND (l.holder = :holder OR l.lockedUntil < :now)")
+    int takeOver(String name, String holder, LocalDateTime now, LocalDateTime lockedUntil);
+
+    // Whether this node holds (or renewed) the lease for the next `duration`; a single conditional UPDATE, so
+    // of several nodes trying at once exactly one gets it
+    default boolean tryAcquire(String name, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        if (takeOver(name, HOLDER, now, now.plus(duration)) == 1) {
+            return true;
+        }
+        if (existsById(name)) {
+            return false;
+        }
+        try {
+            // first run anywhere; a node inserting the same row at the same time fails on the primary key
+            saveAndFlush(new JobLease(name, HOLDER, now.plus(duration)));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.jayanti.freight_tracker.repository;
+
+import com.jayanti.freight_tracker.dto.DeliveryInterval;
+import com.jayanti.freight_tracker.model.ShipmentEvent;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+@Transactional(readOnly = true)
+public interface ShipmentEventRepository extends JpaRepository<ShipmentEvent, Long> {
+
+    List<ShipmentEvent> findByShipmentIdOrderBySequence(Long shipmentId);
+
+    // Oldest first, resuming after (occurredAt, id). The plain occurredAt bounds are implied by the row
+    // comparison but are what lets PostgreSQL prune partitions outside the window.
+    @Query("SELECT e FROM ShipmentEvent e WHERE e.occurredAt >= :occurredAt AND e.occurredAt < :to " +
+            "AND (e.occurredAt, e.id) > (:occurredAt, :id) ORDER BY e.occurredAt, e.id")
+    Slice<ShipmentEvent> findSliceAfter(LocalDateTime occurredAt, Long id, LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT e FROM ShipmentEvent e WHERE e.status = :status " +
+            "AND e.occurredAt >= :occurredAt AND e.occurredAt < :to " +
+            "AND (e.occurredAt, e.id) > (:occurredAt, :id) ORDER BY e.occurredAt, e.id")
+    Slice<ShipmentEvent> findSliceByStatusAfter(ShipmentStatus status, LocalDateTime occurredAt, Long id,
+                                                LocalDateTime to, Pageable pageable);
+
+    // When each shipment in the hot table was created and delivered, for rebuilding the delivery-time analytics.
+    // Deleted shipments drop out through the join. Must be consumed inside a transaction.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.jayanti.freight_tracker.dto.DeliveryInterval(s.createdAt, e.occurredAt) " +
+            "FROM ShipmentEvent e, Shipment s WHERE s.id = e.shipmentId AND e.status = :status " +
+            "AND s.createdAt IS NOT NULL")
+    Stream<DeliveryInterval> streamDeliveryIntervals(ShipmentStatus status);
+
+    // Same for shipments moved to the archive; deleted ones (deletedAt set) are left out
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.jayanti.freight_tracker.dto.DeliveryInterval(a.createdAt, e.occurredAt) " +
+            "FROM ShipmentEvent e, ArchivedShipment a WHERE a.id = e.shipmentId AND e.status = :status " +
+            "AND a.createdAt IS NOT NULL AND a.deletedAt IS NULL")
+    Stream<DeliveryInterval> streamArchivedDeliveryIntervals(ShipmentStatus status);
+}
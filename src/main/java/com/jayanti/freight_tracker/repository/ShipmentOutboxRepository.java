@@ -0,0 +1,46 @@
+package com.jayanti.freight_tracker.repository;
+
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ShipmentOutboxRepository extends JpaRepository<ShipmentOutboxEvent, Long> {
+
+    // FOR UPDATE SKIP LOCKED: several nodes can run the relay without publishing the same rows twice
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT e FROM ShipmentOutboxEvent e WHERE e.publishedAt IS NULL ORDER BY e.id")
+    List<ShipmentOutboxEvent> findUnpublished(Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE ShipmentOutboxEvent e SET e.publishedAt = :publishedAt WHERE e.id IN :ids")
+    int markPublished(Collection<Long> ids, LocalDateTime publishedAt);
+
+    @Modifying
+    @Query("DELETE FROM ShipmentOutboxEvent e WHERE e.publishedAt < :cutoff")
+    int deletePublishedBefore(LocalDateTime cutoff);
+
+    // Non-claiming read for ShipmentEventStream, which every node runs; position semantics as
+    // ShipmentRepository.findViewsChangedAfter
+    @Query("SELECT e FROM ShipmentOutboxEvent e WHERE e.changeVersion > :since " +
+            "OR (e.changeVersion = :since AND e.id > :afterId) ORDER BY e.changeVersion, e.id")
+    List<ShipmentOutboxEvent> findChangedAfter(long since, long afterId, Pageable pageable);
+
+    // 0 when there is none
+    @Query("SELECT COALESCE(MAX(e.changeVersion), 0) FROM ShipmentOutboxEvent e WHERE e.lastUpdatedTime < :before")
+    long findMaxChangeVersionBefore(LocalDateTime before);
+
+    List<ShipmentOutboxEvent> findByShipmentIdAndSequenceGreaterThanOrderBySequence(Long shipmentId, long sequence);
+}
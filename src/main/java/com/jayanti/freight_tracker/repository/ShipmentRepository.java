@@ -1,25 +1,203 @@
 package com.jayanti.freight_tracker.repository;
 
+import com.jayanti.freight_tracker.dto.KeyCount;
+import com.jayanti.freight_tracker.dto.OriginCount;
+import com.jayanti.freight_tracker.dto.PriorityCount;
+import com.jayanti.freight_tracker.dto.ShipmentStatusView;
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.dto.StatusCount;
 import com.jayanti.freight_tracker.model.Shipment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import com.jayanti.freight_tracker.model.ShipmentStatus;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 
 @Repository // this is a repository component - register it in application context
 //handle all database operations for Shipments
-public interface ShipmentRepository extends JpaRepository<Shipment, Long> {
+// Queries run as read-only transactions, so they can use the read replica; write and locking methods override it
+@Transactional(readOnly = true)
+public interface ShipmentRepository extends JpaRepository<Shipment, Long>, ShipmentRepositoryCustom {
 
-    Page<Shipment> findByStatus(ShipmentStatus status, Pageable pageable);
-    Page<Shipment> findByOriginIgnoreCase(String origin, Pageable pageable);
-    Page<Shipment> findByOriginIgnoreCaseAndStatus(String origin, ShipmentStatus status, Pageable pageable);
-    Page<Shipment> findAll(Pageable pageable);
+    Optional<Shipment> findByTrackingNumber(String trackingNumber);
     long countByStatus(ShipmentStatus status);
 
-    @Query("SELECT s.origin FROM Shipment s GROUP BY s.origin ORDER BY COUNT(s) DESC LIMIT 1")
-    String findMostCommonOrigin();
+    // Read side of list/search/export: rows go straight into a record, so nothing is added to the
+    // persistence context or snapshotted for dirty checking
+    String SELECT_VIEW = "SELECT new com.jayanti.freight_tracker.dto.ShipmentView(s.id, s.origin, s.destination, " +
+            "s.status, s.lastUpdatedTime, s.createdAt, s.trackingNumber, s.carrier, s.priority, s.version, s.changeVersion) FROM Shipment s ";
+
+    @Query(SELECT_VIEW + "ORDER BY s.id")
+    List<ShipmentView> findAllViews();
+
+    @Query(value = SELECT_VIEW, countQuery = "SELECT COUNT(s) FROM Shipment s")
+    Page<ShipmentView> findViews(Pageable pageable);
+
+    @Query(value = SELECT_VIEW + "WHERE s.status = :status",
+            countQuery = "SELECT COUNT(s) FROM Shipment s WHERE s.status = :status")
+    Page<ShipmentView> findViewsByStatus(ShipmentStatus status, Pageable pageable);
+
+    // origin filters go through the normalized key (see Shipment.normalizeOrigin) so they can use an index
+    @Query(value = SELECT_VIEW + "WHERE s.originKey = :originKey",
+            countQuery = "SELECT COUNT(s) FROM Shipment s WHERE s.originKey = :originKey")
+    Page<ShipmentView> findViewsByOriginKey(String originKey, Pageable pageable);
+
+    @Query(value = SELECT_VIEW + "WHERE s.originKey = :originKey AND s.status = :status",
+            countQuery = "SELECT COUNT(s) FROM Shipment s WHERE s.originKey = :originKey AND s.status = :status")
+    Page<ShipmentView> findViewsByOriginKeyAndStatus(String originKey, ShipmentStatus status, Pageable pageable);
+
+    // Keyset pagination: seek past the last (lastUpdatedTime, id) a client has seen, newest first.
+    // Returning Slice fetches one extra row to detect a next page instead of running a COUNT query.
+    @Query(SELECT_VIEW + "WHERE (s.lastUpdatedTime, s.id) < (:lastUpdatedTime, :id) " +
+            "ORDER BY s.lastUpdatedTime DESC, s.id DESC")
+    Slice<ShipmentView> findViewSliceBefore(LocalDateTime lastUpdatedTime, Long id, Pageable pageable);
+
+    @Query(SELECT_VIEW + "WHERE s.status = :status AND (s.lastUpdatedTime, s.id) < (:lastUpdatedTime, :id) " +
+            "ORDER BY s.lastUpdatedTime DESC, s.id DESC")
+    Slice<ShipmentView> findViewSliceByStatusBefore(ShipmentStatus status, LocalDateTime lastUpdatedTime, Long id,
+                                                    Pageable pageable);
+
+    @Query(SELECT_VIEW + "WHERE s.originKey = :originKey AND (s.lastUpdatedTime, s.id) < (:lastUpdatedTime, :id) " +
+            "ORDER BY s.lastUpdatedTime DESC, s.id DESC")
+    Slice<ShipmentView> findViewSliceByOriginBefore(String originKey, LocalDateTime lastUpdatedTime, Long id,
+                                                    Pageable pageable);
+
+    @Query(SELECT_VIEW + "WHERE s.originKey = :originKey AND s.status = :status " +
+            "AND (s.lastUpdatedTime, s.id) < (:lastUpdatedTime, :id) ORDER BY s.lastUpdatedTime DESC, s.id DESC")
+    Slice<ShipmentView> findViewSliceByOriginAndStatusBefore(String originKey, ShipmentStatus status,
+                                                             LocalDateTime lastUpdatedTime, Long id, Pageable pageable);
+
+    // Every status count in a single pass over the table
+    @Query("SELECT new com.jayanti.freight_tracker.dto.StatusCount(s.status, COUNT(s)) FROM Shipment s GROUP BY s.status")
+    List<StatusCount> countGroupedByStatus();
+
+    @Query("SELECT new com.jayanti.freight_tracker.dto.OriginCount(s.origin, COUNT(s)) FROM Shipment s GROUP BY s.origin")
+    List<OriginCount> countGroupedByOrigin();
+
+    // Rollups behind /stats/* (see ShipmentAnalytics.reconcile)
+    @Query("SELECT new com.jayanti.freight_tracker.dto.KeyCount(s.destination, COUNT(s)) FROM Shipment s GROUP BY s.destination")
+    List<KeyCount> countGroupedByDestination();
+
+    // the key must match ShipmentAnalytics.lane
+    @Query("SELECT new com.jayanti.freight_tracker.dto.KeyCount(CONCAT(s.origin, ' -> ', s.destination), COUNT(s)) " +
+            "FROM Shipment s WHERE s.origin IS NOT NULL AND s.destination IS NOT NULL GROUP BY s.origin, s.destination")
+    List<KeyCount> countGroupedByLane();
+
+    @Query("SELECT new com.jayanti.freight_tracker.dto.KeyCount(s.carrier, COUNT(s)) FROM Shipment s GROUP BY s.carrier")
+    List<KeyCount> countGroupedByCarrier();
+
+    @Query("SELECT new com.jayanti.freight_tracker.dto.PriorityCount(s.priority, COUNT(s)) FROM Shipment s GROUP BY s.priority")
+    List<PriorityCount> countGroupedByPriority();
+
+    // Forward-only cursor for exports: must be consumed inside a (read-only) transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_VIEW + "ORDER BY s.id")
+    Stream<ShipmentView> streamAllViews();
+
+    // Same, for the rows ActiveShipmentView holds
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SELECT_VIEW + "WHERE s.status IN :statuses ORDER BY s.id")
+    Stream<ShipmentView> streamViewsByStatusIn(Collection<ShipmentStatus> statuses);
+
+    @Query("SELECT new com.jayanti.freight_tracker.dto.ShipmentStatusView(s.id, s.trackingNumber, s.origin, s.status, " +
+            "s.version, s.createdAt) " +
+            "FROM Shipment s WHERE s.id = :id")
+    Optional<ShipmentStatusView> findStatusViewById(Long id);
+
+    @Query("SELECT new com.jayanti.freight_tracker.dto.ShipmentStatusView(s.id, s.trackingNumber, s.origin, s.status, " +
+            "s.version, s.createdAt) " +
+            "FROM Shipment s WHERE s.id IN :ids")
+    List<ShipmentStatusView> findStatusViewsByIdIn(Collection<Long> ids);
+
+    @Query("SELECT new com.jayanti.freight_tracker.dto.ShipmentStatusView(s.id, s.trackingNumber, s.origin, s.status, " +
+            "s.version, s.createdAt) " +
+            "FROM Shipment s WHERE s.trackingNumber IN :trackingNumbers")
+    List<ShipmentStatusView> findStatusViewsByTrackingNumberIn(Collection<String> trackingNumbers);
+
+    // Status-only write without loading the entity; matches nothing if someone else wrote since `version` was read
+    @Modifying
+    @Transactional
+    @Query("UPDATE Shipment s SET s.status = :status, s.lastUpdatedTime = :lastUpdatedTime, s.version = s.version + 1, " +
+            "s.changeVersion = :changeVersion WHERE s.id = :id AND s.version = :version")
+    int updateStatusIfVersion(Long id, long version, ShipmentStatus status, LocalDateTime lastUpdatedTime,
+                              long changeVersion);
+
+    // Rows changed after the (changeVersion, id) position, in change order; use limit + 1 to detect more
+    @Query(SELECT_VIEW + "WHERE s.changeVersion > :since OR (s.changeVersion = :since AND s.id > :afterId) " +
+            "ORDER BY s.changeVersion, s.id")
+    List<ShipmentView> findViewsChangedAfter(long since, long afterId, Pageable pageable);
+
+    @Query(SELECT_VIEW + "WHERE s.id = :id")
+    Optional<ShipmentView> findViewById(Long id);
+
+    // Read off the end of idx_shipment_change_version; 0 when empty
+    @Query("SELECT COALESCE(MAX(s.changeVersion), 0) FROM Shipment s")
+    long findMaxChangeVersion();
+
+    // Same, among rows last written before `before`; walks the index back past the newer ones
+    @Query("SELECT COALESCE(MAX(s.changeVersion), 0) FROM Shipment s WHERE s.lastUpdatedTime < :before")
+    long findMaxChangeVersionBefore(LocalDateTime before);
+
+    @Query("SELECT s.trackingNumber FROM Shipment s WHERE s.trackingNumber IN :trackingNumbers")
+    Set<String> findExistingTrackingNumbers(Collection<String> trackingNumbers);
+
+    // Row lock held until commit, so no concurrent write lands between copying a row and deleting it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional
+    @Query("SELECT s FROM Shipment s WHERE s.id = :id")
+    Optional<Shipment> findLockedById(Long id);
+
+    // Next batch for ShipmentArchiver; SKIP LOCKED passes over rows a writer holds, they go in a later run
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT s FROM Shipment s WHERE s.status IN :statuses AND s.lastUpdatedTime < :cutoff ORDER BY s.id")
+    List<Shipment> findArchivable(Collection<ShipmentStatus> statuses, LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("INSERT INTO ArchivedShipment (id, origin, originKey, destination, status, lastUpdatedTime, createdAt, " +
+            "trackingNumber, carrier, priority, version, changeVersion, deletedAt, archivedAt) " +
+            "SELECT s.id, s.origin, s.originKey, s.destination, s.status, s.lastUpdatedTime, s.createdAt, " +
+            "s.trackingNumber, s.carrier, s.priority, s.version, s.changeVersion, :deletedAt, :archivedAt " +
+            "FROM Shipment s WHERE s.id IN :ids")
+    int copyToArchive(Collection<Long> ids, LocalDateTime archivedAt, LocalDateTime deletedAt);
+
+    // Rows written before originKey existed; see OriginKeyBackfill
+    @Query("SELECT DISTINCT s.origin FROM Shipment s WHERE s.originKey IS NULL AND s.origin IS NOT NULL")
+    List<String> findOriginsWithoutKey();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Shipment s SET s.originKey = :originKey WHERE s.origin = :origin AND s.originKey IS NULL")
+    int fillOriginKey(String origin, String originKey);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Shipment s WHERE s.id IN :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    // Moves rows into shipment_archive within the caller's transaction; lock them first (findLockedById,
+    // findArchivable). deletedAt is null when archiving and set for a soft delete.
+    @Transactional
+    default int moveToArchive(Collection<Long> ids, LocalDateTime archivedAt, LocalDateTime deletedAt) {
+        copyToArchive(ids, archivedAt, deletedAt);
+        return deleteAllByIdIn(ids);
+    }
 }
@@ -0,0 +1,26 @@
+package com.jayanti.freight_tracker.repository;
+
+import com.jayanti.freight_tracker.dto.ShipmentField;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+// Sparse-fieldset searches (?fields=): the SELECT list is built per request, so it cannot be a @Query
+public interface ShipmentRepositoryCustom {
+
+    // Next value of the change-version sequence; call inside the write transaction it stamps
+    long nextChangeVersion();
+
+    // Same filters as the findViewsBy* queries; a null originKey or status means no filter
+    Page<Map<String, Object>> findFields(Set<ShipmentField> fields, String originKey, ShipmentStatus status,
+                                         Pageable pageable);
+
+    // Keyset variant of findFields, newest first, like findViewSliceBefore
+    Slice<Map<String, Object>> findFieldsBefore(Set<ShipmentField> fields, String originKey, ShipmentStatus status,
+                                                LocalDateTime lastUpdatedTime, Long id, int limit);
+}
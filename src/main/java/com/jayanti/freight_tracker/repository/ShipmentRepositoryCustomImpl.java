@@ -0,0 +1,142 @@
+package com.jayanti.freight_tracker.repository;
+
+import com.jayanti.freight_tracker.dto.ShipmentField;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ShipmentRepositoryCustomImpl implements ShipmentRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // dialect-specific "next value" statement, resolved on first use
+    private volatile String nextChangeVersionSql;
+
+    @Override
+    @Transactional
+    public long nextChangeVersion() {
+        if (nextChangeVersionSql == null) {
+            Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect();
+            nextChangeVersionSql = dialect.getSequenceSupport().getSequenceNextValString(Shipment.CHANGE_VERSION_SEQUENCE);
+        }
+        // reads no table, so skip the auto-flush a native query would otherwise trigger mid-update
+        return ((Number) entityManager.createNativeQuery(nextChangeVersionSql)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getSingleResult()).longValue();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Map<String, Object>> findFields(Set<ShipmentField> fields, String originKey, ShipmentStatus status,
+                                                Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Shipment> s = query.from(Shipment.class);
+        query.multiselect(selection(s, fields))
+                .where(filters(cb, s, originKey, status).toArray(Predicate[]::new))
+                .orderBy(QueryUtils.toOrders(pageable.getSort(), s, cb));
+
+        TypedQuery<Tuple> typed = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typed.setFirstResult(Math.toIntExact(pageable.getOffset()));
+            typed.setMaxResults(pageable.getPageSize());
+        }
+        List<Map<String, Object>> rows = toRows(typed.getResultList(), fields);
+        // skips the COUNT when the first page is already short, like the derived queries do
+        return PageableExecutionUtils.getPage(rows, pageable, () -> count(originKey, status));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> findFieldsBefore(Set<ShipmentField> fields, String originKey, ShipmentStatus status,
+                                                       LocalDateTime lastUpdatedTime, Long id, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Shipment> s = query.from(Shipment.class);
+        Path<LocalDateTime> time = s.get("lastUpdatedTime");
+        Path<Long> shipmentId = s.get("id");
+
+        // (lastUpdatedTime, id) < (:lastUpdatedTime, :id) spelled out, as criteria has no row-value comparison;
+        // the leading <= keeps it a range scan on idx_shipment_updated_id
+        List<Predicate> where = filters(cb, s, originKey, status);
+        where.add(cb.lessThanOrEqualTo(time, lastUpdatedTime));
+        where.add(cb.or(cb.lessThan(time, lastUpdatedTime), cb.lessThan(shipmentId, id)));
+        query.multiselect(selection(s, fields))
+                .where(where.toArray(Predicate[]::new))
+                .orderBy(cb.desc(time), cb.desc(shipmentId));
+
+        // one extra row tells whether there is a next page, without a COUNT
+        List<Tuple> result = entityManager.createQuery(query).setMaxResults(limit + 1).getResultList();
+        boolean hasNext = result.size() > limit;
+        List<Map<String, Object>> rows = toRows(hasNext ? result.subList(0, limit) : result, fields);
+        return new SliceImpl<>(rows, PageRequest.of(0, limit), hasNext);
+    }
+
+    private long count(String originKey, ShipmentStatus status) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Shipment> s = query.from(Shipment.class);
+        query.select(cb.count(s)).where(filters(cb, s, originKey, status).toArray(Predicate[]::new));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static List<Predicate> filters(CriteriaBuilder cb, Root<Shipment> s, String originKey, ShipmentStatus status) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (originKey != null) {
+            predicates.add(cb.equal(s.get("originKey"), originKey));
+        }
+        if (status != null) {
+            predicates.add(cb.equal(s.get("status"), status));
+        }
+        return predicates;
+    }
+
+    private static List<Selection<?>> selection(Root<Shipment> s, Set<ShipmentField> fields) {
+        List<Selection<?>> selection = new ArrayList<>(fields.size());
+        for (ShipmentField field : fields) {
+            selection.add(s.get(field.getProperty()).alias(field.getProperty()));
+        }
+        return selection;
+    }
+
+    private static List<Map<String, Object>> toRows(List<Tuple> tuples, Set<ShipmentField> fields) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (ShipmentField field : fields) {
+                row.put(field.getProperty(), tuple.get(field.getProperty()));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
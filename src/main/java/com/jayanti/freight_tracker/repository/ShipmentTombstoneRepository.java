@@ -0,0 +1,36 @@
+package com.jayanti.freight_tracker.repository;
+
+import com.jayanti.freight_tracker.model.ShipmentTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Transactional(readOnly = true)
+public interface ShipmentTombstoneRepository extends JpaRepository<ShipmentTombstone, Long> {
+
+    // Same position semantics as ShipmentRepository.findViewsChangedAfter
+    @Query("SELECT t FROM ShipmentTombstone t WHERE t.changeVersion > :since " +
+            "OR (t.changeVersion = :since AND t.shipmentId > :afterId) ORDER BY t.changeVersion, t.shipmentId")
+    List<ShipmentTombstone> findChangedAfter(long since, long afterId, Pageable pageable);
+
+    // One per shipment about to be archived, in the archiver's transaction before the rows are moved
+    @Modifying
+    @Transactional
+    @Query("INSERT INTO ShipmentTombstone (shipmentId, trackingNumber, changeVersion, deletedAt, archived) " +
+            "SELECT s.id, s.trackingNumber, :changeVersion, :archivedAt, true FROM Shipment s WHERE s.id IN :ids")
+    int insertArchived(Collection<Long> ids, long changeVersion, LocalDateTime archivedAt);
+
+    @Query("SELECT COALESCE(MAX(t.changeVersion), 0) FROM ShipmentTombstone t")
+    long findMaxChangeVersion();
+
+    @Query("SELECT COALESCE(MAX(t.changeVersion), 0) FROM ShipmentTombstone t WHERE t.deletedAt < :before")
+    long findMaxChangeVersionBefore(LocalDateTime before);
+}
@@ -0,0 +1,655 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.config.SchedulingConfig;
+import com.jayanti.freight_tracker.dto.ShipmentCursor;
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.model.Priority;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import com.jayanti.freight_tracker.util.LongIntMap;
+import com.jayanti.freight_tracker.util.ReplicaRouting;
+import com.jayanti.freight_tracker.util.SlotBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Read model of the active (PENDING and IN_TRANSIT) shipments, which answers /search and /search/cursor for
+ * those statuses without a database query. Kept up to date by the write paths in {@link ShipmentServiceImpl}
+ * like {@link ShipmentSearchIndex}, and rebuilt from the shipment table at startup and every rebuild-interval.
+ *
+ * Rows are stored column by column in primitive arrays: strings once each in a dictionary, tracking numbers
+ * as UTF-8 in one byte array, and the status, origin, carrier and priority indexes as {@link SlotBitmap}s over
+ * row slots. A shipment costs around 100 bytes and no objects of its own, so a few million of them are a few
+ * hundred MB in a handful of long-lived arrays the garbage collector barely has to look at.
+ *
+ * Reads do not lock: a query runs under {@link StampedLock#tryOptimisticRead} and is only repeated under the
+ * read lock if a write overlapped it. Writes are serialized and carry the shipment's version, so a late write
+ * never overwrites a newer one, and writes made during a rebuild are replayed onto the rebuilt view.
+ */
+@Component
+public class ActiveShipmentView {
+
+    private static final Set<ShipmentStatus> ACTIVE = EnumSet.of(ShipmentStatus.PENDING, ShipmentStatus.IN_TRANSIT);
+
+    // anything else (e.g. ?sort=trackingNumber) is left to the database
+    private static final Set<String> SORTABLE = Set.of("id", "lastUpdatedTime", "createdAt", "version", "changeVersion");
+
+    // /search/cursor order, also used for /search without ?sort
+    private static final Sort.Order NEWEST_FIRST = Sort.Order.desc("lastUpdatedTime");
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentChangeClock changeClock;
+
+    @Value("${freight.active-view.enabled:true}")
+    private boolean enabled = true;
+
+    private volatile Columns columns = new Columns();
+
+    // false until the first rebuild has loaded the table; until then every query goes to the database
+    private volatile boolean ready;
+
+    // writes made while a rebuild streams the table, replayed onto the new columns before they replace the old
+    private List<Consumer<Columns>> replay;
+
+    // not a monitor: the rebuild holds it across the JDBC stream, which would pin a virtual thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // Whether find can answer a search with these parameters
+    public boolean canServe(ShipmentStatus status, Sort sort) {
+        if (!ready || status == null || !ACTIVE.contains(status)) {
+            return false;
+        }
+        List<Sort.Order> orders = sort.toList();
+        return orders.isEmpty() || (orders.size() == 1 && SORTABLE.contains(orders.get(0).getProperty()));
+    }
+
+    /**
+     * Active shipments matching every non-null filter, in the order of {@code pageable}'s sort (newest first
+     * if unsorted), ties broken by id in the same direction.
+     *
+     * @param status    PENDING or IN_TRANSIT, or null for both.
+     * @param originKey Normalized origin, see {@link Shipment#normalizeOrigin}.
+     */
+    public Page<ShipmentView> find(ShipmentStatus status, String originKey, String carrier, Priority priority,
+                                   Pageable pageable) {
+        Sort.Order order = pageable.getSort().isSorted() ? pageable.getSort().toList().get(0) : NEWEST_FIRST;
+        Filter filter = new Filter(status, originKey, carrier, priority, null);
+        int offset = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE) : 0;
+        int limit = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        Columns current = columns;
+        Selection selection = current.read(() -> current.select(filter, order, offset, limit));
+        return new PageImpl<>(selection.rows(), pageable, selection.matched());
+    }
+
+    // Keyset form of find for /search/cursor: the rows after the cursor, newest first
+    public Slice<ShipmentView> findAfter(ShipmentStatus status, String originKey, ShipmentCursor after, int size) {
+        Filter filter = new Filter(status, originKey, null, null, after);
+        Columns current = columns;
+        // one extra row tells whether there is a next page
+        Selection selection = current.read(() -> current.select(filter, NEWEST_FIRST, 0, size + 1));
+        List<ShipmentView> rows = selection.rows();
+        return new SliceImpl<>(rows.subList(0, Math.min(size, rows.size())), PageRequest.of(0, size),
+                rows.size() > size);
+    }
+
+    public void recordCreated(Shipment shipment) {
+        apply(columns -> columns.put(view(shipment)));
+    }
+
+    public void recordUpdated(Shipment shipment) {
+        apply(columns -> columns.put(view(shipment)));
+    }
+
+    // A change read back from the database, see ShipmentChangeFollower
+    public void recordChanged(ShipmentView view) {
+        apply(columns -> columns.put(view));
+    }
+
+    // Status fast path: a final status removes the shipment from the view
+    public void recordStatusChanged(Long id, ShipmentStatus status, LocalDateTime lastUpdatedTime, long version,
+                                    long changeVersion) {
+        if (ready && ACTIVE.contains(status) && !contains(id)) {
+            // a shipment the view has not seen, e.g. created on another node and not followed yet: the status
+            // alone does not make a row, so load the whole one (the write has committed)
+            ReplicaRouting.onPrimary(() -> shipmentRepository.findViewById(id)).ifPresent(this::recordChanged);
+            return;
+        }
+        apply(columns -> columns.setStatus(id, status, lastUpdatedTime, version, changeVersion));
+    }
+
+    // deleted or archived
+    public void recordDeleted(Long id) {
+        apply(columns -> columns.remove(id));
+    }
+
+    public int size() {
+        return columns.live.cardinality();
+    }
+
+    // Runs once at startup and then on a fixed delay
+    @Scheduled(fixedDelayString = "${freight.active-view.rebuild-interval:PT1H}",
+            scheduler = SchedulingConfig.LONG_JOBS)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        // one rebuild at a time (the schedule and a manual call), without holding up writers meanwhile
+        rebuildLock.lock();
+        try {
+            synchronized (this) {
+                replay = new ArrayList<>();
+            }
+            Columns fresh = new Columns();
+            // the replay below only covers writes recorded from here on, so the stream must not miss earlier
+            // ones the way a lagging replica could
+            try (Stream<ShipmentView> views =
+                         ReplicaRouting.onPrimary(() -> shipmentRepository.streamViewsByStatusIn(ACTIVE))) {
+                views.forEach(fresh::put);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    replay = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                // versions make this safe for writes the stream already saw
+                replay.forEach(write -> write.accept(fresh));
+                replay = null;
+                columns = fresh;
+                ready = true;
+            }
+            changeClock.tick();
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private synchronized boolean contains(long id) {
+        return columns.slotsById.get(id) >= 0;
+    }
+
+    private synchronized void apply(Consumer<Columns> write) {
+        if (!enabled) {
+            return;
+        }
+        write.accept(columns);
+        if (replay != null) {
+            replay.add(write);
+        }
+    }
+
+    private static ShipmentView view(Shipment shipment) {
+        return new ShipmentView(shipment.getId(), shipment.getOrigin(), shipment.getDestination(), shipment.getStatus(),
+                shipment.getLastUpdatedTime(), shipment.getCreatedAt(), shipment.getTrackingNumber(),
+                shipment.getCarrier(), shipment.getPriority(), shipment.getVersion(), shipment.getChangeVersion());
+    }
+
+    // after is only set for the keyset form, which always sorts newest first
+    private record Filter(ShipmentStatus status, String originKey, String carrier, Priority priority,
+                          ShipmentCursor after) {
+    }
+
+    private record Selection(List<ShipmentView> rows, int matched) {
+        static final Selection EMPTY = new Selection(List.of(), 0);
+    }
+
+    private static final class Columns {
+
+        private static final ShipmentStatus[] STATUSES = ShipmentStatus.values();
+        private static final Priority[] PRIORITIES = Priority.values();
+        private static final int INITIAL_SLOTS = 1024;
+        private static final long NULL_TIME = Long.MIN_VALUE;
+
+        private final StampedLock lock = new StampedLock();
+
+        // one entry per slot; a slot is live when it is in `live`, and freed slots are reused
+        private long[] ids = new long[INITIAL_SLOTS];
+        // offset << 32 | length into trackingBytes
+        private long[] trackingNumbers = new long[INITIAL_SLOTS];
+        // dictionary codes, -1 for null
+        private int[] origins = new int[INITIAL_SLOTS];
+        private int[] originKeys = new int[INITIAL_SLOTS];
+        private int[] destinations = new int[INITIAL_SLOTS];
+        private int[] carriers = new int[INITIAL_SLOTS];
+        // ordinals, -1 for a null priority
+        private byte[] statuses = new byte[INITIAL_SLOTS];
+        private byte[] priorities = new byte[INITIAL_SLOTS];
+        // epoch microseconds (UTC), the precision the database keeps
+        private long[] lastUpdatedTimes = new long[INITIAL_SLOTS];
+        private long[] createdAts = new long[INITIAL_SLOTS];
+        private long[] versions = new long[INITIAL_SLOTS];
+        private long[] changeVersions = new long[INITIAL_SLOTS];
+        private int slotCount;
+        private int[] freeSlots = new int[64];
+        private int freeCount;
+        // only read by writers
+        private final LongIntMap slotsById = new LongIntMap();
+
+        // tracking numbers are unique, so they are appended here instead of going through the dictionary;
+        // space left behind by updates and removals is reclaimed when the array next has to grow
+        private byte[] trackingBytes = new byte[INITIAL_SLOTS * 16];
+        private int trackingEnd;
+        private int trackingGarbage;
+
+        // origins, originKeys, destinations and carriers share one dictionary; it only grows until a rebuild
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private String[] strings = new String[64];
+        private int stringCount;
+
+        private final SlotBitmap live = new SlotBitmap();
+        private final SlotBitmap[] byStatus = new SlotBitmap[STATUSES.length];
+        private final SlotBitmap[] byPriority = new SlotBitmap[PRIORITIES.length];
+        // by dictionary code of the originKey / carrier
+        private SlotBitmap[] byOriginKey = new SlotBitmap[64];
+        private SlotBitmap[] byCarrier = new SlotBitmap[64];
+
+        Columns() {
+            Arrays.setAll(byStatus, i -> new SlotBitmap());
+            Arrays.setAll(byPriority, i -> new SlotBitmap());
+        }
+
+        // Runs a query without locking, and again under the read lock if a write overlapped it
+        <T> T read(Supplier<T> query) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    T result = query.get();
+                    if (lock.validate(stamp)) {
+                        return result;
+                    }
+                } catch (IndexOutOfBoundsException | IllegalStateException e) {
+                    // what a torn read of arrays a writer was changing throws (see string and SlotBitmap); retried
+                    // below, but if no write overlapped this is a bug, and retrying would only hide where it was
+                    if (lock.validate(stamp)) {
+                        throw e;
+                    }
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return query.get();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        Selection select(Filter filter, Sort.Order order, int offset, int limit) {
+            // walk the smallest bitmap and probe the others
+            List<SlotBitmap> bitmaps = new ArrayList<>(4);
+            bitmaps.add(filter.status() == null ? live : byStatus[filter.status().ordinal()]);
+            if (filter.originKey() != null) {
+                bitmaps.add(lookup(byOriginKey, filter.originKey()));
+            }
+            if (filter.carrier() != null) {
+                bitmaps.add(lookup(byCarrier, filter.carrier()));
+            }
+            if (filter.priority() != null) {
+                bitmaps.add(byPriority[filter.priority().ordinal()]);
+            }
+            if (bitmaps.contains(null)) {
+                return Selection.EMPTY;
+            }
+            bitmaps.sort(Comparator.comparingInt(SlotBitmap::cardinality));
+            SlotBitmap driver = bitmaps.get(0);
+            List<SlotBitmap> others = bitmaps.subList(1, bitmaps.size());
+
+            long afterTime = filter.after() == null ? 0 : micros(filter.after().lastUpdatedTime());
+            long afterId = filter.after() == null ? 0 : filter.after().id();
+            long[] keys = column(order.getProperty());
+            TopK top = new TopK((int) Math.min((long) offset + limit, driver.cardinality()), keys, ids,
+                    order.isAscending());
+            int[] matched = {0};
+            driver.forEach(slot -> {
+                for (SlotBitmap other : others) {
+                    if (!other.contains(slot)) {
+                        return;
+                    }
+                }
+                if (filter.after() != null && (lastUpdatedTimes[slot] > afterTime
+                        || (lastUpdatedTimes[slot] == afterTime && ids[slot] >= afterId))) {
+                    return;
+                }
+                matched[0]++;
+                top.offer(slot);
+            });
+
+            int[] slots = top.sorted();
+            List<ShipmentView> rows = new ArrayList<>(Math.max(0, slots.length - offset));
+            for (int i = offset; i < slots.length; i++) {
+                rows.add(view(slots[i]));
+            }
+            return new Selection(rows, matched[0]);
+        }
+
+        void put(ShipmentView view) {
+            if (!ACTIVE.contains(view.status())) {
+                remove(view.id());
+                return;
+            }
+            int slot = slotsById.get(view.id());
+            if (slot >= 0 && versions[slot] >= view.version()) {
+                return;
+            }
+            long stamp = lock.writeLock();
+            try {
+                if (slot >= 0) {
+                    unindex(slot);
+                    trackingGarbage += (int) trackingNumbers[slot];
+                } else {
+                    slot = allocateSlot();
+                    slotsById.put(view.id(), slot);
+                }
+                ids[slot] = view.id();
+                trackingNumbers[slot] = appendTrackingNumber(view.trackingNumber());
+                origins[slot] = code(view.origin());
+                originKeys[slot] = code(Shipment.normalizeOrigin(view.origin()));
+                destinations[slot] = code(view.destination());
+                carriers[slot] = code(view.carrier());
+                statuses[slot] = (byte) view.status().ordinal();
+                priorities[slot] = (byte) (view.priority() == null ? -1 : view.priority().ordinal());
+                lastUpdatedTimes[slot] = micros(view.lastUpdatedTime());
+                createdAts[slot] = micros(view.createdAt());
+                versions[slot] = view.version();
+                changeVersions[slot] = view.changeVersion();
+                index(slot);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void setStatus(long id, ShipmentStatus status, LocalDateTime lastUpdatedTime, long version, long changeVersion) {
+            if (!ACTIVE.contains(status)) {
+                remove(id);
+                return;
+            }
+            // not in the view: recordStatusChanged loads those whole, so this only skips an older write
+            int slot = slotsById.get(id);
+            if (slot < 0 || versions[slot] >= version) {
+                return;
+            }
+            long stamp = lock.writeLock();
+            try {
+                byStatus[statuses[slot]].remove(slot);
+                statuses[slot] = (byte) status.ordinal();
+                byStatus[statuses[slot]].add(slot);
+                lastUpdatedTimes[slot] = micros(lastUpdatedTime);
+                versions[slot] = version;
+                changeVersions[slot] = changeVersion;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void remove(long id) {
+            int slot = slotsById.remove(id);
+            if (slot < 0) {
+                return;
+            }
+            long stamp = lock.writeLock();
+            try {
+                unindex(slot);
+                trackingGarbage += (int) trackingNumbers[slot];
+                if (freeCount == freeSlots.length) {
+                    freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+                }
+                freeSlots[freeCount++] = slot;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void index(int slot) {
+            live.add(slot);
+            byStatus[statuses[slot]].add(slot);
+            if (priorities[slot] >= 0) {
+                byPriority[priorities[slot]].add(slot);
+            }
+            if (originKeys[slot] >= 0) {
+                byOriginKey[originKeys[slot]].add(slot);
+            }
+            if (carriers[slot] >= 0) {
+                byCarrier[carriers[slot]].add(slot);
+            }
+        }
+
+        private void unindex(int slot) {
+            live.remove(slot);
+            byStatus[statuses[slot]].remove(slot);
+            if (priorities[slot] >= 0) {
+                byPriority[priorities[slot]].remove(slot);
+            }
+            if (originKeys[slot] >= 0) {
+                byOriginKey[originKeys[slot]].remove(slot);
+            }
+            if (carriers[slot] >= 0) {
+                byCarrier[carriers[slot]].remove(slot);
+            }
+        }
+
+        private int allocateSlot() {
+            if (freeCount > 0) {
+                return freeSlots[--freeCount];
+            }
+            if (slotCount == ids.length) {
+                int length = ids.length * 2;
+                ids = Arrays.copyOf(ids, length);
+                trackingNumbers = Arrays.copyOf(trackingNumbers, length);
+                origins = Arrays.copyOf(origins, length);
+                originKeys = Arrays.copyOf(originKeys, length);
+                destinations = Arrays.copyOf(destinations, length);
+                carriers = Arrays.copyOf(carriers, length);
+                statuses = Arrays.copyOf(statuses, length);
+                priorities = Arrays.copyOf(priorities, length);
+                lastUpdatedTimes = Arrays.copyOf(lastUpdatedTimes, length);
+                createdAts = Arrays.copyOf(createdAts, length);
+                versions = Arrays.copyOf(versions, length);
+                changeVersions = Arrays.copyOf(changeVersions, length);
+            }
+            return slotCount++;
+        }
+
+        private int code(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (stringCount == strings.length) {
+                strings = Arrays.copyOf(strings, stringCount * 2);
+                byOriginKey = Arrays.copyOf(byOriginKey, stringCount * 2);
+                byCarrier = Arrays.copyOf(byCarrier, stringCount * 2);
+            }
+            strings[stringCount] = value;
+            byOriginKey[stringCount] = new SlotBitmap();
+            byCarrier[stringCount] = new SlotBitmap();
+            codes.put(value, stringCount);
+            return stringCount++;
+        }
+
+        private SlotBitmap lookup(SlotBitmap[] index, String value) {
+            Integer code = codes.get(value);
+            return code == null || code >= index.length ? null : index[code];
+        }
+
+        private long appendTrackingNumber(String trackingNumber) {
+            byte[] bytes = trackingNumber.getBytes(StandardCharsets.UTF_8);
+            if (trackingEnd + bytes.length > trackingBytes.length) {
+                compactTrackingNumbers(bytes.length);
+            }
+            long ref = (long) trackingEnd << 32 | bytes.length;
+            System.arraycopy(bytes, 0, trackingBytes, trackingEnd, bytes.length);
+            trackingEnd += bytes.length;
+            return ref;
+        }
+
+        // Copies the live tracking numbers into a new array, doubled unless dropping the garbage makes room
+        private void compactTrackingNumbers(int needed) {
+            int liveBytes = trackingEnd - trackingGarbage;
+            int length = trackingBytes.length;
+            while (liveBytes + needed > length / 2) {
+                length *= 2;
+            }
+            byte[] compacted = new byte[length];
+            int end = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (live.contains(slot)) {
+                    int tnLength = (int) trackingNumbers[slot];
+                    System.arraycopy(trackingBytes, (int) (trackingNumbers[slot] >>> 32), compacted, end, tnLength);
+                    trackingNumbers[slot] = (long) end << 32 | tnLength;
+                    end += tnLength;
+                }
+            }
+            trackingBytes = compacted;
+            trackingEnd = end;
+            trackingGarbage = 0;
+        }
+
+        private long[] column(String property) {
+            return switch (property) {
+                case "id" -> ids;
+                case "createdAt" -> createdAts;
+                case "version" -> versions;
+                case "changeVersion" -> changeVersions;
+                default -> lastUpdatedTimes;
+            };
+        }
+
+        private ShipmentView view(int slot) {
+            long trackingNumber = trackingNumbers[slot];
+            return new ShipmentView(ids[slot], string(origins[slot]), string(destinations[slot]),
+                    STATUSES[statuses[slot]], time(lastUpdatedTimes[slot]), time(createdAts[slot]),
+                    new String(trackingBytes, (int) (trackingNumber >>> 32), (int) trackingNumber, StandardCharsets.UTF_8),
+                    string(carriers[slot]), priorities[slot] < 0 ? null : PRIORITIES[priorities[slot]],
+                    versions[slot], changeVersions[slot]);
+        }
+
+        private String string(int code) {
+            if (code < 0) {
+                return null;
+            }
+            String value = strings[code];
+            if (value == null) {
+                // a code read before the dictionary entry it names
+                throw new IllegalStateException("No dictionary entry for code " + code);
+            }
+            return value;
+        }
+
+        private static long micros(LocalDateTime time) {
+            return time == null ? NULL_TIME : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+        }
+
+        private static LocalDateTime time(long micros) {
+            return micros == NULL_TIME ? null : LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000),
+                    (int) Math.floorMod(micros, 1_000_000) * 1_000, ZoneOffset.UTC);
+        }
+    }
+
+    // The first `capacity` slots in (key, id) order, kept in a heap whose root is the last of them
+    private static final class TopK {
+
+        private final int[] heap;
+        private final long[] keys;
+        private final long[] ids;
+        private final boolean ascending;
+        private int size;
+
+        TopK(int capacity, long[] keys, long[] ids, boolean ascending) {
+            this.heap = new int[Math.max(0, capacity)];
+            this.keys = keys;
+            this.ids = ids;
+            this.ascending = ascending;
+        }
+
+        void offer(int slot) {
+            if (size < heap.length) {
+                heap[size] = slot;
+                siftUp(size++);
+            } else if (size > 0 && precedes(slot, heap[0])) {
+                heap[0] = slot;
+                siftDown(0, size);
+            }
+        }
+
+        // heap sort in place: repeatedly moving the root (the last) to the end leaves the slots in order
+        int[] sorted() {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            return Arrays.copyOf(heap, size);
+        }
+
+        private boolean precedes(int a, int b) {
+            if (keys[a] != keys[b]) {
+                return ascending ? keys[a] < keys[b] : keys[a] > keys[b];
+            }
+            return ascending ? ids[a] < ids[b] : ids[a] > ids[b];
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!precedes(heap[parent], heap[i])) {
+                    return;
+                }
+                swap(parent, i);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i, int end) {
+            while (2 * i + 1 < end) {
+                int child = 2 * i + 1;
+                if (child + 1 < end && precedes(heap[child], heap[child + 1])) {
+                    child++;
+                }
+                if (!precedes(heap[i], heap[child])) {
+                    return;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int slot = heap[a];
+            heap[a] = heap[b];
+            heap[b] = slot;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.websocket.ShipmentStatusBroadcaster;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Tells when the service is close to saturation, so RateLimitInterceptor can turn away writes and polling
+ * with 429 before they queue up: when requests are already waiting for a JDBC connection, or when the
+ * WebSocket broadcast queue is nearly full and the outbox relay is about to hold events back.
+ */
+@Component
+public class LoadShedder {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ShipmentStatusBroadcaster broadcaster;
+
+    // requests waiting for a pooled connection; each one is already delayed up to connection-timeout
+    @Value("${freight.shedding.max-waiting-for-connection:10}")
+    private int maxWaitingForConnection;
+
+    // fraction of freight.broadcast.max-pending
+    @Value("${freight.shedding.broadcast-queue-threshold:0.9}")
+    private double broadcastQueueThreshold;
+
+    // null when the pool is not Hikari; then only the broadcast queue is checked
+    private HikariDataSource hikari;
+
+    @PostConstruct
+    void init() throws SQLException {
+        if (dataSource.isWrapperFor(HikariDataSource.class)) {
+            hikari = dataSource.unwrap(HikariDataSource.class);
+        }
+    }
+
+    public boolean isOverloaded() {
+        return isDatabaseSaturated() || isBroadcastSaturated();
+    }
+
+    private boolean isDatabaseSaturated() {
+        // null until the pool has started
+        HikariPoolMXBean pool = hikari == null ? null : hikari.getHikariPoolMXBean();
+        return pool != null && pool.getThreadsAwaitingConnection() >= maxWaitingForConnection;
+    }
+
+    private boolean isBroadcastSaturated() {
+        return broadcaster.getPendingCount() >= broadcaster.getMaxPending() * broadcastQueueThreshold;
+    }
+}
@@ -0,0 +1,49 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.repository.ArchivedShipmentRepository;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import com.jayanti.freight_tracker.util.ReplicaRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills in originKey on rows written before the column existed, in the hot table and the archive, so origin
+ * searches (which only match on the key) do not silently miss them. Runs once at startup, one UPDATE per distinct
+ * origin still missing its key, with the key from {@link Shipment#normalizeOrigin} so it matches what new writes
+ * store. Once every row has a key the check is a single lookup on the originKey indexes. Another node doing the
+ * same at the same time only finds fewer rows left to fill.
+ */
+@Component
+public class OriginKeyBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(OriginKeyBackfill.class);
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ArchivedShipmentRepository archiveRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        // a lagging replica would hide rows that still need a key until the next restart
+        ReplicaRouting.onPrimary(() -> {
+            int filled = 0;
+            for (String origin : shipmentRepository.findOriginsWithoutKey()) {
+                filled += shipmentRepository.fillOriginKey(origin, Shipment.normalizeOrigin(origin));
+            }
+            for (String origin : archiveRepository.findOriginsWithoutKey()) {
+                filled += archiveRepository.fillOriginKey(origin, Shipment.normalizeOrigin(origin));
+            }
+            if (filled > 0) {
+                log.info("Filled in originKey on {} shipments written before it existed", filled);
+            }
+            return null;
+        });
+    }
+}
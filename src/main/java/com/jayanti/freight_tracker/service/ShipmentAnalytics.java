@@ -0,0 +1,265 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.config.SchedulingConfig;
+import com.jayanti.freight_tracker.dto.DeliveryInterval;
+import com.jayanti.freight_tracker.dto.DeliveryTimeStats;
+import com.jayanti.freight_tracker.dto.HeavyHitter;
+import com.jayanti.freight_tracker.dto.KeyCount;
+import com.jayanti.freight_tracker.dto.PriorityCount;
+import com.jayanti.freight_tracker.dto.ShipmentStatusView;
+import com.jayanti.freight_tracker.model.Priority;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentEventRepository;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import com.jayanti.freight_tracker.util.DurationHistogram;
+import com.jayanti.freight_tracker.util.SpaceSavingSketch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * In-memory rollups behind /api/shipments/stats/*, kept up to date by the write paths in
+ * {@link ShipmentServiceImpl} the same way as {@link ShipmentStatsSnapshot}:
+ * <ul>
+ *     <li>top origins, destinations and origin -> destination lanes, as Space-Saving sketches of fixed size</li>
+ *     <li>exact counts per carrier and priority</li>
+ *     <li>a histogram of time from creation to DELIVERED</li>
+ * </ul>
+ * Everything is periodically rebuilt from the database, which makes the top-K exact again and corrects drift
+ * (writes that bypass the service, deleted deliveries, deltas racing with the previous rebuild). The counts
+ * come from a few GROUP BY queries and are rebuilt often; the delivery histogram needs a pass over every
+ * delivery, so it is rebuilt far less often and relies on the write deltas in between.
+ */
+@Component
+public class ShipmentAnalytics {
+
+    // key for shipments without a carrier or priority
+    public static final String UNSPECIFIED = "UNSPECIFIED";
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentEventRepository eventRepository;
+
+    @Autowired
+    private ShipmentChangeClock changeClock;
+
+    // keys tracked per sketch; the top-K is reliable for K well below this
+    @Value("${freight.analytics.top-k-capacity:1000}")
+    private int capacity = 1000;
+
+    // replaced with the configured capacity by the first reconcile, which runs at startup
+    private volatile Rollups rollups = new Rollups(capacity);
+
+    // replaced by rebuildDeliveryTimes, independently of the rollups
+    private volatile DurationHistogram deliveryTimes = new DurationHistogram();
+
+    // The fields the rollups are keyed on, captured before an update changes them
+    public record Dimensions(String origin, String destination, String carrier, Priority priority) {
+        public static Dimensions of(Shipment shipment) {
+            return new Dimensions(shipment.getOrigin(), shipment.getDestination(), shipment.getCarrier(),
+                    shipment.getPriority());
+        }
+    }
+
+    public void recordCreated(Shipment shipment) {
+        Rollups current = rollups;
+        current.adjust(Dimensions.of(shipment), 1);
+        if (shipment.getStatus() == ShipmentStatus.DELIVERED) {
+            recordDelivery(deliveryTimes, shipment.getCreatedAt(), shipment.getLastUpdatedTime());
+        }
+    }
+
+    public void recordUpdated(Dimensions previous, ShipmentStatus previousStatus, Shipment updated) {
+        Rollups current = rollups;
+        Dimensions dimensions = Dimensions.of(updated);
+        if (!dimensions.equals(previous)) {
+            current.adjust(previous, -1);
+            current.adjust(dimensions, 1);
+        }
+        if (previousStatus != ShipmentStatus.DELIVERED && updated.getStatus() == ShipmentStatus.DELIVERED) {
+            recordDelivery(deliveryTimes, updated.getCreatedAt(), updated.getLastUpdatedTime());
+        }
+    }
+
+    // Status fast path: only the delivery histogram can change
+    public void recordStatusChanged(ShipmentStatusView previous, ShipmentStatus status, LocalDateTime changedAt) {
+        if (previous.status() != ShipmentStatus.DELIVERED && status == ShipmentStatus.DELIVERED) {
+            recordDelivery(deliveryTimes, previous.createdAt(), changedAt);
+        }
+    }
+
+    public void recordDeleted(Shipment shipment) {
+        rollups.adjust(Dimensions.of(shipment), -1);
+    }
+
+    public List<HeavyHitter> topOrigins(int limit) {
+        return rollups.origins.top(limit);
+    }
+
+    public List<HeavyHitter> topDestinations(int limit) {
+        return rollups.destinations.top(limit);
+    }
+
+    public List<HeavyHitter> topLanes(int limit) {
+        return rollups.lanes.top(limit);
+    }
+
+    public Map<String, Long> carrierCounts() {
+        return sortedByCount(rollups.byCarrier);
+    }
+
+    public Map<String, Long> priorityCounts() {
+        return sortedByCount(rollups.byPriority);
+    }
+
+    public DeliveryTimeStats deliveryTimes() {
+        DurationHistogram histogram = deliveryTimes;
+        return DeliveryTimeStats.builder()
+                .deliveries(histogram.count())
+                .p50Seconds(histogram.percentileSeconds(50))
+                .p90Seconds(histogram.percentileSeconds(90))
+                .p95Seconds(histogram.percentileSeconds(95))
+                .p99Seconds(histogram.percentileSeconds(99))
+                .build();
+    }
+
+    // Same key as ShipmentRepository.countGroupedByLane
+    public static String lane(String origin, String destination) {
+        return origin + " -> " + destination;
+    }
+
+    // Runs once at startup and then on a fixed delay: a few GROUP BY queries replace every count
+    @Scheduled(fixedDelayString = "${freight.analytics.reconcile-interval:PT5M}")
+    @Transactional(readOnly = true)
+    public void reconcile() {
+        Rollups fresh = new Rollups(capacity);
+        fillTop(fresh.origins, shipmentRepository.countGroupedByOrigin().stream()
+                .map(row -> new KeyCount(row.origin(), row.count())).toList());
+        fillTop(fresh.destinations, shipmentRepository.countGroupedByDestination());
+        fillTop(fresh.lanes, shipmentRepository.countGroupedByLane());
+        for (KeyCount row : shipmentRepository.countGroupedByCarrier()) {
+            fresh.byCarrier.put(orUnspecified(row.key()), new AtomicLong(row.count()));
+        }
+        for (PriorityCount row : shipmentRepository.countGroupedByPriority()) {
+            fresh.byPriority.put(priorityKey(row.priority()), new AtomicLong(row.count()));
+        }
+        Rollups previous = rollups;
+        rollups = fresh;
+        // like ShipmentStatsSnapshot.reconcile, only a correction moves the ETag
+        if (!fresh.sameAs(previous, capacity)) {
+            changeClock.tick();
+        }
+    }
+
+    // Runs once at startup and then on a fixed delay: one pass over the DELIVERED events, of shipments in the hot
+    // table and in the archive. Deliveries recorded
+    // while it streams go to the histogram it replaces, so the ones it did not see are missing until the next run
+    @Scheduled(fixedDelayString = "${freight.analytics.delivery-rebuild-interval:P1D}",
+            scheduler = SchedulingConfig.LONG_JOBS)
+    @Transactional(readOnly = true)
+    public void rebuildDeliveryTimes() {
+        DurationHistogram fresh = new DurationHistogram();
+        try (Stream<DeliveryInterval> deliveries = eventRepository.streamDeliveryIntervals(ShipmentStatus.DELIVERED)) {
+            deliveries.forEach(delivery -> recordDelivery(fresh, delivery.createdAt(), delivery.deliveredAt()));
+        }
+        // archived deliveries still count: they are the bulk of the history
+        try (Stream<DeliveryInterval> deliveries =
+                     eventRepository.streamArchivedDeliveryIntervals(ShipmentStatus.DELIVERED)) {
+            deliveries.forEach(delivery -> recordDelivery(fresh, delivery.createdAt(), delivery.deliveredAt()));
+        }
+        deliveryTimes = fresh;
+        changeClock.tick();
+    }
+
+    // Exact counts are available here, so seed the sketch with the largest ones and no error
+    private void fillTop(SpaceSavingSketch sketch, List<KeyCount> rows) {
+        rows.stream()
+                .filter(row -> row.key() != null)
+                .sorted(Comparator.comparingLong(KeyCount::count).reversed())
+                .limit(capacity)
+                .forEach(row -> sketch.add(row.key(), row.count()));
+    }
+
+    private static Map<String, Long> sortedByCount(Map<String, AtomicLong> counts) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .filter(entry -> entry.getValue().get() > 0)
+                .sorted(Comparator.comparingLong((Map.Entry<String, AtomicLong> entry) -> entry.getValue().get()).reversed())
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue().get()));
+        return sorted;
+    }
+
+    private static void recordDelivery(DurationHistogram histogram, LocalDateTime createdAt, LocalDateTime deliveredAt) {
+        // rows from before createdAt existed have no start time
+        if (createdAt != null && deliveredAt != null && !deliveredAt.isBefore(createdAt)) {
+            histogram.record(Duration.between(createdAt, deliveredAt));
+        }
+    }
+
+    private static String orUnspecified(String value) {
+        return value == null ? UNSPECIFIED : value;
+    }
+
+    private static String priorityKey(Priority priority) {
+        return priority == null ? UNSPECIFIED : priority.name();
+    }
+
+    private static class Rollups {
+        private final SpaceSavingSketch origins;
+        private final SpaceSavingSketch destinations;
+        private final SpaceSavingSketch lanes;
+        private final Map<String, AtomicLong> byCarrier = new ConcurrentHashMap<>();
+        private final Map<String, AtomicLong> byPriority = new ConcurrentHashMap<>();
+
+        Rollups(int capacity) {
+            origins = new SpaceSavingSketch(capacity);
+            destinations = new SpaceSavingSketch(capacity);
+            lanes = new SpaceSavingSketch(capacity);
+        }
+
+        // Same answers from every endpoint; errors count, since the top lists return them
+        boolean sameAs(Rollups other, int limit) {
+            return origins.top(limit).equals(other.origins.top(limit))
+                    && destinations.top(limit).equals(other.destinations.top(limit))
+                    && lanes.top(limit).equals(other.lanes.top(limit))
+                    && sortedByCount(byCarrier).equals(sortedByCount(other.byCarrier))
+                    && sortedByCount(byPriority).equals(sortedByCount(other.byPriority));
+        }
+
+        void adjust(Dimensions dimensions, long delta) {
+            adjust(origins, dimensions.origin(), delta);
+            adjust(destinations, dimensions.destination(), delta);
+            if (dimensions.origin() != null && dimensions.destination() != null) {
+                adjust(lanes, lane(dimensions.origin(), dimensions.destination()), delta);
+            }
+            byCarrier.computeIfAbsent(orUnspecified(dimensions.carrier()), key -> new AtomicLong()).addAndGet(delta);
+            byPriority.computeIfAbsent(priorityKey(dimensions.priority()), key -> new AtomicLong()).addAndGet(delta);
+        }
+
+        private static void adjust(SpaceSavingSketch sketch, String key, long delta) {
+            if (key == null) {
+                return;
+            }
+            if (delta > 0) {
+                sketch.add(key, delta);
+            } else {
+                sketch.remove(key, -delta);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.config.SchedulingConfig;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.JobLeaseRepository;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import com.jayanti.freight_tracker.repository.ShipmentTombstoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves delivered and cancelled shipments that have not changed for freight.archive.after into
+ * shipment_archive, so the shipment table and its indexes only hold shipments that can still change.
+ * Archived ones are read back with ?includeArchived=true.
+ *
+ * Each batch is its own transaction, so a run never holds many row locks or a long transaction.
+ * Archived shipments leave /stats, /stats/* and text search like deleted ones, but keep their history.
+ * Each leaves a tombstone marked archived, so /changes clients and {@link ShipmentChangeFollower} on the
+ * other nodes drop it too.
+ *
+ * Only the node holding the "archive" {@link JobLeaseRepository lease} runs it; the others skip the run.
+ */
+@Component
+@ConditionalOnProperty(name = "freight.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class ShipmentArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(ShipmentArchiver.class);
+
+    private static final List<ShipmentStatus> FINAL_STATUSES = List.of(ShipmentStatus.DELIVERED, ShipmentStatus.CANCELLED);
+
+    private static final String LEASE = "archive";
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private JobLeaseRepository leaseRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ShipmentCache shipmentCache;
+
+    @Autowired
+    private ShipmentStatsSnapshot statsSnapshot;
+
+    @Autowired
+    private ShipmentAnalytics analytics;
+
+    @Autowired
+    private ShipmentSearchIndex searchIndex;
+
+    @Autowired
+    private ShipmentChangeClock changeClock;
+
+    @Value("${freight.archive.after:P30D}")
+    private Duration archiveAfter;
+
+    @Value("${freight.archive.batch-size:1000}")
+    private int batchSize;
+
+    // also how long the lease is held, so the next run on this node renews it before another node can take it
+    @Value("${freight.archive.interval:PT1H}")
+    private Duration interval;
+
+    private Clock clock = Clock.systemDefaultZone();
+
+    @Scheduled(fixedDelayString = "${freight.archive.interval:PT1H}",
+            scheduler = SchedulingConfig.LONG_JOBS)
+    public void archive() {
+        if (leaseRepository.tryAcquire(LEASE, interval)) {
+            archiveAll();
+        }
+    }
+
+    // Returns how many shipments were moved
+    int archiveAll() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime cutoff = now.minus(archiveAfter);
+        int archived = 0;
+        long changeVersion = 0;
+        List<Shipment> batch;
+        do {
+            ArchivedBatch moved = transactionTemplate.execute(tx -> archiveBatch(cutoff, now));
+            batch = moved.shipments();
+            changeVersion = Math.max(changeVersion, moved.changeVersion());
+            for (Shipment shipment : batch) {
+                shipmentCache.invalidate(shipment.getId(), shipment.getTrackingNumber());
+                statsSnapshot.recordDeleted(shipment);
+                analytics.recordDeleted(shipment);
+                searchIndex.recordDeleted(shipment.getId());
+            }
+            archived += batch.size();
+        } while (batch.size() == batchSize);
+        if (archived > 0) {
+            changeClock.tick(changeVersion);
+            log.info("Archived {} shipments last updated before {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    private ArchivedBatch archiveBatch(LocalDateTime cutoff, LocalDateTime now) {
+        List<Shipment> shipments = shipmentRepository.findArchivable(FINAL_STATUSES, cutoff, PageRequest.of(0, batchSize));
+        if (shipments.isEmpty()) {
+            return new ArchivedBatch(shipments, 0);
+        }
+        List<Long> ids = shipments.stream().map(Shipment::getId).toList();
+        long changeVersion = shipmentRepository.nextChangeVersion();
+        tombstoneRepository.insertArchived(ids, changeVersion, now);
+        shipmentRepository.moveToArchive(ids, now, null);
+        return new ArchivedBatch(shipments, changeVersion);
+    }
+
+    private record ArchivedBatch(List<Shipment> shipments, long changeVersion) {
+    }
+}
@@ -0,0 +1,98 @@
+package com.jayanti.freight_tracker.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jayanti.freight_tracker.model.Shipment;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache for single-shipment lookups, keyed both by id and by tracking number.
+ *
+ * Entries are evicted by size (W-TinyLFU) and by age, and invalidated explicitly by the update and
+ * delete paths in {@link ShipmentServiceImpl}. Hit/miss/eviction counts are published as
+ * cache.* meters through actuator.
+ *
+ * Misses are loaded on a separate virtual thread. A synchronous Caffeine cache runs the loader inside
+ * ConcurrentHashMap.compute, i.e. holding a monitor, which would pin a virtual request thread to its
+ * carrier for the whole database round trip; the async cache only installs a future under that lock.
+ */
+@Component
+public class ShipmentCache {
+
+    private final AsyncCache<Long, Shipment> byId;
+    private final AsyncCache<String, Shipment> byTrackingNumber;
+
+    private final ExecutorService loadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ShipmentCache(@Value("${freight.cache.shipments.max-size:10000}") long maxSize,
+                         @Value("${freight.cache.shipments.ttl:PT30S}") Duration ttl,
+                         MeterRegistry meterRegistry) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync();
+        this.byTrackingNumber = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .executor(loadExecutor)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId.synchronous(), "shipmentsById");
+        CaffeineCacheMetrics.monitor(meterRegistry, byTrackingNumber.synchronous(), "shipmentsByTrackingNumber");
+    }
+
+    // Returns null (and caches nothing) when the loader finds no shipment
+    public Shipment getById(Long id, Function<Long, Shipment> loader) {
+        return join(byId.get(id, loader));
+    }
+
+    public Shipment getByTrackingNumber(String trackingNumber, Function<String, Shipment> loader) {
+        return join(byTrackingNumber.get(trackingNumber, loader));
+    }
+
+    // Concurrent misses for one key share the same load; loader exceptions reach the caller unwrapped
+    private static Shipment join(CompletableFuture<Shipment> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drops every entry for a shipment. Call after the change is committed: an invalidation that races
+     * with an in-flight load removes the pending future, so its (possibly stale) result is never cached.
+     *
+     * @param id              The shipment id.
+     * @param trackingNumbers Tracking numbers the shipment had before and after the change.
+     */
+    public void invalidate(Long id, String... trackingNumbers) {
+        byId.synchronous().invalidate(id);
+        for (String trackingNumber : trackingNumbers) {
+            if (trackingNumber != null) {
+                byTrackingNumber.synchronous().invalidate(trackingNumber);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        loadExecutor.shutdown();
+    }
+}
@@ -0,0 +1,77 @@
+package com.jayanti.freight_tracker.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * ETag behind list, search and stats responses: it moves whenever something this node serves may have changed, so
+ * a request whose If-None-Match still names the current tag gets a 304 without running its query or serializing
+ * anything.
+ *
+ * The tag is the position {@link ShipmentChangeFollower} has applied up to, in /changes order: every node that has
+ * followed the database to the same position serves the same shipments, so behind a load balancer a tag from one
+ * node is answered with a 304 by the others, and still after a restart. Responses can be ahead of their tag by
+ * up to a poll plus freight.changes.settle-time, since queries read the database directly; the tag catches up
+ * when the follower gets there.
+ *
+ * Writes through this node are applied to its in-memory views before the follower sees them, and reconciles and
+ * rebuilds that change what this node serves correct it on their own. Both add a suffix only this process hands
+ * out, until the follower has passed every such write, so those tags never match on another node.
+ */
+@Component
+public class ShipmentChangeClock {
+
+    private final String instance = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    // the follower's position; guarded by this
+    private long version;
+    private Long afterId;
+    private boolean followed;
+    // local ticks since the follower last caught up with this node, and the newest write among them
+    private long localTicks = 1;
+    private long localVersion;
+
+    // nothing followed yet: the views are still being built, so not a tag any other node would hand out
+    private volatile String etag = "\"0-" + instance + ".1\"";
+
+    // Read before running the query it validates, so a change in between yields a newer tag next time
+    public String etag() {
+        return etag;
+    }
+
+    // Call once a write through this node is committed and applied to the in-memory views
+    public synchronized void tick(long changeVersion) {
+        localVersion = Math.max(localVersion, changeVersion);
+        localTicks++;
+        update();
+    }
+
+    // Call when a reconcile or rebuild changed what this node serves
+    public synchronized void tick() {
+        localTicks++;
+        update();
+    }
+
+    // Called by ShipmentChangeFollower after each poll, with the position it has applied up to
+    public synchronized void advance(long version, Long afterId) {
+        // a correction made since the last poll must not fall back to the tag the stale answers went out under
+        if (followed && version == this.version && Objects.equals(afterId, this.afterId)) {
+            return;
+        }
+        followed = true;
+        this.version = version;
+        this.afterId = afterId;
+        // a write's rows share its version and come back in one poll, so reaching the version is passing the write
+        if (version >= localVersion) {
+            localTicks = 0;
+        }
+        update();
+    }
+
+    private void update() {
+        String position = afterId == null ? Long.toString(version) : version + "." + afterId;
+        etag = "\"" + (localTicks == 0 ? position : position + "-" + instance + "." + localTicks) + "\"";
+    }
+}
@@ -0,0 +1,125 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.dto.ShipmentChanges;
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentTombstone;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import com.jayanti.freight_tracker.repository.ShipmentTombstoneRepository;
+import com.jayanti.freight_tracker.util.ReplicaRouting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Brings writes made on other nodes into this node's {@link ActiveShipmentView}, {@link ShipmentSearchIndex},
+ * {@link ShipmentStatsSnapshot} and {@link ShipmentAnalytics}, and drops them from its {@link ShipmentCache}: every
+ * freight.etag.poll-interval it reads the shipments and tombstones changed since the last change it applied, the
+ * way a /changes client does, so this node trails the database by at most a poll plus freight.changes.settle-time
+ * instead of a rebuild-interval, a reconcile-interval or the cache ttl. The position it reaches is the
+ * {@link ShipmentChangeClock} tag.
+ *
+ * This node's own writes come back too and are skipped by their version; the search index tells which changes
+ * the counters have not seen, since it holds the fields they count by. A row read just before a local delete can
+ * put the shipment back, but its tombstone comes later in change order and removes it again.
+ *
+ * It starts at the highest change version older than the settle time when the bean was created: everything up to
+ * there had committed before the first rebuilds began, so they have it.
+ */
+@Component
+public class ShipmentChangeFollower {
+
+    @Autowired
+    private ShipmentService shipmentService;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private ActiveShipmentView activeView;
+
+    @Autowired
+    private ShipmentSearchIndex searchIndex;
+
+    @Autowired
+    private ShipmentCache shipmentCache;
+
+    @Autowired
+    private ShipmentStatsSnapshot statsSnapshot;
+
+    @Autowired
+    private ShipmentAnalytics analytics;
+
+    @Autowired
+    private ShipmentChangeClock changeClock;
+
+    @Value("${freight.changes.settle-time:PT2S}")
+    private Duration settleTime;
+
+    @Value("${freight.changes.follow-batch-size:500}")
+    private int batchSize;
+
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    // position of the last applied change, as in /changes; only touched by poll()
+    private Long version;
+    private Long afterId;
+
+    @Scheduled(fixedDelayString = "${freight.etag.poll-interval:PT1S}")
+    public void poll() {
+        // the follower reads its position back, so a lagging replica could skip a change for good
+        ReplicaRouting.onPrimary(() -> {
+            if (version == null) {
+                LocalDateTime settled = createdAt.minus(settleTime);
+                version = Math.max(shipmentRepository.findMaxChangeVersionBefore(settled),
+                        tombstoneRepository.findMaxChangeVersionBefore(settled));
+            }
+            ShipmentChanges changes;
+            do {
+                changes = shipmentService.getChangesSince(version, afterId, batchSize);
+                for (ShipmentView view : changes.getChanged()) {
+                    // the tracking number may have changed, and lookups by the old one are cached too
+                    String previousTrackingNumber = searchIndex.trackingNumberOf(view.id());
+                    activeView.recordChanged(view);
+                    ShipmentSearchIndex.Replaced replaced = searchIndex.recordChanged(view);
+                    if (replaced != null) {
+                        recordCounts(replaced.previous(), view.toShipment());
+                    }
+                    shipmentCache.invalidate(view.id(), previousTrackingNumber, view.trackingNumber());
+                }
+                for (ShipmentTombstone tombstone : changes.getDeleted()) {
+                    activeView.recordDeleted(tombstone.getShipmentId());
+                    // the index only still has it if this node has not counted the removal yet
+                    Shipment removed = searchIndex.recordDeleted(tombstone.getShipmentId());
+                    if (removed != null) {
+                        statsSnapshot.recordDeleted(removed);
+                        analytics.recordDeleted(removed);
+                    }
+                    shipmentCache.invalidate(tombstone.getShipmentId(), tombstone.getTrackingNumber());
+                }
+                version = changes.getVersion();
+                afterId = changes.getAfterId();
+            } while (changes.isHasMore());
+            changeClock.advance(version, afterId);
+            return null;
+        });
+    }
+
+    // A change this node has not counted yet, judged by the search index, which holds the fields counted by
+    private void recordCounts(Shipment previous, Shipment updated) {
+        if (previous == null) {
+            statsSnapshot.recordCreated(updated);
+            analytics.recordCreated(updated);
+        } else {
+            statsSnapshot.recordUpdated(previous.getStatus(), previous.getOrigin(), updated);
+            analytics.recordUpdated(ShipmentAnalytics.Dimensions.of(previous), previous.getStatus(), updated);
+        }
+    }
+}
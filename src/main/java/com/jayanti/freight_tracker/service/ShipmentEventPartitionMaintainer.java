@@ -0,0 +1,45 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.config.SchedulingConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.YearMonth;
+
+/**
+ * Creates the monthly partitions of shipment_event ahead of time on PostgreSQL, so appends never
+ * land in the default partition. Only active with freight.events.partitioning.enabled=true and a
+ * table created from db/shipment_event_partitioned.sql.
+ */
+@Component
+@ConditionalOnProperty(name = "freight.events.partitioning.enabled", havingValue = "true")
+public class ShipmentEventPartitionMaintainer {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${freight.events.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    private Clock clock = Clock.systemUTC();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${freight.events.partitioning.cron:0 0 3 * * *}", scheduler = SchedulingConfig.LONG_JOBS)
+    public void createUpcomingPartitions() {
+        YearMonth current = YearMonth.now(clock);
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            jdbcTemplate.execute(String.format(
+                    "CREATE TABLE IF NOT EXISTS shipment_event_p%d_%02d PARTITION OF shipment_event " +
+                            "FOR VALUES FROM ('%s') TO ('%s')",
+                    month.getYear(), month.getMonthValue(), month.atDay(1), month.plusMonths(1).atDay(1)));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+
+import java.util.List;
+
+/**
+ * Destination for committed shipment events drained from the outbox by {@link ShipmentOutboxRelay}.
+ *
+ * Delivery is at-least-once: a batch is handed to every sink before it is marked published, so a
+ * failure anywhere redelivers the whole batch. Sinks should use the per-shipment sequence to drop
+ * duplicates.
+ *
+ * A sink that buffers events bounds the batches it is given with {@link #remainingCapacity()}, and throws
+ * from publish rather than discarding events it cannot take; the batch then stays in the outbox.
+ */
+public interface ShipmentEventSink {
+    void publish(List<ShipmentOutboxEvent> events);
+
+    // How many more events publish can take right now; the relay claims no more than this and stops draining at 0
+    default int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+}
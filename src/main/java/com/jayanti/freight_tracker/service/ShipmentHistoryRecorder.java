@@ -0,0 +1,43 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.model.ShipmentEvent;
+import com.jayanti.freight_tracker.model.ShipmentEventType;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+import com.jayanti.freight_tracker.repository.ShipmentEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Appends status transitions to the shipment_event log. Runs inside the relay's transaction, so a
+ * batch is recorded exactly when it is marked published, and with one batched INSERT instead of
+ * one insert per update on the request path.
+ */
+@Component
+// before the broadcaster: a failed insert should roll back the batch before anything is sent
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ShipmentHistoryRecorder implements ShipmentEventSink {
+
+    @Autowired
+    private ShipmentEventRepository eventRepository;
+
+    @Override
+    public void publish(List<ShipmentOutboxEvent> events) {
+        List<ShipmentEvent> transitions = events.stream()
+                .filter(ShipmentHistoryRecorder::isStatusChange)
+                .map(ShipmentEvent::from)
+                .toList();
+        if (!transitions.isEmpty()) {
+            // flush here rather than at commit, which only happens after the other sinks have run
+            eventRepository.saveAllAndFlush(transitions);
+        }
+    }
+
+    // updates that leave the status alone (e.g. a new destination) are not part of the history
+    private static boolean isStatusChange(ShipmentOutboxEvent event) {
+        return event.getEventType() == ShipmentEventType.CREATED || event.getPreviousStatus() != event.getStatus();
+    }
+}
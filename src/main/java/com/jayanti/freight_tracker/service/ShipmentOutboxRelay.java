@@ -0,0 +1,87 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.config.SchedulingConfig;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+import com.jayanti.freight_tracker.repository.ShipmentOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves committed events from the shipment_outbox table to every {@link ShipmentEventSink},
+ * in batches and off the request threads.
+ */
+@Component
+public class ShipmentOutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(ShipmentOutboxRelay.class);
+
+    @Autowired
+    private ShipmentOutboxRepository outboxRepository;
+
+    @Autowired
+    private List<ShipmentEventSink> sinks;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${freight.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${freight.outbox.retention:PT24H}")
+    private Duration retention;
+
+    // Keeps draining while full batches come back, so a burst is cleared in one run. Stops early while a
+    // sink has no room; the rest stays in the outbox until the next poll
+    @Scheduled(fixedDelayString = "${freight.outbox.poll-interval:PT0.2S}")
+    public void drain() {
+        int limit;
+        Integer drained;
+        do {
+            limit = batchLimit();
+            if (limit == 0) {
+                log.debug("Outbox drain paused, a sink is full");
+                return;
+            }
+            int claim = limit;
+            drained = transactionTemplate.execute(status -> drainBatch(claim));
+        } while (drained != null && drained == limit);
+    }
+
+    private int batchLimit() {
+        int limit = batchSize;
+        for (ShipmentEventSink sink : sinks) {
+            limit = Math.min(limit, Math.max(0, sink.remainingCapacity()));
+        }
+        return limit;
+    }
+
+    private int drainBatch(int limit) {
+        List<ShipmentOutboxEvent> events = outboxRepository.findUnpublished(PageRequest.of(0, limit));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        // a sink failure rolls back the transaction and the batch is retried on the next poll
+        for (ShipmentEventSink sink : sinks) {
+            sink.publish(events);
+        }
+        outboxRepository.markPublished(events.stream().map(ShipmentOutboxEvent::getId).toList(), LocalDateTime.now());
+        return events.size();
+    }
+
+    @Scheduled(fixedDelayString = "${freight.outbox.purge-interval:PT1H}",
+            scheduler = SchedulingConfig.LONG_JOBS)
+    public void purgePublished() {
+        transactionTemplate.executeWithoutResult(status ->
+                outboxRepository.deletePublishedBefore(LocalDateTime.now().minus(retention)));
+    }
+}
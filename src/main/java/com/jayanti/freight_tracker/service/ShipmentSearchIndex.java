@@ -0,0 +1,336 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.config.SchedulingConfig;
+import com.jayanti.freight_tracker.dto.ShipmentSearchHit;
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.model.Priority;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import com.jayanti.freight_tracker.util.ReplicaRouting;
+import com.jayanti.freight_tracker.util.TextIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory full-text search over trackingNumber, origin, destination and carrier for
+ * GET /api/shipments/search/text, kept up to date by the write paths in {@link ShipmentServiceImpl} like
+ * {@link ShipmentAnalytics}. Queries never touch the database.
+ *
+ * Every query word must match one of a shipment's words, exactly, as a prefix, as a substring or as a
+ * misspelling (see {@link TextIndex#match}); a shipment scores the sum of its best match per query word.
+ * Writes made on other nodes come in through {@link ShipmentChangeFollower}. The index is rebuilt from the
+ * shipment table at startup and every rebuild-interval, which also picks up writes that bypass the service.
+ * Like {@link ActiveShipmentView}, writes carry the shipment's version, so a late one never overwrites a newer
+ * one, and writes made during a rebuild are replayed onto the rebuilt index. Archived shipments are not indexed.
+ */
+@Component
+public class ShipmentSearchIndex {
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    // words examined per query word
+    @Value("${freight.search.max-candidates:1000}")
+    private int maxCandidates = 1000;
+
+    // shipments scored per query; the rest of a very broad match is not ranked
+    @Value("${freight.search.max-scan:10000}")
+    private int maxScan = 10000;
+
+    private volatile Index index = new Index();
+
+    // set by the first rebuild
+    private volatile boolean built;
+
+    // writes made while a rebuild streams the table, replayed onto the new index before it replaces the old
+    private List<Consumer<Index>> replay;
+
+    // not a monitor: the rebuild holds it across the JDBC stream, which would pin a virtual thread
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // The fields kept per shipment to answer queries without a database read
+    private record Doc(long id, String trackingNumber, String origin, String destination, String carrier,
+                       Priority priority, ShipmentStatus status, long version) {
+
+        static Doc of(Shipment shipment) {
+            return new Doc(shipment.getId(), shipment.getTrackingNumber(), shipment.getOrigin(),
+                    shipment.getDestination(), shipment.getCarrier(), shipment.getPriority(), shipment.getStatus(),
+                    shipment.getVersion());
+        }
+
+        static Doc of(ShipmentView view) {
+            return new Doc(view.id(), view.trackingNumber(), view.origin(), view.destination(), view.carrier(),
+                    view.priority(), view.status(), view.version());
+        }
+
+        // just the fields ShipmentStatsSnapshot and ShipmentAnalytics count by
+        Shipment toShipment() {
+            return Shipment.builder().id(id).trackingNumber(trackingNumber).origin(origin).destination(destination)
+                    .carrier(carrier).priority(priority).status(status).build();
+        }
+
+        Set<String> words() {
+            Set<String> words = new LinkedHashSet<>();
+            for (String field : new String[]{trackingNumber, origin, destination, carrier}) {
+                words.addAll(TextIndex.words(field));
+            }
+            return words;
+        }
+
+        ShipmentSearchHit hit(double score) {
+            return new ShipmentSearchHit(id, trackingNumber, origin, destination, carrier, status, score);
+        }
+    }
+
+    private static class Index {
+        private final TextIndex text = new TextIndex();
+        private final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+
+        void put(Doc doc) {
+            Doc previous = docs.get(doc.id());
+            if (previous != null && previous.version() >= doc.version()) {
+                return;
+            }
+            docs.put(doc.id(), doc);
+            Set<String> words = doc.words();
+            if (previous != null) {
+                for (String word : previous.words()) {
+                    if (!words.contains(word)) {
+                        text.remove(doc.id(), word);
+                    }
+                }
+            }
+            words.forEach(word -> text.add(doc.id(), word));
+        }
+
+        // Only the status returned with hits changes; no indexed word does
+        void setStatus(long id, ShipmentStatus status, long version) {
+            Doc doc = docs.get(id);
+            if (doc != null && doc.version() < version) {
+                docs.put(id, new Doc(doc.id(), doc.trackingNumber(), doc.origin(), doc.destination(), doc.carrier(),
+                        doc.priority(), status, version));
+            }
+        }
+
+        void remove(long id) {
+            Doc previous = docs.remove(id);
+            if (previous != null) {
+                previous.words().forEach(word -> text.remove(id, word));
+            }
+        }
+    }
+
+    public void recordCreated(Shipment shipment) {
+        Doc doc = Doc.of(shipment);
+        apply(index -> index.put(doc));
+    }
+
+    public void recordUpdated(Shipment shipment) {
+        Doc doc = Doc.of(shipment);
+        apply(index -> index.put(doc));
+    }
+
+    // What a change read back from the database replaced; previous is null for a shipment the index did not have
+    public record Replaced(Shipment previous) {
+    }
+
+    // A change read back from the database, see ShipmentChangeFollower. Returns null if the index already had this
+    // version, e.g. a write made through this node, or cannot tell because it has not been built yet
+    public synchronized Replaced recordChanged(ShipmentView view) {
+        Doc previous = index.docs.get(view.id());
+        Doc doc = Doc.of(view);
+        apply(index -> index.put(doc));
+        if (!built || (previous != null && previous.version() >= doc.version())) {
+            return null;
+        }
+        return new Replaced(previous == null ? null : previous.toShipment());
+    }
+
+    // Status fast path; version is the shipment's version after the change
+    public void recordStatusChanged(Long id, ShipmentStatus status, long version) {
+        apply(index -> index.setStatus(id, status, version));
+    }
+
+    // Deleted or archived; returns what the index last knew of the shipment, or null if it was not indexed
+    // (never, or already removed by an earlier call)
+    public synchronized Shipment recordDeleted(Long id) {
+        Doc removed = index.docs.get(id);
+        apply(index -> index.remove(id));
+        return removed == null ? null : removed.toShipment();
+    }
+
+    // Writers synchronize on this, so each shipment's words are replaced as a whole; readers never lock
+    private synchronized void apply(Consumer<Index> write) {
+        write.accept(index);
+        if (replay != null) {
+            replay.add(write);
+        }
+    }
+
+    /**
+     * Best matches for {@code query}, highest score first, newest id first among equal scores. Substring and
+     * misspelling matches are only looked for when exact and prefix matches do not fill the limit.
+     *
+     * @param status Only shipments in this status, or all if null.
+     */
+    public List<ShipmentSearchHit> search(String query, ShipmentStatus status, int limit) {
+        List<String> queryWords = TextIndex.words(query);
+        if (queryWords.isEmpty()) {
+            return List.of();
+        }
+        Index current = index;
+        List<ShipmentSearchHit> hits = search(current, queryWords, status, limit, false);
+        if (hits.size() < limit) {
+            hits = search(current, queryWords, status, limit, true);
+        }
+        return hits;
+    }
+
+    private List<ShipmentSearchHit> search(Index current, List<String> queryWords, ShipmentStatus status, int limit,
+                                           boolean approximate) {
+        List<List<TextIndex.WordMatch>> matches = new ArrayList<>(queryWords.size());
+        for (String queryWord : queryWords) {
+            List<TextIndex.WordMatch> wordMatches = current.text.match(queryWord, approximate, maxCandidates);
+            if (wordMatches.isEmpty()) {
+                return List.of();
+            }
+            matches.add(wordMatches);
+        }
+        // Walk the postings of the query word with the fewest documents, best words first, and score the
+        // other query words against each document's words
+        List<TextIndex.WordMatch> driver = matches.stream()
+                .min(Comparator.comparingLong(wordMatches -> wordMatches.stream().mapToLong(TextIndex.WordMatch::count).sum()))
+                .orElseThrow();
+        List<Map<String, Double>> others = new ArrayList<>();
+        for (List<TextIndex.WordMatch> wordMatches : matches) {
+            if (wordMatches != driver) {
+                Map<String, Double> scores = new HashMap<>();
+                wordMatches.forEach(match -> scores.put(match.word(), match.score()));
+                others.add(scores);
+            }
+        }
+
+        // With one query word a document scores what its word does, so once the limit is filled a lower-scoring
+        // word cannot place, and the newest `limit` documents of each word are all that can
+        boolean singleWord = others.isEmpty();
+        Map<Long, ShipmentSearchHit> hits = new HashMap<>();
+        double lowestScore = Double.MAX_VALUE;
+        int scanned = 0;
+        for (TextIndex.WordMatch match : driver) {
+            if (singleWord && hits.size() >= limit && match.score() < lowestScore) {
+                break;
+            }
+            int taken = 0;
+            for (Long id : match.ids()) {
+                if ((singleWord && taken >= limit) || scanned++ >= maxScan) {
+                    break;
+                }
+                if (hits.containsKey(id)) {
+                    continue;
+                }
+                Doc doc = current.docs.get(id);
+                if (doc == null || (status != null && doc.status() != status)) {
+                    continue;
+                }
+                Double score = score(doc, match.score(), others);
+                if (score != null) {
+                    hits.put(id, doc.hit(score));
+                    lowestScore = Math.min(lowestScore, score);
+                    taken++;
+                }
+            }
+            if (scanned >= maxScan) {
+                break;
+            }
+        }
+        return rank(hits, limit);
+    }
+
+    public int size() {
+        return index.docs.size();
+    }
+
+    // null if the shipment is not indexed
+    public String trackingNumberOf(long id) {
+        Doc doc = index.docs.get(id);
+        return doc == null ? null : doc.trackingNumber();
+    }
+
+    // Runs once at startup and then on a fixed delay
+    @Scheduled(fixedDelayString = "${freight.search.rebuild-interval:PT1H}",
+            scheduler = SchedulingConfig.LONG_JOBS)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        // one rebuild at a time (the schedule and a manual call), without holding up writers meanwhile
+        rebuildLock.lock();
+        try {
+            synchronized (this) {
+                replay = new ArrayList<>();
+            }
+            Index fresh = new Index();
+            // the replay below only covers writes recorded from here on, so the stream must not miss earlier
+            // ones the way a lagging replica could
+            try (Stream<ShipmentView> views = ReplicaRouting.onPrimary(() -> shipmentRepository.streamAllViews())) {
+                views.forEach(view -> fresh.put(Doc.of(view)));
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    replay = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                // versions make this safe for writes the stream already saw
+                replay.forEach(write -> write.accept(fresh));
+                replay = null;
+                index = fresh;
+                built = true;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // null unless every other query word matches one of the doc's words
+    private static Double score(Doc doc, double driverScore, List<Map<String, Double>> others) {
+        double total = driverScore;
+        if (others.isEmpty()) {
+            return total;
+        }
+        Set<String> words = doc.words();
+        for (Map<String, Double> scores : others) {
+            double best = 0;
+            for (String word : words) {
+                best = Math.max(best, scores.getOrDefault(word, 0.0));
+            }
+            if (best == 0) {
+                return null;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static List<ShipmentSearchHit> rank(Map<Long, ShipmentSearchHit> hits, int limit) {
+        return hits.values().stream()
+                .sorted(Comparator.comparingDouble(ShipmentSearchHit::score).reversed()
+                        .thenComparing(Comparator.comparingLong(ShipmentSearchHit::id).reversed()))
+                .limit(limit)
+                .toList();
+    }
+}
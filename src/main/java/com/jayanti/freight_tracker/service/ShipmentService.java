@@ -1,22 +1,76 @@
 package com.jayanti.freight_tracker.service;
 
+import com.jayanti.freight_tracker.dto.BatchCreateShipmentResponse;
+import com.jayanti.freight_tracker.dto.BulkStatusUpdateItem;
+import com.jayanti.freight_tracker.dto.BulkStatusUpdateResponse;
 import com.jayanti.freight_tracker.dto.CreateShipmentRequest;
+import com.jayanti.freight_tracker.dto.DeliveryTimeStats;
+import com.jayanti.freight_tracker.dto.ExportFormat;
+import com.jayanti.freight_tracker.dto.HeavyHitter;
+import com.jayanti.freight_tracker.dto.ShipmentChanges;
+import com.jayanti.freight_tracker.dto.ShipmentCursor;
+import com.jayanti.freight_tracker.dto.ShipmentField;
+import com.jayanti.freight_tracker.dto.ShipmentSearchHit;
+import com.jayanti.freight_tracker.dto.ShipmentStatusChange;
+import com.jayanti.freight_tracker.dto.ShipmentView;
 import com.jayanti.freight_tracker.dto.UpdateShipmentRequest;
 import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentEvent;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
 import com.jayanti.freight_tracker.model.ShipmentStatus;
 import com.jayanti.freight_tracker.dto.ShipmentStatsDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public interface ShipmentService {
     Shipment createShipment(CreateShipmentRequest shipment);
+    BatchCreateShipmentResponse createShipments(List<CreateShipmentRequest> requests);
+    // Reads rows from the iterator as it goes, writing them a chunk at a time
+    BatchCreateShipmentResponse createShipments(Iterator<CreateShipmentRequest> requests);
     Shipment getShipmentByIdOrThrow(Long id);
-    List<Shipment> getAllShipments();
-    Shipment updateShipment(Long id, UpdateShipmentRequest updatedShipment);
+    Shipment getShipmentByTrackingNumberOrThrow(String trackingNumber);
+    // includeArchived also looks in shipment_archive once a shipment has left the hot table
+    Shipment getShipmentByIdOrThrow(Long id, boolean includeArchived);
+    Shipment getShipmentByTrackingNumberOrThrow(String trackingNumber, boolean includeArchived);
+    List<ShipmentView> getAllShipments();
+    void exportShipments(ExportFormat format, OutputStream out) throws IOException;
+    // expectedVersion comes from If-Match; null skips the check
+    Shipment updateShipment(Long id, UpdateShipmentRequest updatedShipment, Long expectedVersion);
+    ShipmentStatusChange updateShipmentStatus(Long id, ShipmentStatus status, Long expectedVersion);
+    BulkStatusUpdateResponse updateShipmentStatuses(List<BulkStatusUpdateItem> items);
     void deleteShipment(Long id);
-    Page<Shipment> searchShipments(String origin, ShipmentStatus status, Pageable pageable);
+    Page<ShipmentView> searchShipments(String origin, ShipmentStatus status, Pageable pageable);
+    Slice<ShipmentView> searchShipmentsAfter(String origin, ShipmentStatus status, ShipmentCursor after, int size);
+    Slice<ShipmentView> searchShipmentsAfter(String origin, ShipmentStatus status, ShipmentCursor after, int size,
+                                             boolean includeArchived);
+    // sparse fieldsets (?fields=): only the requested columns are selected, one map per row
+    Page<Map<String, Object>> searchShipmentFields(String origin, ShipmentStatus status, Set<ShipmentField> fields,
+                                                   Pageable pageable);
+    Slice<Map<String, Object>> searchShipmentFieldsAfter(String origin, ShipmentStatus status, Set<ShipmentField> fields,
+                                                         ShipmentCursor after, int size);
+    // typeahead and fuzzy matching over tracking number, origin, destination and carrier, served from memory
+    List<ShipmentSearchHit> searchText(String query, ShipmentStatus status, int limit);
+    // changes after the (since, afterId) position; a null since starts from the beginning
+    ShipmentChanges getChangesSince(Long since, Long afterId, int limit);
     ShipmentStatsDTO getShipmentStats();
+    // approximate top-K (see ShipmentAnalytics); a lane is "origin -> destination"
+    List<HeavyHitter> getTopOrigins(int limit);
+    List<HeavyHitter> getTopDestinations(int limit);
+    List<HeavyHitter> getTopLanes(int limit);
+    Map<String, Long> getCarrierCounts();
+    Map<String, Long> getPriorityCounts();
+    DeliveryTimeStats getDeliveryTimeStats();
+    List<ShipmentOutboxEvent> getShipmentEventsAfter(Long id, long afterSequence);
+    List<ShipmentEvent> getShipmentHistory(Long id);
+    Slice<ShipmentEvent> searchEventsAfter(ShipmentStatus status, ShipmentCursor after, LocalDateTime to, int size);
 }
@@ -1,27 +1,77 @@
 package com.jayanti.freight_tracker.service;
 
+import com.jayanti.freight_tracker.dto.BatchCreateShipmentResponse;
+import com.jayanti.freight_tracker.dto.BulkStatusUpdateItem;
+import com.jayanti.freight_tracker.dto.BulkStatusUpdateResponse;
+import com.jayanti.freight_tracker.dto.BatchRowError;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.jayanti.freight_tracker.dto.CreateShipmentRequest;
+import com.jayanti.freight_tracker.dto.DeliveryTimeStats;
+import com.jayanti.freight_tracker.dto.ExportFormat;
+import com.jayanti.freight_tracker.dto.HeavyHitter;
+import com.jayanti.freight_tracker.dto.ShipmentChanges;
+import com.jayanti.freight_tracker.dto.ShipmentCursor;
+import com.jayanti.freight_tracker.dto.ShipmentField;
+import com.jayanti.freight_tracker.dto.ShipmentSearchHit;
+import com.jayanti.freight_tracker.dto.ShipmentStatusChange;
+import com.jayanti.freight_tracker.dto.ShipmentStatusView;
+import com.jayanti.freight_tracker.dto.ShipmentView;
 import com.jayanti.freight_tracker.dto.UpdateShipmentRequest;
+import com.jayanti.freight_tracker.exception.InvalidStatusTransitionException;
+import com.jayanti.freight_tracker.exception.PreconditionFailedException;
+import com.jayanti.freight_tracker.exception.ShipmentConflictException;
 import com.jayanti.freight_tracker.exception.ShipmentNotFoundException;
+import com.jayanti.freight_tracker.model.ArchivedShipment;
 import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentEvent;
+import com.jayanti.freight_tracker.model.ShipmentEventType;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
 import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.model.ShipmentTombstone;
 import com.jayanti.freight_tracker.dto.ShipmentStatsDTO;
+import com.jayanti.freight_tracker.repository.ArchivedShipmentRepository;
+import com.jayanti.freight_tracker.repository.ShipmentEventRepository;
+import com.jayanti.freight_tracker.repository.ShipmentOutboxRepository;
 import com.jayanti.freight_tracker.repository.ShipmentRepository;
-import com.jayanti.freight_tracker.websocket.ShipmentStatusBroadcaster;
-import com.jayanti.freight_tracker.websocket.ShipmentUpdateMessage;
+import com.jayanti.freight_tracker.repository.ShipmentTombstoneRepository;
+import com.jayanti.freight_tracker.util.ReplicaRouting;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import static com.jayanti.freight_tracker.util.CsvUtils.escape;
 import static com.jayanti.freight_tracker.util.DateUtils.format;
 
+// one timer per public method, tagged with class and method (see MetricsConfig)
+@Timed(value = "freight.shipment.service", description = "Time spent in ShipmentService methods")
 @Service
 public class   ShipmentServiceImpl implements ShipmentService {
 
@@ -29,10 +79,223 @@ public class   ShipmentServiceImpl implements ShipmentService {
     private ShipmentRepository shipmentRepository;
 
     @Autowired
-    private ShipmentStatusBroadcaster broadcaster;
+    private ShipmentOutboxRepository outboxRepository;
+
+    @Autowired
+    private ShipmentEventRepository eventRepository;
+
+    @Autowired
+    private ShipmentTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private ArchivedShipmentRepository archiveRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShipmentStatsSnapshot statsSnapshot;
+
+    @Autowired
+    private ShipmentAnalytics analytics;
+
+    @Autowired
+    private ShipmentCache shipmentCache;
+
+    @Autowired
+    private ShipmentSearchIndex searchIndex;
+
+    @Autowired
+    private ActiveShipmentView activeView;
+
+    @Autowired
+    private ShipmentChangeClock changeClock;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Same as ShipmentRepository.updateStatusIfVersion, as plain SQL so the bulk path can use a JDBC batch
+    private static final String UPDATE_STATUS_IF_VERSION_SQL =
+            "UPDATE shipment SET status = ?, last_updated_time = ?, version = version + 1, change_version = ? " +
+                    "WHERE id = ? AND version = ?";
+
+    // rows written per saveAll call; matches the JDBC batch size so each chunk is one batched flush
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    // tries for a status-only update that keeps losing optimistic-lock races before answering 409
+    @Value("${freight.updates.status-attempts:3}")
+    private int statusUpdateAttempts;
+
+    // upper bound on how long a write transaction takes to commit after taking its change version
+    @Value("${freight.changes.settle-time:PT2S}")
+    private Duration changesSettleTime;
 
     @Override
     public Shipment createShipment(CreateShipmentRequest request) {
+        // Save to database together with its outbox event; the relay broadcasts it after commit
+        Shipment saved = transactionTemplate.execute(tx -> {
+            Shipment shipment = toShipment(request, LocalDateTime.now());
+            shipment.setChangeVersion(shipmentRepository.nextChangeVersion());
+            shipment = shipmentRepository.save(shipment);
+            outboxRepository.save(ShipmentOutboxEvent.of(shipment, ShipmentEventType.CREATED, null, false));
+            return shipment;
+        });
+        statsSnapshot.recordCreated(saved);
+        analytics.recordCreated(saved);
+        searchIndex.recordCreated(saved);
+        activeView.recordCreated(saved);
+        changeClock.tick(saved.getChangeVersion());
+
+        return saved;
+    }
+
+    @Override
+    public BatchCreateShipmentResponse createShipments(List<CreateShipmentRequest> requests) {
+        return createShipments(requests.iterator());
+    }
+
+    @Override
+    public BatchCreateShipmentResponse createShipments(Iterator<CreateShipmentRequest> requests) {
+        List<BatchRowError> rejected = new ArrayList<>();
+        // to catch duplicates inside the batch itself; only keys are kept, not the rows
+        Map<String, Integer> rowByTrackingNumber = new HashMap<>();
+        int chunkSize = Math.max(1, batchSize);
+        List<PendingCreate> chunk = new ArrayList<>(chunkSize);
+        LocalDateTime now = LocalDateTime.now();
+        int received = 0;
+        int created = 0;
+
+        // Rows are validated as they are read and written a chunk at a time, so a streamed upload is
+        // never held in memory as a whole
+        while (requests.hasNext()) {
+            int row = received++;
+            CreateShipmentRequest request;
+            try {
+                request = requests.next();
+            } catch (RuntimeJsonMappingException e) {
+                // a row that does not map (unknown status, wrong type); the reader skips to the next one
+                String message = e.getCause() instanceof JsonMappingException cause ? cause.getOriginalMessage() : e.getMessage();
+                rejected.add(rowError(row, null, Map.of("row", "Malformed row: " + message)));
+                continue;
+            }
+            Map<String, String> errors = new HashMap<>();
+            if (request == null) {
+                errors.put("row", "Row must be a JSON object");
+            } else {
+                for (ConstraintViolation<CreateShipmentRequest> violation : validator.validate(request)) {
+                    errors.put(violation.getPropertyPath().toString(), violation.getMessage());
+                }
+            }
+            if (errors.isEmpty()) {
+                Integer firstRow = rowByTrackingNumber.putIfAbsent(request.getTrackingNumber(), row);
+                if (firstRow != null) {
+                    errors.put("trackingNumber", "Duplicate tracking number, first seen in row " + firstRow);
+                }
+            }
+            if (!errors.isEmpty()) {
+                rejected.add(rowError(row, request, errors));
+                continue;
+            }
+            chunk.add(new PendingCreate(row, request));
+            if (chunk.size() == chunkSize) {
+                created += createChunk(chunk, now, rejected);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += createChunk(chunk, now, rejected);
+        }
+
+        rejected.sort(Comparator.comparingInt(BatchRowError::getRow));
+
+        return BatchCreateShipmentResponse.builder()
+                .received(received)
+                .created(created)
+                .rejected(rejected)
+                .build();
+    }
+
+    private int createChunk(List<PendingCreate> chunk, LocalDateTime now, List<BatchRowError> rejected) {
+        // Drop rows whose tracking number is already stored (one IN query per chunk)
+        // on the primary, like every read a write below depends on: a replica may not have the latest rows yet
+        Set<String> existing = ReplicaRouting.onPrimary(() -> shipmentRepository.findExistingTrackingNumbers(
+                chunk.stream().map(pending -> pending.request().getTrackingNumber()).toList()));
+
+        List<PendingCreate> inserts = new ArrayList<>(chunk.size());
+        for (PendingCreate pending : chunk) {
+            if (existing.contains(pending.request().getTrackingNumber())) {
+                rejected.add(rowError(pending.row(), pending.request(),
+                        Map.of("trackingNumber", "Tracking number already exists")));
+            } else {
+                inserts.add(pending);
+            }
+        }
+        if (inserts.isEmpty()) {
+            return 0;
+        }
+
+        List<Shipment> saved;
+        try {
+            saved = insertChunk(inserts, now);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request stored one of these tracking numbers after the check above. The chunk rolled
+            // back, so insert its rows one by one to find out which; earlier chunks stay committed
+            entityManager.clear();
+            saved = new ArrayList<>(inserts.size());
+            for (PendingCreate pending : inserts) {
+                try {
+                    saved.addAll(insertChunk(List.of(pending), now));
+                } catch (DataIntegrityViolationException rowFailure) {
+                    entityManager.clear();
+                    String trackingNumber = pending.request().getTrackingNumber();
+                    if (ReplicaRouting.onPrimary(() -> shipmentRepository.findExistingTrackingNumbers(List.of(trackingNumber)))
+                            .isEmpty()) {
+                        throw rowFailure;
+                    }
+                    rejected.add(rowError(pending.row(), pending.request(),
+                            Map.of("trackingNumber", "Tracking number already exists")));
+                }
+            }
+            if (saved.isEmpty()) {
+                return 0;
+            }
+        }
+        entityManager.clear();
+        saved.forEach(statsSnapshot::recordCreated);
+        saved.forEach(analytics::recordCreated);
+        saved.forEach(searchIndex::recordCreated);
+        saved.forEach(activeView::recordCreated);
+        changeClock.tick(saved.stream().mapToLong(Shipment::getChangeVersion).max().orElseThrow());
+        return saved.size();
+    }
+
+    // One transaction and one batched INSERT per chunk (shipments and their outbox events); the caller then
+    // drops the entities from the persistence context so memory does not grow with the batch
+    private List<Shipment> insertChunk(List<PendingCreate> rows, LocalDateTime now) {
+        return transactionTemplate.execute(tx -> {
+            // the chunk commits at once, so it shares one change version
+            long changeVersion = shipmentRepository.nextChangeVersion();
+            List<Shipment> chunk = rows.stream().map(pending -> toShipment(pending.request(), now)).toList();
+            chunk.forEach(shipment -> shipment.setChangeVersion(changeVersion));
+            List<Shipment> shipments = shipmentRepository.saveAll(chunk);
+            outboxRepository.saveAll(shipments.stream()
+                    .map(shipment -> ShipmentOutboxEvent.of(shipment, ShipmentEventType.CREATED, null, true))
+                    .toList());
+            return shipments;
+        });
+    }
+
+    private Shipment toShipment(CreateShipmentRequest request, LocalDateTime now) {
         // Map fields from DTO to entity
         Shipment shipment = new Shipment();
         shipment.setOrigin(request.getOrigin());
@@ -41,92 +304,556 @@ public class   ShipmentServiceImpl implements ShipmentService {
         shipment.setTrackingNumber(request.getTrackingNumber());
         shipment.setCarrier(request.getCarrier());
         shipment.setPriority(request.getPriority());
-        shipment.setLastUpdatedTime(LocalDateTime.now());
+        shipment.setLastUpdatedTime(now);
+        shipment.setCreatedAt(now);
+        return shipment;
+    }
 
-        // Save to database
-        Shipment saved = shipmentRepository.save(shipment);
+    private BatchRowError rowError(int row, CreateShipmentRequest request, Map<String, String> errors) {
+        return BatchRowError.builder()
+                .row(row)
+                .trackingNumber(request == null ? null : request.getTrackingNumber())
+                .errors(errors)
+                .build();
+    }
 
-        // Broadcast real-time update
-        broadcaster.broadcastUpdate(saved);
+    @Override
+    public Shipment getShipmentByIdOrThrow(Long id) {
+        return getShipmentByIdOrThrow(id, false);
+    }
 
-        return saved;
+    @Override
+    public Shipment getShipmentByIdOrThrow(Long id, boolean includeArchived) {
+        // cached until the next write, so never loaded from a replica that may be behind
+        Shipment shipment = shipmentCache.getById(id,
+                key -> ReplicaRouting.onPrimary(() -> shipmentRepository.findById(key).orElse(null)));
+        if (shipment == null && includeArchived) {
+            // not cached: archived shipments are only read on request
+            shipment = archiveRepository.findByIdAndDeletedAtIsNull(id).map(ArchivedShipment::toShipment).orElse(null);
+        }
+        if (shipment == null) {
+            throw new ShipmentNotFoundException(id);
+        }
+        return shipment;
     }
 
     @Override
-    public Shipment getShipmentByIdOrThrow(Long id) {
-        return shipmentRepository.findById(id)
-                .orElseThrow(() -> new ShipmentNotFoundException(id));
+    public Shipment getShipmentByTrackingNumberOrThrow(String trackingNumber) {
+        return getShipmentByTrackingNumberOrThrow(trackingNumber, false);
     }
 
     @Override
-    public List<Shipment> getAllShipments() {
-        return shipmentRepository.findAll();
+    public Shipment getShipmentByTrackingNumberOrThrow(String trackingNumber, boolean includeArchived) {
+        Shipment shipment = shipmentCache.getByTrackingNumber(trackingNumber,
+                key -> ReplicaRouting.onPrimary(() -> shipmentRepository.findByTrackingNumber(key).orElse(null)));
+        if (shipment == null && includeArchived) {
+            shipment = archiveRepository.findFirstByTrackingNumberAndDeletedAtIsNullOrderByArchivedAtDesc(trackingNumber)
+                    .map(ArchivedShipment::toShipment).orElse(null);
+        }
+        if (shipment == null) {
+            throw new ShipmentNotFoundException(trackingNumber);
+        }
+        return shipment;
     }
 
     @Override
-    public Shipment updateShipment(Long id, UpdateShipmentRequest request) {
-        return shipmentRepository.findById(id)
-                .map(shipment -> {
-                    // Update fields from the request DTO
-                    // Only update fields that are not null allowing for partial updates(patch like behavior)
-                    if (request.getOrigin() != null) shipment.setOrigin(request.getOrigin());
-                    if (request.getDestination() != null) shipment.setDestination(request.getDestination());
-                    shipment.setStatus(request.getStatus());
-                    if (request.getTrackingNumber() != null) shipment.setTrackingNumber(request.getTrackingNumber());
-                    if (request.getCarrier() != null) shipment.setCarrier(request.getCarrier());
-                    if (request.getPriority() != null) shipment.setPriority(request.getPriority());
+    public List<ShipmentView> getAllShipments() {
+        return shipmentRepository.findAllViews();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportShipments(ExportFormat format, OutputStream out) throws IOException {
+        // Rows come off a server-side cursor as projections the persistence context never holds,
+        // so memory stays flat regardless of table size
+        try (Stream<ShipmentView> shipments = shipmentRepository.streamAllViews()) {
+            if (format == ExportFormat.CSV) {
+                writeCsv(shipments, out);
+            } else {
+                writeNdjson(shipments, out);
+            }
+        }
+    }
+
+    private void writeNdjson(Stream<ShipmentView> shipments, OutputStream out) throws IOException {
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            for (Iterator<ShipmentView> it = shipments.iterator(); it.hasNext(); ) {
+                writer.write(it.next());
+            }
+        }
+        out.write('\n');
+        out.flush();
+    }
 
-                    // Always refresh the last updated time
-                    shipment.setLastUpdatedTime(LocalDateTime.now());
+    private void writeCsv(Stream<ShipmentView> shipments, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("id,trackingNumber,origin,destination,status,carrier,priority,lastUpdatedTime\n");
+        for (Iterator<ShipmentView> it = shipments.iterator(); it.hasNext(); ) {
+            ShipmentView shipment = it.next();
+            writer.write(shipment.id() + "," + escape(shipment.trackingNumber()) + ","
+                    + escape(shipment.origin()) + "," + escape(shipment.destination()) + ","
+                    + escape(shipment.status()) + "," + escape(shipment.carrier()) + ","
+                    + escape(shipment.priority()) + "," + escape(shipment.lastUpdatedTime()) + "\n");
+        }
+        writer.flush();
+    }
 
-                    Shipment saved = shipmentRepository.save(shipment);
+    @Override
+    public Shipment updateShipment(Long id, UpdateShipmentRequest request, Long expectedVersion) {
+        // A status-only change can be safely re-applied on top of whatever a concurrent writer
+        // committed (the transition is re-checked); anything else, or an If-Match, must not be
+        int attempts = expectedVersion == null && isStatusOnly(request) ? Math.max(1, statusUpdateAttempts) : 1;
+        UpdateResult result = null;
+        for (int attempt = 1; result == null; attempt++) {
+            try {
+                result = transactionTemplate.execute(tx -> applyUpdate(id, request, expectedVersion));
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= attempts) {
+                    throw new ShipmentConflictException(id);
+                }
+            }
+        }
 
-                    // Broadcast real-time update
-                    broadcaster.broadcastUpdate(saved);
+        Shipment saved = result.shipment();
+        shipmentCache.invalidate(id, result.previousTrackingNumber(), saved.getTrackingNumber());
+        statsSnapshot.recordUpdated(result.previousStatus(), result.previousOrigin(), saved);
+        analytics.recordUpdated(result.previousDimensions(), result.previousStatus(), saved);
+        searchIndex.recordUpdated(saved);
+        activeView.recordUpdated(saved);
+        changeClock.tick(saved.getChangeVersion());
+        return saved;
+    }
 
-                    return saved;
-                })
+    private UpdateResult applyUpdate(Long id, UpdateShipmentRequest request, Long expectedVersion) {
+        Shipment shipment = shipmentRepository.findById(id)
                 .orElseThrow(() -> new ShipmentNotFoundException(id));
+        if (expectedVersion != null && expectedVersion != shipment.getVersion()) {
+            throw new PreconditionFailedException(id, expectedVersion, shipment.getVersion());
+        }
+        if (!shipment.getStatus().canTransitionTo(request.getStatus())) {
+            throw new InvalidStatusTransitionException(id, shipment.getStatus(), request.getStatus());
+        }
+        ShipmentStatus previousStatus = shipment.getStatus();
+        String previousOrigin = shipment.getOrigin();
+        String previousTrackingNumber = shipment.getTrackingNumber();
+        ShipmentAnalytics.Dimensions previousDimensions = ShipmentAnalytics.Dimensions.of(shipment);
+
+        // Update fields from the request DTO
+        // Only update fields that are not null allowing for partial updates(patch like behavior)
+        if (request.getOrigin() != null) shipment.setOrigin(request.getOrigin());
+        if (request.getDestination() != null) shipment.setDestination(request.getDestination());
+        shipment.setStatus(request.getStatus());
+        if (request.getTrackingNumber() != null) shipment.setTrackingNumber(request.getTrackingNumber());
+        if (request.getCarrier() != null) shipment.setCarrier(request.getCarrier());
+        if (request.getPriority() != null) shipment.setPriority(request.getPriority());
+
+        // Always refresh the last updated time
+        shipment.setLastUpdatedTime(LocalDateTime.now());
+        shipment.setChangeVersion(shipmentRepository.nextChangeVersion());
+
+        // Flush now: the UPDATE ... WHERE version = ? fails here on a concurrent write (no row lock is
+        // held in between), and the bumped version is the sequence of the outbox event
+        Shipment saved = shipmentRepository.saveAndFlush(shipment);
+
+        // Outbox event in the same transaction; the relay broadcasts it once this commits
+        outboxRepository.save(ShipmentOutboxEvent.of(saved, ShipmentEventType.UPDATED, previousStatus, false));
+
+        return new UpdateResult(saved, previousStatus, previousOrigin, previousTrackingNumber, previousDimensions);
+    }
+
+    private static boolean isStatusOnly(UpdateShipmentRequest request) {
+        return request.getOrigin() == null && request.getDestination() == null && request.getTrackingNumber() == null
+                && request.getCarrier() == null && request.getPriority() == null;
     }
 
+    // What the post-commit bookkeeping needs to know about the row before it changed
+    private record UpdateResult(Shipment shipment, ShipmentStatus previousStatus,
+                                String previousOrigin, String previousTrackingNumber,
+                                ShipmentAnalytics.Dimensions previousDimensions) {
+    }
+
+    @Override
+    public ShipmentStatusChange updateShipmentStatus(Long id, ShipmentStatus status, Long expectedVersion) {
+        int attempts = expectedVersion == null ? Math.max(1, statusUpdateAttempts) : 1;
+        for (int attempt = 1; ; attempt++) {
+            // Narrow read of four columns instead of hydrating the entity
+            ShipmentStatusView current = ReplicaRouting.onPrimary(() -> shipmentRepository.findStatusViewById(id))
+                    .orElseThrow(() -> new ShipmentNotFoundException(id));
+            if (expectedVersion != null && expectedVersion != current.version()) {
+                throw new PreconditionFailedException(id, expectedVersion, current.version());
+            }
+            if (!current.status().canTransitionTo(status)) {
+                throw new InvalidStatusTransitionException(id, current.status(), status);
+            }
+            if (current.status() == status) {
+                // repeated scans of the same status are a no-op: no write, no event
+                return statusChange(current, status, current.version(), null);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            // the change version of the write, or null if it lost the race
+            Long changeVersion = transactionTemplate.execute(tx -> {
+                long next = shipmentRepository.nextChangeVersion();
+                if (shipmentRepository.updateStatusIfVersion(id, current.version(), status, now, next) == 0) {
+                    return null;
+                }
+                outboxRepository.save(ShipmentOutboxEvent.ofStatusChange(id, current.trackingNumber(),
+                        current.origin(), current.status(), status, current.version() + 1, next, now));
+                return next;
+            });
+            if (changeVersion != null) {
+                shipmentCache.invalidate(id, current.trackingNumber());
+                statsSnapshot.recordStatusChanged(current.status(), status);
+                analytics.recordStatusChanged(current, status, now);
+                searchIndex.recordStatusChanged(id, status, current.version() + 1);
+                activeView.recordStatusChanged(id, status, now, current.version() + 1, changeVersion);
+                changeClock.tick(changeVersion);
+                return statusChange(current, status, current.version() + 1, now);
+            }
+            // a concurrent write bumped the version between the read and the UPDATE
+            if (attempt >= attempts) {
+                throw new ShipmentConflictException(id);
+            }
+        }
+    }
+
+    private ShipmentStatusChange statusChange(ShipmentStatusView previous, ShipmentStatus status, long version,
+                                              LocalDateTime lastUpdatedTime) {
+        return ShipmentStatusChange.builder()
+                .id(previous.id())
+                .trackingNumber(previous.trackingNumber())
+                .previousStatus(previous.status())
+                .status(status)
+                .version(version)
+                .lastUpdatedTime(lastUpdatedTime)
+                .build();
+    }
+
+    @Override
+    public BulkStatusUpdateResponse updateShipmentStatuses(List<BulkStatusUpdateItem> items) {
+        List<BatchRowError> rejected = new ArrayList<>();
+        int updated = 0;
+        int unchanged = 0;
+        int chunkSize = Math.max(1, batchSize);
+
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, items.size());
+
+            // Resolve the whole chunk with at most two IN queries
+            Map<Long, ShipmentStatusView> byId = new HashMap<>();
+            Map<String, ShipmentStatusView> byTrackingNumber = new HashMap<>();
+            List<Long> ids = items.subList(from, to).stream()
+                    .map(BulkStatusUpdateItem::getId).filter(Objects::nonNull).toList();
+            List<String> trackingNumbers = items.subList(from, to).stream()
+                    .map(BulkStatusUpdateItem::getTrackingNumber).filter(Objects::nonNull).toList();
+            if (!ids.isEmpty()) {
+                ReplicaRouting.onPrimary(() -> shipmentRepository.findStatusViewsByIdIn(ids))
+                        .forEach(view -> byId.put(view.id(), view));
+            }
+            if (!trackingNumbers.isEmpty()) {
+                ReplicaRouting.onPrimary(() -> shipmentRepository.findStatusViewsByTrackingNumberIn(trackingNumbers))
+                        .forEach(view -> byTrackingNumber.put(view.trackingNumber(), view));
+            }
+
+            List<PendingStatusChange> pending = new ArrayList<>();
+            Set<Long> seen = new HashSet<>();
+            for (int row = from; row < to; row++) {
+                BulkStatusUpdateItem item = items.get(row);
+                String error = null;
+                ShipmentStatusView view = null;
+                if (item.getStatus() == null) {
+                    error = "Status cannot be null";
+                } else if ((item.getId() == null) == (item.getTrackingNumber() == null)) {
+                    error = "Provide exactly one of id or trackingNumber";
+                } else {
+                    view = item.getId() != null ? byId.get(item.getId()) : byTrackingNumber.get(item.getTrackingNumber());
+                    if (view == null) {
+                        error = "Shipment not found";
+                    } else if (!seen.add(view.id())) {
+                        error = "Shipment appears more than once in the batch";
+                    } else if (!view.status().canTransitionTo(item.getStatus())) {
+                        error = "Cannot move from " + view.status() + " to " + item.getStatus();
+                    }
+                }
+                if (error != null) {
+                    rejected.add(statusRowError(row, item, error));
+                } else if (view.status() == item.getStatus()) {
+                    unchanged++;
+                } else {
+                    pending.add(new PendingStatusChange(row, item, view));
+                }
+            }
+            if (pending.isEmpty()) {
+                continue;
+            }
+
+            // One JDBC batch of conditional UPDATEs plus the outbox rows, in one transaction
+            LocalDateTime now = LocalDateTime.now();
+            AppliedStatusChanges applied = transactionTemplate.execute(tx -> {
+                long changeVersion = shipmentRepository.nextChangeVersion();
+                int[] counts = jdbcTemplate.batchUpdate(UPDATE_STATUS_IF_VERSION_SQL, pending.stream()
+                        .map(change -> new Object[]{change.item().getStatus().name(), now, changeVersion,
+                                change.view().id(), change.view().version()})
+                        .toList());
+                List<PendingStatusChange> written = new ArrayList<>();
+                for (int i = 0; i < counts.length; i++) {
+                    if (counts[i] == 0) {
+                        rejected.add(statusRowError(pending.get(i).row(), pending.get(i).item(),
+                                "Shipment was modified concurrently, re-read it and try again"));
+                    } else {
+                        written.add(pending.get(i));
+                    }
+                }
+                outboxRepository.saveAll(written.stream()
+                        .map(change -> ShipmentOutboxEvent.ofStatusChange(change.view().id(),
+                                change.view().trackingNumber(), change.view().origin(), change.view().status(),
+                                change.item().getStatus(),
+                                change.view().version() + 1, changeVersion, now))
+                        .toList());
+                return new AppliedStatusChanges(written, changeVersion);
+            });
+            for (PendingStatusChange change : applied.changes()) {
+                shipmentCache.invalidate(change.view().id(), change.view().trackingNumber());
+                statsSnapshot.recordStatusChanged(change.view().status(), change.item().getStatus());
+                analytics.recordStatusChanged(change.view(), change.item().getStatus(), now);
+                searchIndex.recordStatusChanged(change.view().id(), change.item().getStatus(),
+                        change.view().version() + 1);
+                activeView.recordStatusChanged(change.view().id(), change.item().getStatus(), now,
+                        change.view().version() + 1, applied.changeVersion());
+            }
+            changeClock.tick(applied.changeVersion());
+            updated += applied.changes().size();
+        }
+
+        rejected.sort(Comparator.comparingInt(BatchRowError::getRow));
+        return BulkStatusUpdateResponse.builder()
+                .received(items.size())
+                .updated(updated)
+                .unchanged(unchanged)
+                .rejected(rejected)
+                .build();
+    }
+
+    private record PendingCreate(int row, CreateShipmentRequest request) {
+    }
+
+    private record PendingStatusChange(int row, BulkStatusUpdateItem item, ShipmentStatusView view) {
+    }
+
+    private record AppliedStatusChanges(List<PendingStatusChange> changes, long changeVersion) {
+    }
+
+    private BatchRowError statusRowError(int row, BulkStatusUpdateItem item, String message) {
+        return BatchRowError.builder()
+                .row(row)
+                .trackingNumber(item.getTrackingNumber())
+                .errors(Map.of(item.getStatus() == null ? "status" : "shipment", message))
+                .build();
+    }
 
     @Override
     public void deleteShipment(Long id) {
-        if (!shipmentRepository.existsById(id)) {
-            throw new ShipmentNotFoundException(id);
+        // Load rather than existsById: the stats snapshot needs the status and origin being removed
+        DeletedShipment deleted = transactionTemplate.execute(tx -> {
+            Shipment existing = shipmentRepository.findLockedById(id)
+                    .orElseThrow(() -> new ShipmentNotFoundException(id));
+            long changeVersion = shipmentRepository.nextChangeVersion();
+            LocalDateTime now = LocalDateTime.now();
+            // soft delete: the row moves to shipment_archive with deletedAt set, freeing its tracking number
+            shipmentRepository.moveToArchive(List.of(id), now, now);
+            // the tombstone tells /changes readers, the event tells live subscribers
+            tombstoneRepository.save(new ShipmentTombstone(id, existing.getTrackingNumber(), changeVersion, now, false));
+            outboxRepository.save(ShipmentOutboxEvent.ofDeletion(existing, changeVersion, now));
+            return new DeletedShipment(existing, changeVersion);
+        });
+        Shipment shipment = deleted.shipment();
+        shipmentCache.invalidate(id, shipment.getTrackingNumber());
+        statsSnapshot.recordDeleted(shipment);
+        analytics.recordDeleted(shipment);
+        searchIndex.recordDeleted(id);
+        activeView.recordDeleted(id);
+        changeClock.tick(deleted.changeVersion());
+    }
+
+    private record DeletedShipment(Shipment shipment, long changeVersion) {
+    }
+
+    @Override
+    public Page<ShipmentView> searchShipments(String origin, ShipmentStatus status, Pageable pageable) {
+        String originKey = Shipment.normalizeOrigin(origin);
+        // PENDING and IN_TRANSIT are answered from memory
+        if (activeView.canServe(status, pageable.getSort())) {
+            return activeView.find(status, originKey, null, null, pageable);
+        }
+        if (originKey != null && status != null) {
+            return shipmentRepository.findViewsByOriginKeyAndStatus(originKey, status, pageable);
+        } else if (originKey != null) {
+            return shipmentRepository.findViewsByOriginKey(originKey, pageable);
+        } else if (status != null) {
+            return shipmentRepository.findViewsByStatus(status, pageable);
+        } else {
+            return shipmentRepository.findViews(pageable);
         }
-        shipmentRepository.deleteById(id);
     }
 
     @Override
-    public Page<Shipment> searchShipments(String origin, ShipmentStatus status, Pageable pageable) {
-        if (origin != null && status != null) {
-            return shipmentRepository.findByOriginIgnoreCaseAndStatus(origin, status, pageable);
-        } else if (origin != null) {
-            return shipmentRepository.findByOriginIgnoreCase(origin, pageable);
+    public Slice<ShipmentView> searchShipmentsAfter(String origin, ShipmentStatus status, ShipmentCursor after, int size) {
+        // Ordering lives in the queries; the page request only carries the limit, so no OFFSET is generated
+        Pageable limit = PageRequest.of(0, size);
+        LocalDateTime time = after.lastUpdatedTime();
+        String originKey = Shipment.normalizeOrigin(origin);
+        if (activeView.canServe(status, Sort.unsorted())) {
+            return activeView.findAfter(status, originKey, after, size);
+        }
+        if (originKey != null && status != null) {
+            return shipmentRepository.findViewSliceByOriginAndStatusBefore(originKey, status, time, after.id(), limit);
+        } else if (originKey != null) {
+            return shipmentRepository.findViewSliceByOriginBefore(originKey, time, after.id(), limit);
         } else if (status != null) {
-            return shipmentRepository.findByStatus(status, pageable);
+            return shipmentRepository.findViewSliceByStatusBefore(status, time, after.id(), limit);
         } else {
-            return shipmentRepository.findAll(pageable);
+            return shipmentRepository.findViewSliceBefore(time, after.id(), limit);
         }
     }
 
     @Override
-    public ShipmentStatsDTO getShipmentStats() {
-        long totalShipments = shipmentRepository.count();
+    public Slice<ShipmentView> searchShipmentsAfter(String origin, ShipmentStatus status, ShipmentCursor after, int size,
+                                                    boolean includeArchived) {
+        Slice<ShipmentView> live = searchShipmentsAfter(origin, status, after, size);
+        if (!includeArchived) {
+            return live;
+        }
+        // A shipment is in exactly one of the tables, so merging two slices in the same order gives the page
+        Slice<ShipmentView> archived = archiveRepository.findViewSliceBefore(Shipment.normalizeOrigin(origin), status,
+                after.lastUpdatedTime(), after.id(), PageRequest.of(0, size));
+        List<ShipmentView> merged = new ArrayList<>(live.getContent());
+        merged.addAll(archived.getContent());
+        merged.sort(Comparator.comparing(ShipmentView::lastUpdatedTime).thenComparing(ShipmentView::id).reversed());
+        boolean hasNext = live.hasNext() || archived.hasNext() || merged.size() > size;
+        return new SliceImpl<>(merged.subList(0, Math.min(size, merged.size())), PageRequest.of(0, size), hasNext);
+    }
+
+    @Override
+    public Page<Map<String, Object>> searchShipmentFields(String origin, ShipmentStatus status, Set<ShipmentField> fields,
+                                                          Pageable pageable) {
+        return shipmentRepository.findFields(fields, Shipment.normalizeOrigin(origin), status, pageable);
+    }
 
-        Map<ShipmentStatus, Long> statusCounts = Arrays.stream(ShipmentStatus.values())
-                .collect(Collectors.toMap(
-                        status -> status,
-                        status -> shipmentRepository.countByStatus(status)
-                ));
+    @Override
+    public Slice<Map<String, Object>> searchShipmentFieldsAfter(String origin, ShipmentStatus status,
+                                                                Set<ShipmentField> fields, ShipmentCursor after, int size) {
+        return shipmentRepository.findFieldsBefore(fields, Shipment.normalizeOrigin(origin), status,
+                after.lastUpdatedTime(), after.id(), size);
+    }
+
+    @Override
+    public List<ShipmentSearchHit> searchText(String query, ShipmentStatus status, int limit) {
+        return searchIndex.search(query, status, limit);
+    }
 
-        String mostCommonOrigin = shipmentRepository.findMostCommonOrigin();
+    @Override
+    public ShipmentChanges getChangesSince(Long since, Long afterId, int limit) {
+        long fromVersion = since == null ? -1 : since;
+        long fromId = afterId == null ? Long.MAX_VALUE : afterId;
+        // Versions are taken before commit, so a higher one can become visible first. Stopping at the first
+        // change younger than the settle time keeps the returned position from skipping a late commit.
+        LocalDateTime settledBefore = LocalDateTime.now().minus(changesSettleTime);
+        PageRequest firstRows = PageRequest.of(0, limit + 1);
+        List<ShipmentView> changed = shipmentRepository.findViewsChangedAfter(fromVersion, fromId, firstRows);
+        List<ShipmentTombstone> deleted = tombstoneRepository.findChangedAfter(fromVersion, fromId, firstRows);
 
-        return ShipmentStatsDTO.builder()
-                .totalShipments(totalShipments)
-                .statusCounts(statusCounts)
-                .mostCommonOrigin(mostCommonOrigin)
+        // merge both lists by (changeVersion, id) until the limit or the first unsettled change
+        int c = 0;
+        int d = 0;
+        long version = Math.max(fromVersion, 0);
+        Long lastId = afterId;
+        boolean hasMore = false;
+        while (c < changed.size() || d < deleted.size()) {
+            ShipmentView view = c < changed.size() ? changed.get(c) : null;
+            ShipmentTombstone tombstone = d < deleted.size() ? deleted.get(d) : null;
+            boolean nextIsView = tombstone == null || view != null
+                    && (view.changeVersion() < tombstone.getChangeVersion()
+                    || view.changeVersion() == tombstone.getChangeVersion() && view.id() < tombstone.getShipmentId());
+            LocalDateTime changedAt = nextIsView ? view.lastUpdatedTime() : tombstone.getDeletedAt();
+            if (changedAt != null && !changedAt.isBefore(settledBefore)) {
+                break;
+            }
+            if (c + d == limit) {
+                hasMore = true;
+                break;
+            }
+            if (nextIsView) {
+                version = view.changeVersion();
+                lastId = view.id();
+                c++;
+            } else {
+                version = tombstone.getChangeVersion();
+                lastId = tombstone.getShipmentId();
+                d++;
+            }
+        }
+        return ShipmentChanges.builder()
+                .changed(changed.subList(0, c))
+                .deleted(deleted.subList(0, d))
+                .version(version)
+                .afterId(lastId)
+                .hasMore(hasMore)
                 .build();
     }
+
+    @Override
+    public ShipmentStatsDTO getShipmentStats() {
+        // Served from memory; see ShipmentStatsSnapshot for how it stays in sync with the database
+        return statsSnapshot.current();
+    }
+
+    @Override
+    public List<HeavyHitter> getTopOrigins(int limit) {
+        return analytics.topOrigins(limit);
+    }
+
+    @Override
+    public List<HeavyHitter> getTopDestinations(int limit) {
+        return analytics.topDestinations(limit);
+    }
+
+    @Override
+    public List<HeavyHitter> getTopLanes(int limit) {
+        return analytics.topLanes(limit);
+    }
+
+    @Override
+    public Map<String, Long> getCarrierCounts() {
+        return analytics.carrierCounts();
+    }
+
+    @Override
+    public Map<String, Long> getPriorityCounts() {
+        return analytics.priorityCounts();
+    }
+
+    @Override
+    public DeliveryTimeStats getDeliveryTimeStats() {
+        return analytics.deliveryTimes();
+    }
+
+    @Override
+    public List<ShipmentOutboxEvent> getShipmentEventsAfter(Long id, long afterSequence) {
+        return outboxRepository.findByShipmentIdAndSequenceGreaterThanOrderBySequence(id, afterSequence);
+    }
+
+    @Override
+    public List<ShipmentEvent> getShipmentHistory(Long id) {
+        // History outlives the shipment, so no existence check against the shipment table
+        return eventRepository.findByShipmentIdOrderBySequence(id);
+    }
+
+    @Override
+    public Slice<ShipmentEvent> searchEventsAfter(ShipmentStatus status, ShipmentCursor after, LocalDateTime to, int size) {
+        Pageable limit = PageRequest.of(0, size);
+        if (status != null) {
+            return eventRepository.findSliceByStatusAfter(status, after.lastUpdatedTime(), after.id(), to, limit);
+        }
+        return eventRepository.findSliceAfter(after.lastUpdatedTime(), after.id(), to, limit);
+    }
 }
@@ -0,0 +1,155 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.dto.OriginCount;
+import com.jayanti.freight_tracker.dto.ShipmentStatsDTO;
+import com.jayanti.freight_tracker.dto.StatusCount;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory shipment statistics kept up to date by the write paths in {@link ShipmentServiceImpl},
+ * so /stats never has to query the database.
+ *
+ * The counters are periodically replaced by a fresh aggregate from the database, which corrects any
+ * drift (writes that bypass the service, or deltas racing with the previous reconcile).
+ */
+@Component
+public class ShipmentStatsSnapshot {
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    private ShipmentChangeClock changeClock;
+
+    private volatile Counts counts = new Counts();
+
+    public ShipmentStatsDTO current() {
+        Counts current = counts;
+        Map<ShipmentStatus, Long> statusCounts = new EnumMap<>(ShipmentStatus.class);
+        long total = 0;
+        for (ShipmentStatus status : ShipmentStatus.values()) {
+            long count = current.byStatus.get(status).get();
+            statusCounts.put(status, count);
+            total += count;
+        }
+        return ShipmentStatsDTO.builder()
+                .totalShipments(total)
+                .statusCounts(statusCounts)
+                .mostCommonOrigin(current.mostCommonOrigin)
+                .build();
+    }
+
+    public void recordCreated(Shipment shipment) {
+        Counts current = counts;
+        current.adjust(shipment.getStatus(), shipment.getOrigin(), 1);
+    }
+
+    public void recordUpdated(ShipmentStatus previousStatus, String previousOrigin, Shipment updated) {
+        Counts current = counts;
+        current.adjust(previousStatus, previousOrigin, -1);
+        current.adjust(updated.getStatus(), updated.getOrigin(), 1);
+    }
+
+    // Status fast path: the origin did not change, so only the status counters move
+    public void recordStatusChanged(ShipmentStatus previousStatus, ShipmentStatus status) {
+        Counts current = counts;
+        current.adjust(previousStatus, null, -1);
+        current.adjust(status, null, 1);
+    }
+
+    public void recordDeleted(Shipment shipment) {
+        Counts current = counts;
+        current.adjust(shipment.getStatus(), shipment.getOrigin(), -1);
+    }
+
+    // Runs once at startup and then on a fixed delay; two GROUP BY queries replace all counters
+    @Scheduled(fixedDelayString = "${freight.stats.reconcile-interval:PT1M}")
+    public void reconcile() {
+        Counts fresh = new Counts();
+        for (StatusCount row : shipmentRepository.countGroupedByStatus()) {
+            if (row.status() != null) {
+                fresh.byStatus.get(row.status()).set(row.count());
+            }
+        }
+        long leaderCount = 0;
+        for (OriginCount row : shipmentRepository.countGroupedByOrigin()) {
+            if (row.origin() == null) {
+                continue;
+            }
+            fresh.byOrigin.put(row.origin(), new AtomicLong(row.count()));
+            if (row.count() > leaderCount) {
+                leaderCount = row.count();
+                fresh.mostCommonOrigin = row.origin();
+            }
+        }
+        Counts previous = counts;
+        counts = fresh;
+        // usually nothing drifted, and a tick would make every node-local ETag miss for no reason
+        if (!fresh.sameAs(previous)) {
+            changeClock.tick();
+        }
+    }
+
+    private static class Counts {
+        private final Map<ShipmentStatus, AtomicLong> byStatus = new EnumMap<>(ShipmentStatus.class);
+        private final Map<String, AtomicLong> byOrigin = new ConcurrentHashMap<>();
+        // Only promoted on increments; if the leader shrinks it is corrected by the next reconcile
+        private volatile String mostCommonOrigin;
+
+        Counts() {
+            for (ShipmentStatus status : ShipmentStatus.values()) {
+                byStatus.put(status, new AtomicLong());
+            }
+        }
+
+        // Origins that dropped to zero count as absent, as they do in a fresh aggregate
+        boolean sameAs(Counts other) {
+            for (ShipmentStatus status : ShipmentStatus.values()) {
+                if (byStatus.get(status).get() != other.byStatus.get(status).get()) {
+                    return false;
+                }
+            }
+            return Objects.equals(mostCommonOrigin, other.mostCommonOrigin)
+                    && nonZero(byOrigin).equals(nonZero(other.byOrigin));
+        }
+
+        private static Map<String, Long> nonZero(Map<String, AtomicLong> counts) {
+            Map<String, Long> values = new HashMap<>();
+            counts.forEach((key, count) -> {
+                if (count.get() != 0) {
+                    values.put(key, count.get());
+                }
+            });
+            return values;
+        }
+
+        void adjust(ShipmentStatus status, String origin, long delta) {
+            if (status != null) {
+                byStatus.get(status).addAndGet(delta);
+            }
+            if (origin == null) {
+                return;
+            }
+            long count = byOrigin.computeIfAbsent(origin, key -> new AtomicLong()).addAndGet(delta);
+            String leader = mostCommonOrigin;
+            if (delta > 0 && !origin.equals(leader)) {
+                AtomicLong leaderCount = leader == null ? null : byOrigin.get(leader);
+                if (leaderCount == null || count > leaderCount.get()) {
+                    mostCommonOrigin = origin;
+                }
+            }
+        }
+    }
+}
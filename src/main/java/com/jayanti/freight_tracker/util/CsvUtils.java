@@ -0,0 +1,16 @@
+package com.jayanti.freight_tracker.util;
+
+public class CsvUtils {
+
+    // Quotes a value only when it contains a separator, quote or line break (RFC 4180)
+    public static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
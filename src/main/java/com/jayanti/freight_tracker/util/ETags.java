@@ -0,0 +1,36 @@
+package com.jayanti.freight_tracker.util;
+
+import com.jayanti.freight_tracker.exception.BadRequestException;
+
+/**
+ * Shipment ETags are the quoted entity version, e.g. "3".
+ */
+public class ETags {
+
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Parses an If-Match header into the version it names.
+     *
+     * @return the version, or null when the header is absent or "*" (any version)
+     */
+    public static Long parseIfMatch(String header) {
+        if (header == null || header.isBlank() || header.trim().equals("*")) {
+            return null;
+        }
+        String tag = header.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // falls through to the error below
+            }
+        }
+        throw new BadRequestException("If-Match must be a single ETag returned by this API, got " + header);
+    }
+}
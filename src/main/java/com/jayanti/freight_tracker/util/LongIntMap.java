@@ -0,0 +1,110 @@
+package com.jayanti.freight_tracker.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from long keys to non-negative int values, in two primitive arrays: about 24 bytes per
+ * entry instead of the ~80 of a HashMap&lt;Long, Integer&gt; node with its boxed key and value. Linear probing,
+ * with backward-shift deletion so no tombstones build up. {@link Long#MIN_VALUE} cannot be a key.
+ *
+ * Not thread-safe.
+ */
+public class LongIntMap {
+
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntMap() {
+        allocate(16);
+    }
+
+    // -1 when absent
+    public int get(long key) {
+        for (int i = index(key); ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            if (keys[i] == FREE) {
+                return -1;
+            }
+        }
+    }
+
+    public void put(long key, int value) {
+        int i = index(key);
+        while (keys[i] != FREE && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == FREE) {
+            keys[i] = key;
+            if (++size > keys.length * 3 / 4) {
+                values[i] = value;
+                resize();
+                return;
+            }
+        }
+        values[i] = value;
+    }
+
+    // the removed value, or -1 when absent
+    public int remove(long key) {
+        int i = index(key);
+        while (keys[i] != key) {
+            if (keys[i] == FREE) {
+                return -1;
+            }
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+        // pull later entries of the probe run back into the gap, so lookups never stop early at it
+        int gap = i;
+        for (int j = (gap + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int home = index(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = FREE;
+        size--;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int index(long key) {
+        // Fibonacci hashing spreads sequential ids over the table
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, FREE);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int j = index(oldKeys[i]);
+                while (keys[j] != FREE) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
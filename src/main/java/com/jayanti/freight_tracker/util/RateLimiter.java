@@ -0,0 +1,61 @@
+package com.jayanti.freight_tracker.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets per key, implemented as GCRA: instead of a token count and a refill time, each bucket is
+ * one AtomicLong holding the time at which it will be full again. Taking a token is a CAS on that value,
+ * so concurrent requests never block each other, and the ConcurrentHashMap stripes keys across bins.
+ */
+public class RateLimiter<K> {
+
+    // perSecond tokens are added every second, up to burst
+    public record Limit(double perSecond, int burst) {
+        long intervalNanos() {
+            return (long) (1_000_000_000L / perSecond);
+        }
+    }
+
+    private final ConcurrentHashMap<K, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    public RateLimiter(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Takes a token from the bucket of {@code key}.
+     *
+     * @return 0 if one was available, otherwise the nanoseconds until the next one is
+     */
+    public long tryAcquire(K key, Limit limit) {
+        long interval = limit.intervalNanos();
+        // how far ahead of now the full-again time may be and still leave a token
+        long tolerance = interval * (limit.burst() - 1L);
+        long now = nanoClock.getAsLong();
+        AtomicLong fullAt = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        while (true) {
+            long current = fullAt.get();
+            long start = Math.max(current, now);
+            if (start - now > tolerance) {
+                return start - tolerance - now;
+            }
+            if (fullAt.compareAndSet(current, start + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    // Drops buckets that have refilled completely, which behave exactly like a new one. A request racing
+    // with the removal may update a dropped bucket, so a client gets at most one extra burst.
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        buckets.values().removeIf(fullAt -> fullAt.get() <= now);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
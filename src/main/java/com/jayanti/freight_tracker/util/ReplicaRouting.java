@@ -0,0 +1,41 @@
+package com.jayanti.freight_tracker.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Keeps the current thread's read-only transactions on the primary database when a read replica is configured
+ * (see config.ReplicaRoutingConfig): for reads a write is about to depend on, results that get cached, and
+ * clients that just wrote. Without a replica everything is on the primary anyway and this changes nothing.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = PINNED.get();
+        PINNED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                PINNED.remove();
+            }
+        }
+    }
+
+    // For a whole request; the caller must clear it with pinToPrimary(false) on the same thread
+    public static void pinToPrimary(boolean pinned) {
+        if (pinned) {
+            PINNED.set(Boolean.TRUE);
+        } else {
+            PINNED.remove();
+        }
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED.get());
+    }
+}
@@ -0,0 +1,161 @@
+package com.jayanti.freight_tracker.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of non-negative ints (row slots), split into chunks of 65536. A chunk holds the sorted low 16 bits of
+ * its members in a char[] while it has at most 4096 of them, and a 1024-long bitset past that. A value held by
+ * a few rows costs two bytes per row, one held by most rows one bit per slot: the layout of Roaring bitmaps,
+ * minus run containers.
+ *
+ * Not thread-safe. Readers that do not lock may see a chunk mid-update and fail with an
+ * {@link IndexOutOfBoundsException}; see {@link com.jayanti.freight_tracker.service.ActiveShipmentView}.
+ */
+public class SlotBitmap {
+
+    private static final int CHUNK_BITS = 16;
+    // past this many members the sorted array would outgrow the 8 KB bitset
+    private static final int MAX_ARRAY = 4096;
+    private static final char[] EMPTY = new char[0];
+
+    // per chunk: char[] of sorted low bits, long[1024] bitset, or null when empty
+    private Object[] chunks = new Object[0];
+    private int[] counts = new int[0];
+    private int cardinality;
+
+    public boolean add(int slot) {
+        int high = slot >>> CHUNK_BITS;
+        char low = (char) slot;
+        if (high >= chunks.length) {
+            int length = Math.max(high + 1, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, length);
+            counts = Arrays.copyOf(counts, length);
+        }
+        Object chunk = chunks[high];
+        int count = counts[high];
+        if (chunk instanceof long[] bits) {
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) != 0) {
+                return false;
+            }
+            bits[low >>> 6] |= mask;
+        } else {
+            char[] values = chunk == null ? EMPTY : (char[]) chunk;
+            int index = Arrays.binarySearch(values, 0, count, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (count == MAX_ARRAY) {
+                long[] bits = toBits(values, count);
+                bits[low >>> 6] |= 1L << low;
+                chunks[high] = bits;
+            } else {
+                int insert = -index - 1;
+                if (count == values.length) {
+                    values = Arrays.copyOf(values, Math.min(MAX_ARRAY, Math.max(4, count * 2)));
+                }
+                System.arraycopy(values, insert, values, insert + 1, count - insert);
+                values[insert] = low;
+                chunks[high] = values;
+            }
+        }
+        counts[high] = count + 1;
+        cardinality++;
+        return true;
+    }
+
+    public boolean remove(int slot) {
+        int high = slot >>> CHUNK_BITS;
+        char low = (char) slot;
+        if (high >= chunks.length || chunks[high] == null) {
+            return false;
+        }
+        Object chunk = chunks[high];
+        int count = counts[high];
+        if (chunk instanceof long[] bits) {
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                return false;
+            }
+            bits[low >>> 6] &= ~mask;
+            // back to an array at half the threshold, so a chunk hovering around it does not flip every write
+            if (count - 1 <= MAX_ARRAY / 2) {
+                chunks[high] = toArray(bits, count - 1);
+            }
+        } else {
+            char[] values = (char[]) chunk;
+            int index = Arrays.binarySearch(values, 0, count, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, count - index - 1);
+        }
+        counts[high] = count - 1;
+        if (count == 1) {
+            chunks[high] = null;
+        }
+        cardinality--;
+        return true;
+    }
+
+    public boolean contains(int slot) {
+        int high = slot >>> CHUNK_BITS;
+        if (high >= chunks.length) {
+            return false;
+        }
+        Object chunk = chunks[high];
+        char low = (char) slot;
+        if (chunk instanceof long[] bits) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+        return chunk instanceof char[] values && Arrays.binarySearch(values, 0, counts[high], low) >= 0;
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    // ascending
+    public void forEach(IntConsumer action) {
+        Object[] chunks = this.chunks;
+        int[] counts = this.counts;
+        for (int high = 0; high < chunks.length; high++) {
+            int base = high << CHUNK_BITS;
+            if (chunks[high] instanceof long[] bits) {
+                for (int word = 0; word < bits.length; word++) {
+                    long remaining = bits[word];
+                    while (remaining != 0) {
+                        action.accept(base | (word << 6) | Long.numberOfTrailingZeros(remaining));
+                        remaining &= remaining - 1;
+                    }
+                }
+            } else if (chunks[high] instanceof char[] values) {
+                for (int i = 0; i < counts[high]; i++) {
+                    action.accept(base | values[i]);
+                }
+            }
+        }
+    }
+
+    private static long[] toBits(char[] values, int count) {
+        long[] bits = new long[1 << (CHUNK_BITS - 6)];
+        for (int i = 0; i < count; i++) {
+            bits[values[i] >>> 6] |= 1L << values[i];
+        }
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int count) {
+        char[] values = new char[count];
+        int i = 0;
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                values[i++] = (char) ((word << 6) | Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1;
+            }
+        }
+        return values;
+    }
+}
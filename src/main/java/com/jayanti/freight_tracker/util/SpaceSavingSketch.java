@@ -0,0 +1,93 @@
+package com.jayanti.freight_tracker.util;
+
+import com.jayanti.freight_tracker.dto.HeavyHitter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving heavy-hitter sketch (Metwally, Agrawal, El Abbadi). Tracks at most {@code capacity} keys, so
+ * memory stays fixed however many distinct keys there are. When a new key arrives and the sketch is full, it
+ * replaces the smallest counter and inherits its count as error. Any key whose count is above
+ * total / capacity is always tracked, and a tracked key is never undercounted.
+ *
+ * Thread-safe; every method synchronizes on the sketch.
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(
+            Comparator.comparingLong((Counter counter) -> counter.count).thenComparing(counter -> counter.key));
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+    }
+
+    public synchronized void add(String key, long count) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            update(counter, counter.count + count, counter.error);
+        } else if (counters.size() < capacity) {
+            track(new Counter(key, count, 0));
+        } else {
+            Counter smallest = byCount.pollFirst();
+            counters.remove(smallest.key);
+            track(new Counter(key, smallest.count + count, smallest.count));
+        }
+    }
+
+    // Decrements a tracked key (deletes, or a field moving to another value). An untracked key is ignored: its
+    // count is already below every tracked one, and the periodic rebuild restores exact counts.
+    public synchronized void remove(String key, long count) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            long remaining = Math.max(0, counter.count - count);
+            update(counter, remaining, Math.min(counter.error, remaining));
+        }
+    }
+
+    public synchronized List<HeavyHitter> top(int limit) {
+        List<HeavyHitter> top = new ArrayList<>(Math.min(limit, counters.size()));
+        for (Iterator<Counter> it = byCount.descendingIterator(); it.hasNext() && top.size() < limit; ) {
+            Counter counter = it.next();
+            if (counter.count > 0) {
+                top.add(new HeavyHitter(counter.key, counter.count, counter.error));
+            }
+        }
+        return top;
+    }
+
+    private void track(Counter counter) {
+        counters.put(counter.key, counter);
+        byCount.add(counter);
+    }
+
+    // Counters are re-inserted because the TreeSet orders by count
+    private void update(Counter counter, long count, long error) {
+        byCount.remove(counter);
+        counter.count = count;
+        counter.error = error;
+        byCount.add(counter);
+    }
+
+    private static class Counter {
+        private final String key;
+        private long count;
+        private long error;
+
+        Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
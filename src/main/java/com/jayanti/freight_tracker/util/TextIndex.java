@@ -0,0 +1,192 @@
+package com.jayanti.freight_tracker.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index from words to document ids. The words themselves are indexed twice more: in a sorted
+ * dictionary for prefix (typeahead) lookups, and by their trigrams for substring and misspelled queries.
+ * A word is stored once however many documents contain it, so a city shared by a million shipments costs
+ * one dictionary entry and one postings set.
+ *
+ * Reads need no lock. Writers must be serialized by the caller, so that removing a word's last document
+ * and adding a new one cannot interleave.
+ */
+public class TextIndex {
+
+    public static final double EXACT = 1.0;
+    public static final double PREFIX = 0.9;
+    public static final double SUBSTRING = 0.7;
+    // misspellings score at most this, scaled by trigram similarity
+    public static final double FUZZY = 0.6;
+
+    // Dice similarity of padded trigram sets a word must reach to count as a misspelling of the query
+    private static final double MIN_SIMILARITY = 0.5;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // A word that matched a query word, and how well; ids are the documents containing it, highest first
+    public record WordMatch(String word, double score, NavigableSet<Long> ids, int count) {
+    }
+
+    // kept sorted so a caller that only needs the newest few documents of a common word can stop early
+    private static final class Postings {
+        private final ConcurrentSkipListSet<Long> ids = new ConcurrentSkipListSet<>();
+        // ConcurrentSkipListSet.size() walks the whole set
+        private volatile int count;
+    }
+
+    private final ConcurrentHashMap<String, Postings> postings = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<String> dictionary = new ConcurrentSkipListSet<>();
+    private final ConcurrentHashMap<String, Set<String>> wordsByTrigram = new ConcurrentHashMap<>();
+
+    // Lower-cased runs of letters and digits, e.g. "New York" -> [new, york], "TRK-0042" -> [trk, 0042]
+    public static List<String> words(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        return Arrays.stream(NON_WORD.split(text.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .toList();
+    }
+
+    public void add(long id, String word) {
+        Postings entry = postings.computeIfAbsent(word, key -> {
+            dictionary.add(key);
+            for (String trigram : trigrams(key)) {
+                wordsByTrigram.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(key);
+            }
+            return new Postings();
+        });
+        if (entry.ids.add(id)) {
+            entry.count++;
+        }
+    }
+
+    public void remove(long id, String word) {
+        Postings entry = postings.get(word);
+        if (entry == null || !entry.ids.remove(id) || --entry.count > 0) {
+            return;
+        }
+        postings.remove(word);
+        dictionary.remove(word);
+        for (String trigram : trigrams(word)) {
+            Set<String> words = wordsByTrigram.get(trigram);
+            if (words != null) {
+                words.remove(word);
+                if (words.isEmpty()) {
+                    wordsByTrigram.remove(trigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Words matching {@code query} (one word, as returned by {@link #words}), best first: the word itself and
+     * words it is a prefix of.
+     *
+     * @param approximate   Also words containing the query or close to it by trigram similarity, for queries
+     *                      of three or more characters. Costs a trigram pass over the candidate words.
+     * @param maxCandidates Upper bound on the words examined, which keeps a query on very common trigrams fast
+     *                      at the cost of possibly missing some weaker matches.
+     */
+    public List<WordMatch> match(String query, boolean approximate, int maxCandidates) {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        // prefix range of the sorted dictionary; the exact word sorts first
+        for (String word : dictionary.subSet(query, true, query + Character.MAX_VALUE, false)) {
+            if (scores.size() >= maxCandidates) {
+                break;
+            }
+            scores.put(word, word.equals(query) ? EXACT : PREFIX);
+        }
+        if (approximate && query.length() >= 3) {
+            Set<String> queryTrigrams = trigrams(query);
+            for (String word : candidates(query, queryTrigrams, maxCandidates)) {
+                if (scores.containsKey(word)) {
+                    continue;
+                }
+                if (word.contains(query)) {
+                    scores.put(word, SUBSTRING);
+                } else {
+                    double similarity = similarity(queryTrigrams, trigrams(word));
+                    if (similarity >= MIN_SIMILARITY) {
+                        scores.put(word, FUZZY * similarity);
+                    }
+                }
+            }
+        }
+        List<WordMatch> matches = new ArrayList<>(scores.size());
+        scores.forEach((word, score) -> {
+            Postings entry = postings.get(word);
+            if (entry != null) {
+                matches.add(new WordMatch(word, score, entry.ids.descendingSet(), entry.count));
+            }
+        });
+        matches.sort(Comparator.comparingDouble(WordMatch::score).reversed());
+        return matches;
+    }
+
+    public int wordCount() {
+        return postings.size();
+    }
+
+    // Words that can contain the query or reach MIN_SIMILARITY. Such a word shares at least k of the query's
+    // n trigrams, so it has one of the n - k + 1 rarest; a substring match has every unpadded one.
+    private Set<String> candidates(String query, Set<String> queryTrigrams, int maxCandidates) {
+        List<String> rarestFirst = queryTrigrams.stream()
+                .sorted(Comparator.comparingInt(trigram -> wordsByTrigram.getOrDefault(trigram, Set.of()).size()))
+                .toList();
+        int n = rarestFirst.size();
+        // dice = 2c / (n + m) with c <= m, so dice >= s needs c >= s * n / (2 - s)
+        int k = Math.max(1, (int) Math.ceil(MIN_SIMILARITY * n / (2 - MIN_SIMILARITY)));
+        Set<String> candidates = new HashSet<>();
+        rarestFirst.stream()
+                .filter(trigram -> trigram.charAt(0) != ' ' && trigram.charAt(2) != ' ')
+                .findFirst()
+                .ifPresent(trigram -> addCandidates(candidates, trigram, maxCandidates));
+        for (String trigram : rarestFirst.subList(0, n - k + 1)) {
+            addCandidates(candidates, trigram, maxCandidates);
+        }
+        return candidates;
+    }
+
+    private void addCandidates(Set<String> candidates, String trigram, int maxCandidates) {
+        for (String word : wordsByTrigram.getOrDefault(trigram, Set.of())) {
+            if (candidates.size() >= maxCandidates) {
+                return;
+            }
+            candidates.add(word);
+        }
+    }
+
+    // padded so short words have trigrams and the start of a word weighs more: "ny" -> "  n", " ny", "ny "
+    static Set<String> trigrams(String word) {
+        String padded = "  " + word + " ";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static double similarity(Set<String> a, Set<String> b) {
+        int shared = 0;
+        for (String trigram : a) {
+            if (b.contains(trigram)) {
+                shared++;
+            }
+        }
+        return 2.0 * shared / (a.size() + b.size());
+    }
+}
@@ -0,0 +1,299 @@
+package com.jayanti.freight_tracker.websocket;
+
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentOutboxRepository;
+import com.jayanti.freight_tracker.util.ReplicaRouting;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events for clients that cannot use STOMP (GET /api/shipments/stream). Every node reads every
+ * outbox event itself, without claiming it the way {@link com.jayanti.freight_tracker.service.ShipmentOutboxRelay}
+ * does, so a stream sees the writes of all nodes whichever node it is connected to. Each event gets a stream id
+ * and goes into a bounded ring buffer, so a client that reconnects with Last-Event-ID is sent what it missed
+ * before the live events.
+ *
+ * The outbox is read in change-version order. Versions are taken before commit, so the read starts again from
+ * the last event older than freight.changes.settle-time, and the ids sent since then keep a late commit from
+ * being missed or an event from being sent twice; a late commit arrives after events with higher versions.
+ *
+ * Idle streams hold no thread: the request goes async and the emitter is only touched when there is
+ * something to send. Each subscriber has its own queue, drained by a small pool, so a slow client
+ * delays only itself; one that falls too far behind is disconnected and resumes from the buffer.
+ */
+@Component
+public class ShipmentEventStream {
+
+    private static final Logger log = LoggerFactory.getLogger(ShipmentEventStream.class);
+
+    static final String RESET_EVENT = "reset";
+
+    @Autowired
+    private ShipmentOutboxRepository outboxRepository;
+
+    @Value("${freight.sse.replay-buffer:10000}")
+    private int replayCapacity;
+
+    @Value("${freight.sse.timeout:PT30M}")
+    private Duration timeout;
+
+    // frames waiting for one subscriber before it is disconnected
+    @Value("${freight.sse.max-queued:1000}")
+    private int maxQueued;
+
+    // ResponseBodyEmitter.send is synchronized, which would pin virtual threads, so this is a platform pool
+    @Value("${freight.sse.send-threads:8}")
+    private int sendThreads;
+
+    @Value("${freight.sse.batch-size:500}")
+    private int batchSize;
+
+    @Value("${freight.changes.settle-time:PT2S}")
+    private Duration settleTime;
+
+    // ids are "<epoch>-<n>"; the epoch tells this process's ids apart from another node's or a previous run's
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // guarded by this
+    private Entry[] ring;
+    private long nextId = 1;
+
+    private ExecutorService sendExecutor;
+
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    // only touched by poll(): every event up to this change version has been sent, and the ids (with their
+    // change versions) of those sent above it
+    private Long settledVersion;
+    private final Map<Long, Long> sentAbove = new HashMap<>();
+
+    @PostConstruct
+    void start() {
+        ring = new Entry[replayCapacity];
+        sendExecutor = Executors.newFixedThreadPool(sendThreads,
+                Thread.ofPlatform().name("sse-send-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    void stop() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * Opens a stream of the updates matching the filters.
+     *
+     * @param status      Only updates that leave a shipment in this status, or all if null.
+     * @param origin      Only shipments from this origin (case-insensitive), or all if null.
+     * @param lastEventId The id of the last event the client received, from the Last-Event-ID header.
+     *                    If it is no longer buffered, a "reset" event is sent instead of the replay.
+     */
+    public SseEmitter subscribe(ShipmentStatus status, String origin, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter, status, Shipment.normalizeOrigin(origin));
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscriber.close());
+        // under the lock, so nothing published in between is either missed or sent twice
+        synchronized (this) {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        }
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${freight.sse.poll-interval:PT0.2S}")
+    public void poll() {
+        // the position is read back from the results, so a lagging replica could skip events for good
+        ReplicaRouting.onPrimary(() -> {
+            if (settledVersion == null) {
+                // what had settled before startup is history, not news
+                settledVersion = outboxRepository.findMaxChangeVersionBefore(createdAt.minus(settleTime));
+            }
+            LocalDateTime settledBefore = LocalDateTime.now().minus(settleTime);
+            long settled = settledVersion;
+            boolean unsettledSeen = false;
+            long since = settledVersion;
+            long afterId = Long.MAX_VALUE;
+            List<ShipmentOutboxEvent> page;
+            do {
+                page = outboxRepository.findChangedAfter(since, afterId, PageRequest.of(0, batchSize));
+                List<ShipmentOutboxEvent> unsent = new ArrayList<>(page.size());
+                for (ShipmentOutboxEvent event : page) {
+                    if (sentAbove.putIfAbsent(event.getId(), event.getChangeVersion()) == null) {
+                        unsent.add(event);
+                    }
+                    // everything up to a settled event has committed; events of one write share its version
+                    unsettledSeen |= event.getLastUpdatedTime() != null
+                            && !event.getLastUpdatedTime().isBefore(settledBefore);
+                    if (!unsettledSeen) {
+                        settled = event.getChangeVersion();
+                    }
+                    since = event.getChangeVersion();
+                    afterId = event.getId();
+                }
+                publish(unsent);
+            } while (page.size() == batchSize);
+            long newlySettled = settled;
+            settledVersion = newlySettled;
+            sentAbove.values().removeIf(changeVersion -> changeVersion <= newlySettled);
+            return null;
+        });
+    }
+
+    private synchronized void publish(List<ShipmentOutboxEvent> events) {
+        for (ShipmentOutboxEvent event : events) {
+            Entry entry = new Entry(nextId, event.getStatus(), Shipment.normalizeOrigin(event.getOrigin()),
+                    frame(nextId, ShipmentUpdateMessage.from(event)));
+            ring[(int) (nextId % ring.length)] = entry;
+            nextId++;
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.matches(entry)) {
+                    subscriber.enqueue(entry.frame);
+                }
+            }
+        }
+    }
+
+    // Keeps proxies from closing idle streams and finds clients that went away without a FIN
+    @Scheduled(fixedDelayString = "${freight.sse.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        subscribers.forEach(subscriber -> subscriber.enqueue(ping));
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private void replay(Subscriber subscriber, String lastEventId) {
+        long after = parseId(lastEventId);
+        long oldest = Math.max(1, nextId - ring.length);
+        if (after < oldest - 1 || after >= nextId) {
+            log.debug("Cannot replay after lastEventId={} oldest={} next={}", lastEventId, oldest, nextId);
+            subscriber.enqueue(SseEmitter.event().name(RESET_EVENT)
+                    .data("Missed events are no longer buffered, re-read current state").build());
+            return;
+        }
+        for (long id = after + 1; id < nextId; id++) {
+            Entry entry = ring[(int) (id % ring.length)];
+            if (subscriber.matches(entry)) {
+                subscriber.enqueue(entry.frame);
+            }
+        }
+    }
+
+    // -1 for an id this process did not hand out, which is always too old to replay from
+    private long parseId(String lastEventId) {
+        int dash = lastEventId.indexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(dash + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // serialized once here and shared by every subscriber it goes to
+    private Set<DataWithMediaType> frame(long id, ShipmentUpdateMessage message) {
+        return SseEmitter.event().id(epoch + "-" + id).data(message, MediaType.APPLICATION_JSON).build();
+    }
+
+    private record Entry(long id, ShipmentStatus status, String originKey, Set<DataWithMediaType> frame) {
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final ShipmentStatus status;
+        private final String originKey;
+        private final ConcurrentLinkedQueue<Set<DataWithMediaType>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, ShipmentStatus status, String originKey) {
+            this.emitter = emitter;
+            this.status = status;
+            this.originKey = originKey;
+        }
+
+        boolean matches(Entry entry) {
+            return (status == null || status == entry.status)
+                    && (originKey == null || originKey.equals(entry.originKey));
+        }
+
+        void enqueue(Set<DataWithMediaType> frame) {
+            if (closed) {
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                // the client reconnects with Last-Event-ID and catches up from the ring buffer
+                log.debug("Disconnecting slow stream subscriber queued={}", queued.get());
+                close();
+                emitter.complete();
+                return;
+            }
+            queue.add(frame);
+            if (draining.compareAndSet(false, true)) {
+                sendExecutor.execute(this::drain);
+            }
+        }
+
+        // at most one drain per subscriber at a time, so frames go out in order
+        private void drain() {
+            try {
+                do {
+                    Set<DataWithMediaType> frame;
+                    while (!closed && (frame = queue.poll()) != null) {
+                        queued.decrementAndGet();
+                        emitter.send(frame);
+                    }
+                    draining.set(false);
+                } while (!closed && !queue.isEmpty() && draining.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                // the client went away; the container completes the emitter
+                log.debug("Stream send failed: {}", e.getMessage());
+                close();
+            }
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+        }
+    }
+}
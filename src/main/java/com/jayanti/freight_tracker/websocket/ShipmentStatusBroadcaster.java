@@ -1,24 +1,134 @@
 package com.jayanti.freight_tracker.websocket;
 
-import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+import com.jayanti.freight_tracker.service.ShipmentEventSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Component
-public class ShipmentStatusBroadcaster {
+public class ShipmentStatusBroadcaster implements ShipmentEventSink {
+
+    private static final Logger log = LoggerFactory.getLogger(ShipmentStatusBroadcaster.class);
+
+    public static final String ALL_SHIPMENTS_TOPIC = "/topic/shipments";
+    public static final String BATCH_TOPIC = "/topic/shipments/batch";
+    public static final String TRACKING_TOPIC_PREFIX = "/topic/shipments/tracking/";
+    public static final String STATUS_TOPIC_PREFIX = "/topic/shipments/status/";
 
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    // upper bound on distinct shipments waiting for the next flush
+    @Value("${freight.broadcast.max-pending:10000}")
+    private int maxPending;
+
+    // latest message per shipment id; repeated updates within one flush window replace each other
+    private final ConcurrentHashMap<Long, ShipmentUpdateMessage> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Takes a batch of committed events from the outbox relay. Events written by bulk ingestion are
+     * sent right away: as one list message on the batch topic instead of the firehose, and one by one
+     * on their tracking and status topics. Everything else is queued for the next flush.
+     *
+     * @param events The events drained from the outbox, in outbox order.
+     * @throws IllegalStateException If the queue is full; the relay then leaves the batch in the outbox.
+     */
+    @Override
+    public void publish(List<ShipmentOutboxEvent> events) {
+        List<ShipmentUpdateMessage> bulk = new ArrayList<>();
+        for (ShipmentOutboxEvent event : events) {
+            if (event.isBulk()) {
+                bulk.add(ShipmentUpdateMessage.from(event));
+            } else if (!broadcastUpdate(ShipmentUpdateMessage.from(event))) {
+                // whatever was queued from this batch is sent again on redelivery, and merged by sequence
+                rejected.incrementAndGet();
+                throw new IllegalStateException("Broadcast queue is full (" + pending.size() + " pending)");
+            }
+        }
+        if (!bulk.isEmpty()) {
+            log.debug("Broadcasting batch size={}", bulk.size());
+            messagingTemplate.convertAndSend(BATCH_TOPIC, bulk);
+            for (ShipmentUpdateMessage message : bulk) {
+                sendToShipmentTopics(message);
+            }
+            sent.addAndGet(bulk.size());
+        }
+    }
+
+    // Each event needs at most one new slot, since updates to a queued shipment replace it
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, maxPending - pending.size());
+    }
+
     /**
-     * Broadcasts a shipment update message to all connected clients.
+     * Queues a shipment update for the next flush. Does not block the caller on fan-out.
      *
-     * @param message The shipment update message to broadcast.
+     * @param message The update to send.
+     * @return false if the queue is full and the shipment is not already queued; nothing was queued then.
      */
-    // This method uses SimpMessagingTemplate to send messages to a specific topic
-    public void broadcastUpdate(Shipment message) {
-        System.out.println("Broadcasting: " + message);
-        messagingTemplate.convertAndSend("/topic/shipments", message);
+    public boolean broadcastUpdate(ShipmentUpdateMessage message) {
+        // size() is approximate under contention, which is fine for a soft bound
+        if (pending.size() >= maxPending && !pending.containsKey(message.getShipmentId())) {
+            log.debug("Queue full, rejected update shipmentId={} pending={}", message.getShipmentId(), pending.size());
+            return false;
+        }
+        // keep the newest event if the relay redelivers an older one
+        pending.merge(message.getShipmentId(), message, (queued, incoming) ->
+                incoming.getSequence() >= queued.getSequence() ? incoming : queued);
+        return true;
+    }
+
+    // Sends everything queued since the last run, once per shipment, to the firehose topic and
+    // to the per-shipment and per-status topics so clients can subscribe to only what they need
+    @Scheduled(fixedDelayString = "${freight.broadcast.flush-interval:PT0.1S}")
+    public void flush() {
+        for (Long shipmentId : pending.keySet()) {
+            ShipmentUpdateMessage message = pending.remove(shipmentId);
+            if (message == null) {
+                continue;
+            }
+            log.debug("Broadcasting shipmentId={} status={} sequence={}",
+                    shipmentId, message.getStatus(), message.getSequence());
+            messagingTemplate.convertAndSend(ALL_SHIPMENTS_TOPIC, message);
+            sendToShipmentTopics(message);
+            sent.incrementAndGet();
+        }
+    }
+
+    private void sendToShipmentTopics(ShipmentUpdateMessage message) {
+        messagingTemplate.convertAndSend(TRACKING_TOPIC_PREFIX + message.getTrackingNumber(), message);
+        messagingTemplate.convertAndSend(STATUS_TOPIC_PREFIX + message.getStatus(), message);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    // updates sent so far; a bulk list message counts once per shipment in it
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    // batches handed back to the relay because the queue was full; they stay in the outbox and are retried
+    public long getRejectedCount() {
+        return rejected.get();
     }
 }
@@ -1,8 +1,12 @@
 package com.jayanti.freight_tracker.websocket;
 
+import com.jayanti.freight_tracker.model.ShipmentEventType;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
 import com.jayanti.freight_tracker.model.ShipmentStatus;
 import lombok.*;
 
+import static com.jayanti.freight_tracker.util.DateUtils.format;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -10,6 +14,23 @@ import lombok.*;
 public class ShipmentUpdateMessage {
     private Long shipmentId;
     private String trackingNumber;
+    private String origin;
     private ShipmentStatus status;
     private String lastUpdatedTime;
+    private Long sequence;          // per-shipment event sequence, for de-duplication and resume
+    private Long changeVersion;     // global; resume point for GET /api/shipments/changes?since=
+    private ShipmentEventType eventType;
+
+    public static ShipmentUpdateMessage from(ShipmentOutboxEvent event) {
+        return ShipmentUpdateMessage.builder()
+                .shipmentId(event.getShipmentId())
+                .trackingNumber(event.getTrackingNumber())
+                .origin(event.getOrigin())
+                .status(event.getStatus())
+                .lastUpdatedTime(format(event.getLastUpdatedTime()))
+                .sequence(event.getSequence())
+                .changeVersion(event.getChangeVersion())
+                .eventType(event.getEventType())
+                .build();
+    }
 }
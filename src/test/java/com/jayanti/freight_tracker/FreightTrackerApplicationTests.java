@@ -4,7 +4,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
-@SpringBootTest
+// own in-memory database: this context stays cached, and its outbox relay would otherwise claim events
+// written by the other integration tests before their own relay does
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:contextloads")
 @ActiveProfiles("test")
 class FreightTrackerApplicationTests {
 
@@ -0,0 +1,126 @@
+package com.jayanti.freight_tracker.config;
+
+import com.jayanti.freight_tracker.exception.TooManyRequestsException;
+import com.jayanti.freight_tracker.service.LoadShedder;
+import com.jayanti.freight_tracker.util.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+class RateLimitInterceptorTest {
+
+    @Mock
+    private LoadShedder loadShedder;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private RateLimitInterceptor interceptor;
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private HandlerMethod handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(interceptor, "writePerSecond", 2.0);
+        ReflectionTestUtils.setField(interceptor, "writeBurst", 3);
+        ReflectionTestUtils.setField(interceptor, "pollPerSecond", 1.0);
+        ReflectionTestUtils.setField(interceptor, "pollBurst", 1);
+        ReflectionTestUtils.setField(interceptor, "readPerSecond", 100.0);
+        ReflectionTestUtils.setField(interceptor, "readBurst", 100);
+        ReflectionTestUtils.setField(interceptor, "sheddingRetryAfter", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(interceptor, "apiKeys", Set.of("client-a", "client-b"));
+        ReflectionTestUtils.setField(interceptor, "limiter", new RateLimiter<>(nanoTime::get));
+        interceptor.init();
+        handler = new HandlerMethod(new Object(), Object.class.getMethod("toString"));
+    }
+
+    @Test
+    void preHandle_AllowsABurstThenRefillsAtTheConfiguredRate() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(interceptor.preHandle(request("POST", "/api/shipments", "client-a"), new MockHttpServletResponse(), handler));
+        }
+        TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class, () ->
+                interceptor.preHandle(request("POST", "/api/shipments", "client-a"), new MockHttpServletResponse(), handler));
+        assertEquals(1, rejected.getRetryAfterSeconds());
+
+        // other clients and other endpoints have their own buckets
+        assertTrue(interceptor.preHandle(request("POST", "/api/shipments", "client-b"), new MockHttpServletResponse(), handler));
+        assertTrue(interceptor.preHandle(request("PUT", "/api/shipments/{id}", "client-a"), new MockHttpServletResponse(), handler));
+
+        // 2 per second: one token back after half a second
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(interceptor.preHandle(request("POST", "/api/shipments", "client-a"), new MockHttpServletResponse(), handler));
+        assertThrows(TooManyRequestsException.class, () ->
+                interceptor.preHandle(request("POST", "/api/shipments", "client-a"), new MockHttpServletResponse(), handler));
+
+        assertEquals(2.0, meterRegistry.get("freight.requests.rejected")
+                .tags("group", "write", "reason", "rate-limit").counter().count());
+    }
+
+    @Test
+    void preHandle_LimitsUnknownApiKeysByAddress() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(interceptor.preHandle(request("POST", "/api/shipments", "made-up-" + i), new MockHttpServletResponse(), handler));
+        }
+        // a fresh key from the same address lands in the same bucket
+        assertThrows(TooManyRequestsException.class, () ->
+                interceptor.preHandle(request("POST", "/api/shipments", "made-up-3"), new MockHttpServletResponse(), handler));
+        assertTrue(interceptor.preHandle(request("POST", "/api/shipments", "client-a"), new MockHttpServletResponse(), handler));
+    }
+
+    @Test
+    void preHandle_ShedsWritesAndPollingButNotReadsWhenOverloaded() {
+        when(loadShedder.isOverloaded()).thenReturn(true);
+
+        TooManyRequestsException shed = assertThrows(TooManyRequestsException.class, () ->
+                interceptor.preHandle(request("PATCH", "/api/shipments/{id}/status", "client-a"), new MockHttpServletResponse(), handler));
+        assertEquals(2, shed.getRetryAfterSeconds());
+        assertThrows(TooManyRequestsException.class, () ->
+                interceptor.preHandle(request("GET", "/api/shipments/stats", "client-a"), new MockHttpServletResponse(), handler));
+        assertTrue(interceptor.preHandle(request("GET", "/api/shipments/{id}", "client-a"), new MockHttpServletResponse(), handler));
+
+        assertEquals(1.0, meterRegistry.get("freight.requests.rejected")
+                .tags("group", "poll", "reason", "overload").counter().count());
+    }
+
+    @Test
+    void evictIdleBuckets_DropsOnlyRefilledBuckets() {
+        interceptor.preHandle(request("GET", "/api/shipments/changes", "client-a"), new MockHttpServletResponse(), handler);
+        interceptor.evictIdleBuckets();
+        RateLimiter<?> limiter = (RateLimiter<?>) ReflectionTestUtils.getField(interceptor, "limiter");
+        assertEquals(1, limiter.size());
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        interceptor.evictIdleBuckets();
+        assertEquals(0, limiter.size());
+    }
+
+    private static MockHttpServletRequest request(String method, String pattern, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, pattern);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        request.addHeader(RateLimitInterceptor.API_KEY_HEADER, apiKey);
+        return request;
+    }
+}
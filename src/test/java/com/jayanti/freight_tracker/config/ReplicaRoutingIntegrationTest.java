@@ -0,0 +1,133 @@
+package com.jayanti.freight_tracker.config;
+
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Runs the app against two embedded H2 databases, a primary and a "replica" that only gets what the test
+ * copies into it, so each read shows which one it went to.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "freight.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "freight.replica.lag-query=SELECT seconds FROM replica_lag",
+        "freight.replica.max-lag=PT2S",
+        // the test drives the checks itself
+        "freight.replica.lag-check-interval=PT1H"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReplicaRoutingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ShipmentRepository shipmentRepository;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    private JdbcTemplate replicaJdbc;
+
+    @BeforeEach
+    void setup() {
+        shipmentRepository.deleteAll();
+        // the replica starts as an empty copy of the primary's schema
+        replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("DROP ALL OBJECTS");
+        for (String statement : new JdbcTemplate(primary).queryForList("SCRIPT NODATA", String.class)) {
+            replicaJdbc.execute(statement);
+        }
+        replicaJdbc.execute("CREATE TABLE replica_lag (seconds DOUBLE)");
+        replicaJdbc.update("INSERT INTO replica_lag VALUES (0)");
+        lagMonitor.check();
+    }
+
+    @Test
+    void readsGoToTheReplicaExceptForRecentWritersAndWhileItLags() throws Exception {
+        Cookie lastWrite = create("TRKREP01");
+
+        // another client reads the replica, which has not caught up; the writer reads its own write
+        listShipments().andExpect(jsonPath("$.length()").value(0));
+        listShipments(lastWrite).andExpect(jsonPath("$[0].trackingNumber").value("TRKREP01"));
+        // clients that drop cookies send the header instead
+        mockMvc.perform(get("/api/shipments")
+                        .header(ReplicaStickinessInterceptor.LAST_WRITE_HEADER, lastWrite.getValue()))
+                .andExpect(jsonPath("$[0].trackingNumber").value("TRKREP01"));
+        // a write time outside the window no longer pins
+        listShipments(new Cookie(ReplicaStickinessInterceptor.LAST_WRITE_COOKIE,
+                Long.toString(System.currentTimeMillis() - 60_000)))
+                .andExpect(jsonPath("$.length()").value(0));
+        // lookups by id are cached, so they always come from the primary
+        Long id = new JdbcTemplate(primary).queryForObject(
+                "SELECT id FROM shipment WHERE tracking_number = 'TRKREP01'", Long.class);
+        mockMvc.perform(get("/api/shipments/" + id)).andExpect(status().isOk());
+
+        // replication catches up
+        replicate();
+        listShipments().andExpect(jsonPath("$[0].trackingNumber").value("TRKREP01"));
+
+        // the replica falls behind: everyone reads the primary until it recovers
+        create("TRKREP02");
+        replicaJdbc.update("UPDATE replica_lag SET seconds = 30");
+        lagMonitor.check();
+        listShipments().andExpect(jsonPath("$.length()").value(2));
+        replicaJdbc.update("UPDATE replica_lag SET seconds = 0.5");
+        lagMonitor.check();
+        listShipments().andExpect(jsonPath("$.length()").value(1));
+    }
+
+    private Cookie create(String trackingNumber) throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"origin\": \"Reno\", \"destination\": \"Elko\", \"status\": \"DELIVERED\", " +
+                                "\"trackingNumber\": \"" + trackingNumber + "\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(ReplicaStickinessInterceptor.LAST_WRITE_HEADER))
+                .andReturn().getResponse();
+        return response.getCookie(ReplicaStickinessInterceptor.LAST_WRITE_COOKIE);
+    }
+
+    private ResultActions listShipments(Cookie... cookies) throws Exception {
+        var request = get("/api/shipments");
+        if (cookies.length > 0) {
+            request.cookie(cookies);
+        }
+        return mockMvc.perform(request).andExpect(status().isOk());
+    }
+
+    // copies the primary's shipments, standing in for streaming replication
+    private void replicate() {
+        List<String> inserts = new JdbcTemplate(primary).queryForList("SCRIPT TABLE shipment", String.class).stream()
+                .filter(statement -> statement.startsWith("INSERT"))
+                .toList();
+        inserts.forEach(replicaJdbc::execute);
+    }
+}
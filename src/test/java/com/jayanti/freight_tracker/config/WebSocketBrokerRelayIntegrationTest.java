@@ -0,0 +1,114 @@
+package com.jayanti.freight_tracker.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.*;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the app with freight.websocket.broker=relay against an embedded Artemis broker speaking STOMP,
+ * standing in for the external broker used in production.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class WebSocketBrokerRelayIntegrationTest {
+
+    private static EmbeddedActiveMQ broker;
+    private static int stompPort;
+
+    @Autowired
+    private StompBrokerRelayMessageHandler relayHandler;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            stompPort = socket.getLocalPort();
+        }
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("stomp", "tcp://localhost:" + stompPort + "?protocols=STOMP"));
+        broker.start();
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        broker.stop();
+    }
+
+    @DynamicPropertySource
+    static void relayProperties(DynamicPropertyRegistry registry) {
+        // separate in-memory database so this context's create-drop does not touch the shared one
+        registry.add("spring.datasource.url", () -> "jdbc:h2:mem:relaytest");
+        registry.add("freight.websocket.broker", () -> "relay");
+        registry.add("freight.websocket.relay.host", () -> "localhost");
+        registry.add("freight.websocket.relay.port", () -> stompPort);
+    }
+
+    @Test
+    void relayForwardsBroadcastsToTheExternalBroker() throws Exception {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!relayHandler.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertTrue(relayHandler.isBrokerAvailable(), "relay never connected to the broker");
+
+        // Subscribe straight on the broker, the way another freight-tracker node's relay would
+        ReactorNettyTcpStompClient client = new ReactorNettyTcpStompClient(
+                new ReactorNettyTcpClient<>("localhost", stompPort, new StompReactorNettyCodec()));
+        client.setMessageConverter(new StringMessageConverter());
+        ThreadPoolTaskScheduler receiptScheduler = new ThreadPoolTaskScheduler();
+        receiptScheduler.initialize();
+        client.setTaskScheduler(receiptScheduler);
+        CompletableFuture<String> received = new CompletableFuture<>();
+        CompletableFuture<StompHeaders> subscribed = new CompletableFuture<>();
+
+        StompSession session = client.connectAsync(new StompSessionHandlerAdapter() {
+        }).get(10, TimeUnit.SECONDS);
+        StompHeaders subscribeHeaders = new StompHeaders();
+        subscribeHeaders.setDestination("/topic/shipments");
+        subscribeHeaders.setReceipt("subscribed");
+        session.setAutoReceipt(true);
+        session.subscribe(subscribeHeaders, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.complete((String) payload);
+            }
+        }).addReceiptTask(() -> subscribed.complete(null));
+        subscribed.get(10, TimeUnit.SECONDS);
+
+        messagingTemplate.convertAndSend("/topic/shipments", "relayed");
+
+        assertTrue(received.get(10, TimeUnit.SECONDS).contains("relayed"));
+        session.disconnect();
+        client.shutdown();
+        receiptScheduler.shutdown();
+    }
+}
@@ -2,23 +2,61 @@ package com.jayanti.freight_tracker.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.jayanti.freight_tracker.dto.CreateShipmentRequest;
+import com.jayanti.freight_tracker.dto.UpdateShipmentRequest;
+import com.jayanti.freight_tracker.exception.ShipmentConflictException;
+import com.jayanti.freight_tracker.model.JobLease;
 import com.jayanti.freight_tracker.model.Priority;
+import com.jayanti.freight_tracker.model.Shipment;
 import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ArchivedShipmentRepository;
+import com.jayanti.freight_tracker.repository.JobLeaseRepository;
+import com.jayanti.freight_tracker.repository.ShipmentEventRepository;
+import com.jayanti.freight_tracker.repository.ShipmentOutboxRepository;
 import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import com.jayanti.freight_tracker.service.ActiveShipmentView;
+import com.jayanti.freight_tracker.service.OriginKeyBackfill;
+import com.jayanti.freight_tracker.service.ShipmentAnalytics;
+import com.jayanti.freight_tracker.service.ShipmentArchiver;
+import com.jayanti.freight_tracker.service.ShipmentChangeFollower;
+import com.jayanti.freight_tracker.service.ShipmentOutboxRelay;
+import com.jayanti.freight_tracker.service.ShipmentSearchIndex;
+import com.jayanti.freight_tracker.service.ShipmentService;
+import com.jayanti.freight_tracker.service.ShipmentStatsSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+// keeps the Prometheus registry, which tests otherwise replace with a no-op one
+@AutoConfigureObservability
 @ActiveProfiles("test")
 class ShipmentControllerIntegrationTest {
 
@@ -31,9 +69,58 @@ class ShipmentControllerIntegrationTest {
     @Autowired
     private ShipmentRepository shipmentRepository;
 
+    @Autowired
+    private ShipmentStatsSnapshot statsSnapshot;
+
+    @Autowired
+    private ShipmentOutboxRepository outboxRepository;
+
+    @Autowired
+    private ShipmentOutboxRelay outboxRelay;
+
+    @Autowired
+    private ShipmentEventRepository eventRepository;
+
+    @Autowired
+    private ShipmentService shipmentService;
+
+    @Autowired
+    private ShipmentAnalytics shipmentAnalytics;
+
+    @Autowired
+    private ArchivedShipmentRepository archiveRepository;
+
+    @Autowired
+    private ShipmentArchiver archiver;
+
+    @Autowired
+    private JobLeaseRepository leaseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShipmentSearchIndex searchIndex;
+
+    @Autowired
+    private ActiveShipmentView activeView;
+
+    @Autowired
+    private ShipmentChangeFollower changeFollower;
+
+    @Autowired
+    private OriginKeyBackfill originKeyBackfill;
+
     @BeforeEach
     void setup() {
+        outboxRepository.deleteAll();
+        eventRepository.deleteAll();
         shipmentRepository.deleteAll();
+        archiveRepository.deleteAll();
+        // deleteAll bypasses the service, so resync the in-memory stats, search index and active view
+        statsSnapshot.reconcile();
+        searchIndex.rebuild();
+        activeView.rebuild();
     }
 
     // ------------------- CREATE + GET ALL -------------------
@@ -59,6 +146,158 @@ class ShipmentControllerIntegrationTest {
                 .andExpect(jsonPath("$[0].origin").value("New York"));
     }
 
+    // ------------------- BATCH CREATE -------------------
+    @Test
+    void createShipmentsBatch_fromJsonArray() throws Exception {
+        String batchJson = """
+            [
+                {"origin": "Austin", "destination": "Denver", "status": "PENDING", "trackingNumber": "TRKB0001"},
+                {"origin": "Austin", "destination": "Reno", "status": "IN_TRANSIT", "trackingNumber": "TRKB0002"},
+                {"origin": "Austin", "destination": "Boise", "status": "PENDING", "trackingNumber": "TRKB0001"},
+                {"origin": "", "destination": "Boise", "status": "PENDING", "trackingNumber": "TRKB0003"}
+            ]
+        """;
+
+        mockMvc.perform(post("/api/shipments/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(4))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rejected[0].row").value(2))
+                .andExpect(jsonPath("$.rejected[0].errors.trackingNumber").exists())
+                .andExpect(jsonPath("$.rejected[1].errors.origin").value("Origin is required"));
+
+        mockMvc.perform(get("/api/shipments"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void createShipmentsBatch_fromJsonArrayReportsUnmappableElementsAsRowErrors() throws Exception {
+        String batchJson = """
+            [
+                {"origin": "Austin", "destination": "Denver", "status": "LOST", "trackingNumber": "TRKB0101"},
+                {"origin": "Austin", "destination": "Reno", "status": "PENDING", "trackingNumber": "TRKB0102"},
+                null,
+                {"origin": "Austin", "destination": "Boise", "status": "PENDING", "priority": ["HIGH"], "trackingNumber": "TRKB0103"},
+                {"origin": "Austin", "destination": "Boise", "status": "PENDING", "trackingNumber": "TRKB0104"}
+            ]
+        """;
+
+        mockMvc.perform(post("/api/shipments/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(batchJson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(5))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rejected[0].row").value(0))
+                .andExpect(jsonPath("$.rejected[0].errors.row").exists())
+                .andExpect(jsonPath("$.rejected[1].row").value(2))
+                .andExpect(jsonPath("$.rejected[2].row").value(3));
+        assertTrue(shipmentRepository.findByTrackingNumber("TRKB0104").isPresent());
+
+        mockMvc.perform(post("/api/shipments/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(0));
+        mockMvc.perform(post("/api/shipments/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"origin\": \"Austin\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Expected a JSON array of shipments"));
+        mockMvc.perform(post("/api/shipments/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"origin\": \"Austin\", "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void createShipmentsBatch_fromNdjsonRejectsStoredTrackingNumbers() throws Exception {
+        String first = """
+            {"origin": "Tulsa", "destination": "Omaha", "status": "PENDING", "trackingNumber": "TRKN0001"}
+            """;
+        String second = first + """
+            {"origin": "Tulsa", "destination": "Wichita", "status": "PENDING", "trackingNumber": "TRKN0002"}
+            """;
+
+        mockMvc.perform(post("/api/shipments/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(first))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1));
+
+        mockMvc.perform(post("/api/shipments/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(second))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected[0].trackingNumber").value("TRKN0001"))
+                .andExpect(jsonPath("$.rejected[0].errors.trackingNumber").value("Tracking number already exists"));
+    }
+
+    @Test
+    void createShipmentsBatch_fromNdjsonReportsNullAndUnmappableRows() throws Exception {
+        String body = """
+            {"origin": "Tulsa", "destination": "Omaha", "status": "PENDING", "trackingNumber": "TRKN0101"}
+            null
+            {"origin": "Tulsa", "destination": "Omaha", "status": "LOST", "trackingNumber": "TRKN0102"}
+            {"origin": "Tulsa", "destination": "Omaha", "status": "PENDING", "trackingNumber": "TRKN0103"}
+            """;
+
+        mockMvc.perform(post("/api/shipments/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(4))
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.rejected[0].row").value(1))
+                .andExpect(jsonPath("$.rejected[0].errors.row").exists())
+                .andExpect(jsonPath("$.rejected[1].row").value(2))
+                .andExpect(jsonPath("$.rejected[1].errors.row").exists());
+
+        mockMvc.perform(post("/api/shipments/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"origin\": \"Tulsa\", \"destination\": "))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ------------------- EXPORT -------------------
+    @Test
+    void exportShipments_streamsNdjsonAndCsv() throws Exception {
+        mockMvc.perform(post("/api/shipments/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [
+                        {"origin": "Fresno", "destination": "Sacramento, CA", "status": "PENDING", "trackingNumber": "TRKEXP01"},
+                        {"origin": "Fresno", "destination": "Oakland", "status": "DELIVERED", "trackingNumber": "TRKEXP02"}
+                    ]
+                """));
+
+        MvcResult ndjson = mockMvc.perform(get("/api/shipments/export").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String ndjsonBody = mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = ndjsonBody.trim().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("TRKEXP01",
+                objectMapper.readTree(lines[0]).get("trackingNumber").asText());
+
+        MvcResult csv = mockMvc.perform(get("/api/shipments/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(csv))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=shipments.csv"))
+                .andExpect(content().string(startsWith(
+                        "id,trackingNumber,origin,destination,status,carrier,priority,lastUpdatedTime\n")))
+                .andExpect(content().string(containsString(",TRKEXP01,Fresno,\"Sacramento, CA\",PENDING,,,")));
+    }
+
     // ------------------- GET BY ID -------------------
     @Test
     void getShipmentById_shouldReturnShipment() throws Exception {
@@ -86,6 +325,28 @@ class ShipmentControllerIntegrationTest {
                 .andExpect(jsonPath("$.trackingNumber").value("TRK98765"));
     }
 
+    @Test
+    void getShipmentByTrackingNumber_shouldReturnShipment() throws Exception {
+        CreateShipmentRequest request = new CreateShipmentRequest();
+        request.setOrigin("Newark");
+        request.setDestination("Albany");
+        request.setStatus(ShipmentStatus.PENDING);
+        request.setTrackingNumber("TRKLOOKUP");
+
+        mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/shipments/tracking/TRKLOOKUP"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.origin").value("Newark"));
+
+        mockMvc.perform(get("/api/shipments/tracking/TRKMISSING"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Shipment not found with tracking number TRKMISSING"));
+    }
+
     // ------------------- UPDATE SHIPMENT -------------------
     @Test
     void updateShipment_shouldModifyFields() throws Exception {
@@ -127,6 +388,323 @@ class ShipmentControllerIntegrationTest {
                 .andExpect(jsonPath("$.status").value("IN_TRANSIT"));
     }
 
+    @Test
+    void updateShipment_shouldHonourIfMatchAndRejectIllegalTransitions() throws Exception {
+        String created = mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {"origin": "Austin", "destination": "Tampa", "status": "PENDING", "trackingNumber": "TRKETAG1"}
+                        """))
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+
+        String etag = mockMvc.perform(get("/api/shipments/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(put("/api/shipments/" + id)
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+
+        // a second writer still holding the old ETag must not overwrite the first one's change
+        mockMvc.perform(put("/api/shipments/" + id)
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"destination\": \"Miami\", \"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(put("/api/shipments/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"DELIVERED\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/shipments/" + id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"PENDING\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value(containsString("DELIVERED to PENDING")));
+
+        mockMvc.perform(put("/api/shipments/" + id)
+                        .header("If-Match", "garbage")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"DELIVERED\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getShipment_shouldAnswerConditionalRequestsWith304UntilTheShipmentChanges() throws Exception {
+        String created = mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {"origin": "Austin", "destination": "Tampa", "status": "PENDING", "trackingNumber": "TRKCOND1"}
+                        """))
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+
+        mockMvc.perform(get("/api/shipments/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0\""))
+                .andExpect(header().doesNotExist("Last-Modified"));
+
+        mockMvc.perform(get("/api/shipments/" + id).header("If-None-Match", "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/shipments/tracking/TRKCOND1").header("If-None-Match", "\"0\""))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(patch("/api/shipments/" + id + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/shipments/" + id).header("If-None-Match", "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.status").value("IN_TRANSIT"));
+        mockMvc.perform(get("/api/shipments/tracking/TRKCOND1").header("If-None-Match", "\"1\""))
+                .andExpect(status().isNotModified());
+
+        // a write on another node only reaches the database: both cached lookups still match the old version
+        // until the follower drops them, and then the new version comes back
+        jdbcTemplate.update("UPDATE shipment SET status = 'DELIVERED', version = version + 1, change_version = ?, "
+                + "last_updated_time = ? WHERE id = ?", shipmentRepository.nextChangeVersion(), LocalDateTime.now(), id);
+        mockMvc.perform(get("/api/shipments/" + id).header("If-None-Match", "\"1\""))
+                .andExpect(status().isNotModified());
+        changeFollower.poll();
+        mockMvc.perform(get("/api/shipments/" + id).header("If-None-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""))
+                .andExpect(jsonPath("$.status").value("DELIVERED"));
+        mockMvc.perform(get("/api/shipments/tracking/TRKCOND1").header("If-None-Match", "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""));
+    }
+
+    @Test
+    void listsAndStats_shouldAnswer304UntilAWriteMovesTheChangeClock() throws Exception {
+        createShipment("Reno", "PENDING", "TRKCOND2");
+        String etag = mockMvc.perform(get("/api/shipments/search").param("status", "PENDING"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andReturn().getResponse().getHeader("ETag");
+
+        for (String path : List.of("/api/shipments/search?status=PENDING", "/api/shipments/search/cursor",
+                "/api/shipments", "/api/shipments/stats", "/api/shipments/stats/origins")) {
+            mockMvc.perform(get(path).header("If-None-Match", etag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string("ETag", etag))
+                    .andExpect(content().string(""));
+        }
+
+        // a write through this node
+        long id = shipmentRepository.findByTrackingNumber("TRKCOND2").orElseThrow().getId();
+        mockMvc.perform(patch("/api/shipments/" + id + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isOk());
+        etag = mockMvc.perform(get("/api/shipments/search").param("status", "PENDING")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0))
+                .andReturn().getResponse().getHeader("ETag");
+        // once the follower has passed the write, the tag is the position every node at it hands out
+        changeFollower.poll();
+        etag = mockMvc.perform(get("/api/shipments").header("If-None-Match", etag))
+                .andReturn().getResponse().getHeader("ETag");
+        assertTrue(etag.matches("\"\\d+(\\.\\d+)?\""), etag);
+
+        // a write on another node only reaches the database; the tag moves when the follower applies it
+        jdbcTemplate.update("UPDATE shipment SET destination = 'Ely', version = version + 1, change_version = ?, "
+                + "last_updated_time = ? WHERE id = ?", shipmentRepository.nextChangeVersion(), LocalDateTime.now(), id);
+        mockMvc.perform(get("/api/shipments").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        changeFollower.poll();
+        mockMvc.perform(get("/api/shipments").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].destination").value("Ely"));
+    }
+
+    @Test
+    void concurrentUpdates_shouldNeverLoseAWrite() throws Exception {
+        String created = mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {"origin": "Dayton", "destination": "Akron", "status": "IN_TRANSIT", "trackingNumber": "TRKRACE1"}
+                        """))
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> writers = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String destination = "Stop " + i;
+            writers.add(pool.submit(() -> {
+                UpdateShipmentRequest request = new UpdateShipmentRequest();
+                request.setDestination(destination);
+                request.setStatus(ShipmentStatus.IN_TRANSIT);
+                try {
+                    shipmentService.updateShipment(id, request, null);
+                    succeeded.incrementAndGet();
+                } catch (ShipmentConflictException e) {
+                    // lost the race and was told so; never silently overwritten
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // every successful write bumped the version exactly once and produced exactly one event
+        assertEquals(succeeded.get(), shipmentRepository.findById(id).orElseThrow().getVersion());
+        assertEquals(succeeded.get() + 1, outboxRepository.findByShipmentIdAndSequenceGreaterThanOrderBySequence(id, 0).size());
+    }
+
+    @Test
+    void patchStatus_shouldUpdateSingleAndBulkWithoutFullPut() throws Exception {
+        mockMvc.perform(post("/api/shipments/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [
+                        {"origin": "Provo", "destination": "Mesa", "status": "PENDING", "trackingNumber": "TRKPAT01"},
+                        {"origin": "Provo", "destination": "Mesa", "status": "PENDING", "trackingNumber": "TRKPAT02"},
+                        {"origin": "Provo", "destination": "Mesa", "status": "DELIVERED", "trackingNumber": "TRKPAT03"}
+                    ]
+                """));
+        long id = shipmentRepository.findByTrackingNumber("TRKPAT01").orElseThrow().getId();
+        // warm the cache so a stale read would show up below
+        mockMvc.perform(get("/api/shipments/" + id)).andExpect(jsonPath("$.status").value("PENDING"));
+
+        mockMvc.perform(patch("/api/shipments/" + id + "/status")
+                        .header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.previousStatus").value("PENDING"))
+                .andExpect(jsonPath("$.status").value("IN_TRANSIT"));
+
+        mockMvc.perform(get("/api/shipments/" + id))
+                .andExpect(jsonPath("$.status").value("IN_TRANSIT"))
+                .andExpect(jsonPath("$.destination").value("Mesa"));
+
+        mockMvc.perform(patch("/api/shipments/" + id + "/status")
+                        .header("If-Match", "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"DELIVERED\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(patch("/api/shipments/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            [
+                                {"id": %d, "status": "DELIVERED"},
+                                {"trackingNumber": "TRKPAT02", "status": "CANCELLED"},
+                                {"trackingNumber": "TRKPAT03", "status": "IN_TRANSIT"}
+                            ]
+                        """.formatted(id)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.updated").value(2))
+                .andExpect(jsonPath("$.rejected[0].row").value(2));
+
+        mockMvc.perform(get("/api/shipments/tracking/TRKPAT02"))
+                .andExpect(jsonPath("$.status").value("CANCELLED"))
+                .andExpect(jsonPath("$.version").value(1));
+        mockMvc.perform(get("/api/shipments/" + id + "/events"))
+                .andExpect(jsonPath("$[*].sequence").value(contains(1, 2, 3)));
+        mockMvc.perform(get("/api/shipments/stats"))
+                .andExpect(jsonPath("$.statusCounts.DELIVERED").value(2))
+                .andExpect(jsonPath("$.statusCounts.CANCELLED").value(1));
+    }
+
+    @Test
+    void searchShipments_originMatchIgnoresCaseAndFollowsUpdates() throws Exception {
+        CreateShipmentRequest request = new CreateShipmentRequest();
+        request.setOrigin(" Salt Lake City ");
+        request.setDestination("Boise");
+        request.setStatus(ShipmentStatus.PENDING);
+        request.setTrackingNumber("TRKORIG1");
+
+        String response = mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        Long shipmentId = objectMapper.readTree(response).get("id").asLong();
+
+        mockMvc.perform(get("/api/shipments/search").param("origin", "SALT LAKE CITY"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKORIG1"))
+                .andExpect(jsonPath("$.content[0].originKey").doesNotExist());
+
+        mockMvc.perform(put("/api/shipments/" + shipmentId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"origin\": \"Ogden\", \"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/shipments/search").param("origin", "ogden").param("status", "IN_TRANSIT"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKORIG1"));
+        mockMvc.perform(get("/api/shipments/search").param("origin", "salt lake city"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(0));
+    }
+
+    @Test
+    void searchShipments_findsRowsWrittenBeforeOriginKeyOnceBackfilled() throws Exception {
+        createShipment(" Salt Lake City ", "PENDING", "TRKOKEY1");
+        createShipment("Ogden", "PENDING", "TRKOKEY2");
+        // as left by a version that did not write the key
+        jdbcTemplate.update("UPDATE shipment SET origin_key = NULL");
+
+        mockMvc.perform(get("/api/shipments/search").param("origin", "salt lake city"))
+                .andExpect(jsonPath("$.content.length()").value(0));
+
+        originKeyBackfill.backfill();
+
+        mockMvc.perform(get("/api/shipments/search").param("origin", "SALT LAKE CITY"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKOKEY1"));
+        assertEquals("ogden", shipmentRepository.findByTrackingNumber("TRKOKEY2").orElseThrow().getOriginKey());
+    }
+
+    @Test
+    void searchShipments_activeStatusesFollowStatusChangesAndBypassingWritesAfterRebuild() throws Exception {
+        createShipment("Provo", "PENDING", "TRKACT01");
+        createShipment("Provo", "PENDING", "TRKACT02");
+        Long id = shipmentRepository.findByTrackingNumber("TRKACT01").orElseThrow().getId();
+
+        mockMvc.perform(patch("/api/shipments/" + id + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/shipments/search").param("origin", "provo").param("status", "PENDING"))
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKACT02"));
+        mockMvc.perform(get("/api/shipments/search/cursor").param("status", "IN_TRANSIT"))
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKACT01"))
+                .andExpect(jsonPath("$.content[0].version").value(1));
+
+        mockMvc.perform(patch("/api/shipments/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\": %d, \"status\": \"DELIVERED\"}]".formatted(id)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/shipments/search").param("status", "IN_TRANSIT"))
+                .andExpect(jsonPath("$.totalElements").value(0));
+
+        // a write behind the service's back shows up once the view is rebuilt
+        jdbcTemplate.update("UPDATE shipment SET status = 'CANCELLED' WHERE tracking_number = 'TRKACT02'");
+        activeView.rebuild();
+        mockMvc.perform(get("/api/shipments/search").param("status", "PENDING"))
+                .andExpect(jsonPath("$.totalElements").value(0));
+    }
+
     // ------------------- DELETE SHIPMENT -------------------
     @Test
     void deleteShipment_shouldRemoveFromDatabase() throws Exception {
@@ -156,6 +734,99 @@ class ShipmentControllerIntegrationTest {
         // Confirm deletion
         mockMvc.perform(get("/api/shipments/" + shipmentId))
                 .andExpect(status().isNotFound());
+
+        // soft-deleted: kept in the archive but never served, and the tracking number can be reused
+        assertTrue(archiveRepository.findById(shipmentId).orElseThrow().getDeletedAt() != null);
+        mockMvc.perform(get("/api/shipments/" + shipmentId).param("includeArchived", "true"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+    }
+
+    // ------------------- ARCHIVE -------------------
+    @Test
+    void archive_movesOldFinalShipmentsOutButIncludeArchivedStillFindsThem() throws Exception {
+        createShipment("Reno", "DELIVERED", "TRKARC1");
+        createShipment("Reno", "IN_TRANSIT", "TRKARC2");
+        Shipment delivered = shipmentRepository.findByTrackingNumber("TRKARC1").orElseThrow();
+        Long deliveredId = delivered.getId();
+        jdbcTemplate.update("UPDATE shipment SET last_updated_time = ?", LocalDateTime.now().minusDays(60));
+
+        archiver.archive();
+        assertEquals(1, shipmentRepository.count());
+
+        // other nodes and /changes clients learn it left through its tombstone
+        mockMvc.perform(get("/api/shipments/changes").param("since", String.valueOf(delivered.getChangeVersion())))
+                .andExpect(jsonPath("$.deleted[?(@.shipmentId == " + deliveredId + ")].trackingNumber")
+                        .value(contains("TRKARC1")))
+                .andExpect(jsonPath("$.deleted[?(@.shipmentId == " + deliveredId + ")].archived")
+                        .value(contains(true)));
+
+        // the archived delivery still counts towards delivery times
+        outboxRelay.drain();
+        shipmentAnalytics.rebuildDeliveryTimes();
+        mockMvc.perform(get("/api/shipments/stats/delivery-times"))
+                .andExpect(jsonPath("$.deliveries").value(1));
+
+        mockMvc.perform(get("/api/shipments/" + deliveredId))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/shipments/" + deliveredId).param("includeArchived", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("DELIVERED"));
+        mockMvc.perform(get("/api/shipments/tracking/TRKARC1").param("includeArchived", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(deliveredId));
+
+        mockMvc.perform(get("/api/shipments/search/cursor").param("origin", "reno"))
+                .andExpect(jsonPath("$.content.length()").value(1));
+        // hot and archived rows share one ordering, so a cursor walks across both
+        String firstPage = mockMvc.perform(get("/api/shipments/search/cursor")
+                        .param("origin", "reno")
+                        .param("size", "1")
+                        .param("includeArchived", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKARC2"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get("/api/shipments/search/cursor")
+                        .param("origin", "reno")
+                        .param("size", "1")
+                        .param("includeArchived", "true")
+                        .param("cursor", objectMapper.readTree(firstPage).get("nextCursor").asText()))
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKARC1"))
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        mockMvc.perform(get("/api/shipments/search/cursor")
+                        .param("includeArchived", "true")
+                        .param("fields", "id"))
+                .andExpect(status().isBadRequest());
+        // offset paging cannot reach into the archive
+        mockMvc.perform(get("/api/shipments/search")
+                        .param("origin", "reno")
+                        .param("includeArchived", "true"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("/search/cursor")));
+    }
+
+    @Test
+    void archive_skipsTheRunWhileAnotherNodeHoldsTheLease() throws Exception {
+        createShipment("Reno", "DELIVERED", "TRKARC3");
+        jdbcTemplate.update("UPDATE shipment SET last_updated_time = ?", LocalDateTime.now().minusDays(60));
+        leaseRepository.save(new JobLease("archive", "other-node", LocalDateTime.now().plusMinutes(5)));
+        try {
+            archiver.archive();
+            assertEquals(1, shipmentRepository.count());
+
+            // an expired lease is taken over
+            leaseRepository.save(new JobLease("archive", "other-node", LocalDateTime.now().minusMinutes(1)));
+            archiver.archive();
+            assertEquals(0, shipmentRepository.count());
+            assertEquals(JobLeaseRepository.HOLDER, leaseRepository.findById("archive").orElseThrow().getHolder());
+        } finally {
+            leaseRepository.deleteById("archive");
+        }
     }
 
     // ------------------- SEARCH SHIPMENTS -------------------
@@ -194,6 +865,348 @@ class ShipmentControllerIntegrationTest {
                 .andExpect(jsonPath("$.content[0].status").value("DELIVERED"));
     }
 
+    @Test
+    void searchShipmentsByCursor_walksPagesWithoutOverlap() throws Exception {
+        // Batch rows share one timestamp, so ordering falls through to the id tie-breaker
+        mockMvc.perform(post("/api/shipments/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [
+                        {"origin": "Memphis", "destination": "Atlanta", "status": "IN_TRANSIT", "trackingNumber": "TRKCUR01"},
+                        {"origin": "Memphis", "destination": "Atlanta", "status": "IN_TRANSIT", "trackingNumber": "TRKCUR02"},
+                        {"origin": "Memphis", "destination": "Atlanta", "status": "DELIVERED", "trackingNumber": "TRKCUR03"},
+                        {"origin": "Memphis", "destination": "Atlanta", "status": "IN_TRANSIT", "trackingNumber": "TRKCUR04"}
+                    ]
+                """));
+
+        String firstPage = mockMvc.perform(get("/api/shipments/search/cursor")
+                        .param("origin", "memphis")
+                        .param("status", "IN_TRANSIT")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKCUR04"))
+                .andExpect(jsonPath("$.content[1].trackingNumber").value("TRKCUR02"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn().getResponse().getContentAsString();
+
+        String cursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/shipments/search/cursor")
+                        .param("origin", "memphis")
+                        .param("status", "IN_TRANSIT")
+                        .param("size", "2")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKCUR01"))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mockMvc.perform(get("/api/shipments/search/cursor").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchText_findsPartialAndMisspelledValuesAndFollowsUpdates() throws Exception {
+        createShipment("Albuquerque", "PENDING", "TRKTXT-7781");
+        createShipment("Boise", "IN_TRANSIT", "TRKTXT-7799");
+
+        mockMvc.perform(get("/api/shipments/search/text").param("q", "albuqerque"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].trackingNumber").value("TRKTXT-7781"));
+        mockMvc.perform(get("/api/shipments/search/text").param("q", "trktxt 77"))
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(get("/api/shipments/search/text").param("q", "trktxt 77").param("status", "IN_TRANSIT"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].origin").value("Boise"));
+
+        Long id = shipmentRepository.findByTrackingNumber("TRKTXT-7799").orElseThrow().getId();
+        mockMvc.perform(patch("/api/shipments/" + id + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"DELIVERED\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/shipments/search/text").param("q", "boise"))
+                .andExpect(jsonPath("$[0].status").value("DELIVERED"));
+
+        mockMvc.perform(delete("/api/shipments/" + id)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/shipments/search/text").param("q", "boise"))
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(get("/api/shipments/search/text").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void searchShipments_withFieldsReturnsOnlyThoseColumns() throws Exception {
+        mockMvc.perform(post("/api/shipments/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [
+                        {"origin": "Tulsa", "destination": "Omaha", "status": "IN_TRANSIT", "trackingNumber": "TRKFLD01", "carrier": "UPS"},
+                        {"origin": "Tulsa", "destination": "Omaha", "status": "IN_TRANSIT", "trackingNumber": "TRKFLD02", "carrier": "UPS"},
+                        {"origin": "Tulsa", "destination": "Omaha", "status": "IN_TRANSIT", "trackingNumber": "TRKFLD03", "carrier": "UPS"}
+                    ]
+                """));
+
+        // full rows keep the entity's JSON shape
+        mockMvc.perform(get("/api/shipments/search").param("origin", "tulsa").param("sort", "trackingNumber"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKFLD01"))
+                .andExpect(jsonPath("$.content[0].destination").value("Omaha"))
+                .andExpect(jsonPath("$.content[0].version").value(0))
+                .andExpect(jsonPath("$.totalElements").value(3));
+
+        mockMvc.perform(get("/api/shipments/search")
+                        .param("origin", "tulsa")
+                        .param("fields", "trackingNumber, status")
+                        .param("sort", "trackingNumber,desc")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKFLD03"))
+                .andExpect(jsonPath("$.content[0].status").value("IN_TRANSIT"))
+                .andExpect(jsonPath("$.content[0].id").exists())
+                .andExpect(jsonPath("$.content[0].origin").doesNotExist())
+                .andExpect(jsonPath("$.content[0].carrier").doesNotExist())
+                .andExpect(jsonPath("$.totalElements").value(3));
+
+        String firstPage = mockMvc.perform(get("/api/shipments/search/cursor")
+                        .param("status", "IN_TRANSIT")
+                        .param("fields", "trackingNumber")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKFLD03"))
+                .andExpect(jsonPath("$.content[0].lastUpdatedTime").exists())
+                .andExpect(jsonPath("$.content[0].destination").doesNotExist())
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get("/api/shipments/search/cursor")
+                        .param("status", "IN_TRANSIT")
+                        .param("fields", "trackingNumber")
+                        .param("size", "2")
+                        .param("cursor", objectMapper.readTree(firstPage).get("nextCursor").asText()))
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].trackingNumber").value("TRKFLD01"))
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        mockMvc.perform(get("/api/shipments").param("fields", "carrier"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].carrier").value("UPS"))
+                .andExpect(jsonPath("$[0].trackingNumber").doesNotExist());
+
+        mockMvc.perform(get("/api/shipments/search").param("fields", "trackingNumber,originKey"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ------------------- OUTBOX / EVENTS ENDPOINT -------------------
+    @Test
+    void writes_shouldRecordOutboxEventsThatTheRelayPublishes() throws Exception {
+        String created = mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {"origin": "Reno", "destination": "Boise", "status": "PENDING", "trackingNumber": "TRKOUT01"}
+                        """))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+
+        mockMvc.perform(put("/api/shipments/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/shipments/" + id + "/events"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].sequence").value(1))
+                .andExpect(jsonPath("$[1].sequence").value(2))
+                .andExpect(jsonPath("$[1].status").value("IN_TRANSIT"));
+
+        mockMvc.perform(get("/api/shipments/" + id + "/events").param("afterSequence", "1"))
+                .andExpect(jsonPath("$.length()").value(1));
+
+        awaitOutboxPublished();
+        assertTrue(outboxRepository.findAll().stream().allMatch(e -> e.getPublishedAt() != null));
+    }
+
+    // the scheduled relay may already hold the rows, so wait for whichever run gets them
+    private void awaitOutboxPublished() throws InterruptedException {
+        outboxRelay.drain();
+        for (int i = 0; i < 50 && outboxRepository.findAll().stream().anyMatch(e -> e.getPublishedAt() == null); i++) {
+            Thread.sleep(100);
+        }
+    }
+
+    // ------------------- DELTA SYNC -------------------
+    @Test
+    void changes_shouldReturnOnlyWhatChangedSinceAVersionIncludingDeletes() throws Exception {
+        createShipment("Reno", "PENDING", "TRKCHG01");
+        createShipment("Reno", "PENDING", "TRKCHG02");
+        createShipment("Reno", "PENDING", "TRKCHG03");
+
+        String snapshot = mockMvc.perform(get("/api/shipments/changes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changed.length()").value(3))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andReturn().getResponse().getContentAsString();
+        long since = objectMapper.readTree(snapshot).get("version").asLong();
+        long first = objectMapper.readTree(snapshot).get("changed").get(0).get("id").asLong();
+        long second = objectMapper.readTree(snapshot).get("changed").get(1).get("id").asLong();
+
+        mockMvc.perform(patch("/api/shipments/" + first + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"IN_TRANSIT\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/shipments/" + second)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/shipments/changes").param("since", String.valueOf(since)))
+                .andExpect(jsonPath("$.changed.length()").value(1))
+                .andExpect(jsonPath("$.changed[0].id").value(first))
+                .andExpect(jsonPath("$.changed[0].status").value("IN_TRANSIT"))
+                .andExpect(jsonPath("$.deleted.length()").value(1))
+                .andExpect(jsonPath("$.deleted[0].shipmentId").value(second))
+                .andExpect(jsonPath("$.deleted[0].trackingNumber").value("TRKCHG02"));
+
+        // pages of one, resuming from (version, afterId)
+        String page = mockMvc.perform(get("/api/shipments/changes").param("since", String.valueOf(since))
+                        .param("limit", "1"))
+                .andExpect(jsonPath("$.changed.length()").value(1))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get("/api/shipments/changes")
+                        .param("since", objectMapper.readTree(page).get("version").asText())
+                        .param("afterId", objectMapper.readTree(page).get("afterId").asText()))
+                .andExpect(jsonPath("$.changed.length()").value(0))
+                .andExpect(jsonPath("$.deleted.length()").value(1))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
+        // live messages carry the same version, so a client can resume from the last one it saw
+        mockMvc.perform(get("/api/shipments/" + second + "/events"))
+                .andExpect(jsonPath("$[1].eventType").value("DELETED"))
+                .andExpect(jsonPath("$[1].changeVersion").value(greaterThan((int) since)));
+    }
+
+    // ------------------- SERVER-SENT EVENTS -------------------
+    @Test
+    void stream_shouldPushMatchingUpdatesAndResumeFromLastEventId() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/api/shipments/stream")
+                        .param("origin", "reno")
+                        .param("status", "PENDING"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        createShipment("Reno", "PENDING", "TRKSSE01");
+        createShipment("Boise", "PENDING", "TRKSSE02");
+        createShipment("Reno", "IN_TRANSIT", "TRKSSE03");
+        createShipment("Reno", "PENDING", "TRKSSE04");
+        awaitOutboxPublished();
+
+        String events = awaitStreamContent(stream, "TRKSSE04");
+        assertTrue(events.contains("TRKSSE01"), events);
+        assertTrue(!events.contains("TRKSSE02") && !events.contains("TRKSSE03"), events);
+        String firstId = events.lines().filter(line -> line.startsWith("id:")).findFirst().orElseThrow().substring(3);
+
+        // a reconnecting client gets what came after its last event, then live updates
+        MvcResult resumed = mockMvc.perform(get("/api/shipments/stream")
+                        .param("origin", "Reno")
+                        .header("Last-Event-ID", firstId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String replayed = awaitStreamContent(resumed, "TRKSSE04");
+        assertTrue(replayed.contains("TRKSSE03"), replayed);
+        assertFalse(replayed.contains("TRKSSE01"), replayed);
+
+        MvcResult unknown = mockMvc.perform(get("/api/shipments/stream").header("Last-Event-ID", "elsewhere-1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitStreamContent(unknown, "event:reset");
+    }
+
+    private void createShipment(String origin, String status, String trackingNumber) throws Exception {
+        mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"origin\": \"%s\", \"destination\": \"Elko\", \"status\": \"%s\", \"trackingNumber\": \"%s\"}"
+                                .formatted(origin, status, trackingNumber)))
+                .andExpect(status().isOk());
+    }
+
+    // frames are written from the stream's send pool, so poll the response until the expected one shows up
+    private String awaitStreamContent(MvcResult stream, String expected) throws Exception {
+        String content = "";
+        for (int i = 0; i < 50 && !content.contains(expected); i++) {
+            Thread.sleep(100);
+            content = stream.getResponse().getContentAsString();
+        }
+        assertTrue(content.contains(expected), content);
+        return content;
+    }
+
+    // ------------------- HISTORY / EVENT LOG -------------------
+    @Test
+    void history_shouldListStatusTransitionsAndSupportTimeWindowQueries() throws Exception {
+        LocalDateTime from = LocalDateTime.now().minusMinutes(1);
+        String created = mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                            {"origin": "Tulsa", "destination": "Omaha", "status": "PENDING", "trackingNumber": "TRKHIS01"}
+                        """))
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+
+        // a destination-only change is not a transition
+        mockMvc.perform(put("/api/shipments/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"destination\": \"Wichita\", \"status\": \"PENDING\"}"));
+        mockMvc.perform(put("/api/shipments/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"IN_TRANSIT\"}"));
+        mockMvc.perform(put("/api/shipments/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"status\": \"DELIVERED\"}"));
+        awaitOutboxPublished();
+
+        mockMvc.perform(get("/api/shipments/" + id + "/history"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].status").value("PENDING"))
+                .andExpect(jsonPath("$[1].previousStatus").value("PENDING"))
+                .andExpect(jsonPath("$[1].status").value("IN_TRANSIT"))
+                .andExpect(jsonPath("$[2].status").value("DELIVERED"));
+
+        String to = LocalDateTime.now().plusMinutes(1).toString();
+        String firstPage = mockMvc.perform(get("/api/events")
+                        .param("from", from.toString())
+                        .param("to", to)
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].status").value("PENDING"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(get("/api/events")
+                        .param("from", from.toString())
+                        .param("to", to)
+                        .param("size", "2")
+                        .param("cursor", objectMapper.readTree(firstPage).get("nextCursor").asText()))
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].status").value("DELIVERED"))
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        mockMvc.perform(get("/api/events")
+                        .param("from", from.toString())
+                        .param("to", to)
+                        .param("status", "IN_TRANSIT"))
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].shipmentId").value(id));
+
+        mockMvc.perform(get("/api/events").param("from", to).param("to", from.toString()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/events").param("from", "yesterday").param("to", to))
+                .andExpect(status().isBadRequest());
+    }
+
     // ------------------- STATS ENDPOINT -------------------
     @Test
     void statsEndpoint_shouldReturnCounts() throws Exception {
@@ -214,4 +1227,71 @@ class ShipmentControllerIntegrationTest {
                 .andExpect(jsonPath("$.totalShipments").value(1))
                 .andExpect(jsonPath("$.statusCounts.PENDING").value(1));
     }
+
+    @Test
+    void analyticsEndpoints_followWrites() throws Exception {
+        shipmentAnalytics.reconcile();
+        shipmentAnalytics.rebuildDeliveryTimes();
+        mockMvc.perform(post("/api/shipments/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("""
+                    [
+                        {"origin": "Reno", "destination": "Fresno", "status": "PENDING", "trackingNumber": "TRKANA01", "carrier": "UPS", "priority": "HIGH"},
+                        {"origin": "Reno", "destination": "Fresno", "status": "PENDING", "trackingNumber": "TRKANA02", "carrier": "UPS"},
+                        {"origin": "Provo", "destination": "Fresno", "status": "DELIVERED", "trackingNumber": "TRKANA03", "carrier": "DHL"}
+                    ]
+                """));
+        long id = shipmentRepository.findByTrackingNumber("TRKANA01").orElseThrow().getId();
+        mockMvc.perform(patch("/api/shipments/" + id + "/status")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"status\": \"DELIVERED\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/shipments/stats/origins").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].key").value("Reno"))
+                .andExpect(jsonPath("$[0].count").value(2))
+                .andExpect(jsonPath("$[0].error").value(0));
+        mockMvc.perform(get("/api/shipments/stats/lanes"))
+                .andExpect(jsonPath("$[0].key").value("Reno -> Fresno"));
+        mockMvc.perform(get("/api/shipments/stats/destinations"))
+                .andExpect(jsonPath("$[0].count").value(3));
+        mockMvc.perform(get("/api/shipments/stats/carriers"))
+                .andExpect(jsonPath("$.UPS").value(2))
+                .andExpect(jsonPath("$.DHL").value(1));
+        mockMvc.perform(get("/api/shipments/stats/priorities"))
+                .andExpect(jsonPath("$.HIGH").value(1))
+                .andExpect(jsonPath("$.UNSPECIFIED").value(2));
+        mockMvc.perform(get("/api/shipments/stats/delivery-times"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deliveries").value(2))
+                .andExpect(jsonPath("$.p50Seconds").exists());
+    }
+
+    // ------------------- METRICS -------------------
+    @Test
+    void prometheusEndpoint_exposesServiceTimersAndBroadcastMetrics() throws Exception {
+        CreateShipmentRequest request = new CreateShipmentRequest();
+        request.setOrigin("Dallas");
+        request.setDestination("Houston");
+        request.setStatus(ShipmentStatus.PENDING);
+        request.setTrackingNumber("TRKMETRIC");
+
+        mockMvc.perform(post("/api/shipments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "freight_shipment_service_seconds_bucket{class=\"com.jayanti.freight_tracker.service.ShipmentServiceImpl\",exception=\"none\",method=\"createShipment\"")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket")))
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("freight_broadcast_sent_total")))
+                .andExpect(content().string(containsString("freight_broadcast_rejected_total")))
+                .andExpect(content().string(containsString("freight_broadcast_pending")))
+                .andExpect(content().string(containsString("freight_websocket_sessions")));
+    }
 }
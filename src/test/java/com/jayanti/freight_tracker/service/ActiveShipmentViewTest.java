@@ -0,0 +1,186 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.dto.ShipmentCursor;
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.model.Priority;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ActiveShipmentViewTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.parse("2026-10-01T08:00:00.123456");
+
+    @Mock
+    private ShipmentRepository shipmentRepository;
+
+    @Mock
+    private ShipmentChangeClock changeClock;
+
+    @InjectMocks
+    private ActiveShipmentView activeView;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(shipmentRepository.streamViewsByStatusIn(any())).thenReturn(Stream.of(
+                view(1L, "Chicago", "FedEx", Priority.HIGH, ShipmentStatus.PENDING, 0),
+                view(2L, "Chicago", "UPS", Priority.LOW, ShipmentStatus.IN_TRANSIT, 1),
+                view(3L, "Denver", "FedEx", null, ShipmentStatus.PENDING, 2),
+                view(4L, "chicago ", "FedEx", Priority.HIGH, ShipmentStatus.PENDING, 3)));
+        activeView.rebuild();
+    }
+
+    @Test
+    void canServe_OnlyActiveStatusesAndColumnSortsOnceLoaded() {
+        assertTrue(activeView.canServe(ShipmentStatus.PENDING, Sort.unsorted()));
+        assertTrue(activeView.canServe(ShipmentStatus.IN_TRANSIT, Sort.by("createdAt")));
+        assertFalse(activeView.canServe(ShipmentStatus.DELIVERED, Sort.unsorted()));
+        assertFalse(activeView.canServe(null, Sort.unsorted()));
+        assertFalse(activeView.canServe(ShipmentStatus.PENDING, Sort.by("trackingNumber")));
+        assertFalse(activeView.canServe(ShipmentStatus.PENDING, Sort.by("id", "version")));
+        assertFalse(new ActiveShipmentView().canServe(ShipmentStatus.PENDING, Sort.unsorted()));
+    }
+
+    @Test
+    void find_IntersectsFiltersNewestFirst() {
+        Page<ShipmentView> page = activeView.find(ShipmentStatus.PENDING, "chicago", null, null, PageRequest.of(0, 10));
+        assertEquals(List.of(4L, 1L), ids(page.getContent()));
+        assertEquals(2, page.getTotalElements());
+        assertEquals("chicago ", page.getContent().get(0).origin());
+        assertEquals(T0.plusMinutes(3), page.getContent().get(0).lastUpdatedTime());
+
+        assertEquals(List.of(4L, 3L), ids(activeView.find(null, null, "FedEx", null, PageRequest.of(0, 2)).getContent()));
+        assertEquals(List.of(4L, 1L),
+                ids(activeView.find(null, null, "FedEx", Priority.HIGH, PageRequest.of(0, 10)).getContent()));
+        assertEquals(List.of(), activeView.find(ShipmentStatus.PENDING, "boston", null, null, PageRequest.of(0, 10))
+                .getContent());
+    }
+
+    @Test
+    void find_SortsByTheRequestedColumnAndPages() {
+        Page<ShipmentView> page = activeView.find(null, null, null, null, PageRequest.of(1, 2, Sort.by("id")));
+        assertEquals(List.of(3L, 4L), ids(page.getContent()));
+        assertEquals(4, page.getTotalElements());
+        ShipmentView first = activeView.find(null, null, null, null, PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0);
+        assertEquals(new ShipmentView(1L, "Chicago", "Omaha", ShipmentStatus.PENDING, T0, T0.minusDays(1), "TRK-1",
+                "FedEx", Priority.HIGH, 1, 10), first);
+        assertEquals(List.of(), activeView.find(null, null, null, null, PageRequest.of(5, 2)).getContent());
+    }
+
+    @Test
+    void findAfter_SeeksPastTheCursor() {
+        Slice<ShipmentView> first = activeView.findAfter(ShipmentStatus.PENDING, null, ShipmentCursor.START, 2);
+        assertEquals(List.of(4L, 3L), ids(first.getContent()));
+        assertTrue(first.hasNext());
+        ShipmentView last = first.getContent().get(1);
+        Slice<ShipmentView> second = activeView.findAfter(ShipmentStatus.PENDING, null,
+                new ShipmentCursor(last.lastUpdatedTime(), last.id()), 2);
+        assertEquals(List.of(1L), ids(second.getContent()));
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void record_FollowsWritesAndIgnoresStaleOnes() {
+        activeView.recordUpdated(shipment(2L, "Denver", ShipmentStatus.IN_TRANSIT, 3));
+        // an older version arriving late changes nothing
+        activeView.recordUpdated(shipment(2L, "Chicago", ShipmentStatus.IN_TRANSIT, 2));
+        assertEquals(List.of(3L, 2L), ids(activeView.find(null, "denver", null, null, PageRequest.of(0, 10)).getContent()));
+
+        activeView.recordStatusChanged(1L, ShipmentStatus.IN_TRANSIT, T0.plusHours(1), 2, 11);
+        ShipmentView moved = activeView.find(ShipmentStatus.IN_TRANSIT, "chicago", null, null, PageRequest.of(0, 10))
+                .getContent().get(0);
+        assertEquals(1L, moved.id());
+        assertEquals(2, moved.version());
+        assertEquals(11, moved.changeVersion());
+
+        // final statuses and deletes leave the view
+        activeView.recordStatusChanged(1L, ShipmentStatus.DELIVERED, T0.plusHours(2), 3, 12);
+        activeView.recordDeleted(4L);
+        activeView.recordCreated(shipment(5L, "Chicago", ShipmentStatus.DELIVERED, 0));
+        assertEquals(List.of(), activeView.find(null, "chicago", null, null, PageRequest.of(0, 10)).getContent());
+        assertEquals(2, activeView.size());
+    }
+
+    @Test
+    void recordStatusChanged_LoadsShipmentsTheViewHasNotSeen() {
+        // created on another node, and the follower has not got to it yet
+        ShipmentView elsewhere = view(7L, "Reno", "UPS", null, ShipmentStatus.IN_TRANSIT, 5);
+        when(shipmentRepository.findViewById(7L)).thenReturn(Optional.of(elsewhere));
+
+        activeView.recordStatusChanged(7L, ShipmentStatus.IN_TRANSIT, elsewhere.lastUpdatedTime(), 1, 10);
+
+        assertEquals(List.of(elsewhere), activeView.find(null, "reno", null, null, PageRequest.of(0, 10)).getContent());
+        // known shipments take the fast path
+        activeView.recordStatusChanged(7L, ShipmentStatus.PENDING, T0.plusHours(1), 2, 11);
+        verify(shipmentRepository, times(1)).findViewById(any());
+    }
+
+    @Test
+    void record_ReusesSlotsAndKeepsLargeIndexesConsistent() {
+        // enough rows to turn the status and carrier bitmaps dense and to move the tracking numbers around
+        for (long id = 100; id < 20_100; id++) {
+            activeView.recordCreated(shipment(id, id % 2 == 0 ? "Austin" : "Tulsa", ShipmentStatus.PENDING, 0));
+        }
+        for (long id = 100; id < 20_100; id += 3) {
+            activeView.recordDeleted(id);
+        }
+        for (long id = 30_000; id < 31_000; id++) {
+            activeView.recordCreated(shipment(id, "Austin", ShipmentStatus.IN_TRANSIT, 0));
+        }
+
+        Page<ShipmentView> austin = activeView.find(ShipmentStatus.PENDING, "austin", null, null,
+                PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "id")));
+        assertEquals(List.of(20_096L, 20_094L, 20_090L), ids(austin.getContent()));
+        assertEquals("TRK-20096", austin.getContent().get(0).trackingNumber());
+        assertEquals(6_666, austin.getTotalElements());
+        assertEquals(1_000, activeView.find(ShipmentStatus.IN_TRANSIT, "austin", null, null, PageRequest.of(0, 1))
+                .getTotalElements());
+        assertEquals(4 + 20_000 - 6_667 + 1_000, activeView.size());
+    }
+
+    @Test
+    void rebuild_ReplacesTheViewWithTheDatabaseContents() {
+        when(shipmentRepository.streamViewsByStatusIn(any())).thenReturn(Stream.of(
+                view(9L, "Reno", "OnTrac", null, ShipmentStatus.IN_TRANSIT, 0)));
+
+        activeView.rebuild();
+
+        assertEquals(1, activeView.size());
+        assertEquals(List.of(9L), ids(activeView.find(null, "reno", null, null, PageRequest.of(0, 10)).getContent()));
+    }
+
+    private static List<Long> ids(List<ShipmentView> views) {
+        return views.stream().map(ShipmentView::id).toList();
+    }
+
+    // lastUpdatedTime grows with `minutes`, so newest first is the reverse of it
+    private static ShipmentView view(Long id, String origin, String carrier, Priority priority, ShipmentStatus status,
+                                     int minutes) {
+        return new ShipmentView(id, origin, "Omaha", status, T0.plusMinutes(minutes), T0.minusDays(1), "TRK-" + id,
+                carrier, priority, 1, 10);
+    }
+
+    private static Shipment shipment(Long id, String origin, ShipmentStatus status, long version) {
+        return Shipment.builder().id(id).trackingNumber("TRK-" + id).origin(origin).destination("Omaha")
+                .carrier("UPS").status(status).lastUpdatedTime(T0.plusSeconds(id)).version(version).build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.dto.DeliveryInterval;
+import com.jayanti.freight_tracker.dto.DeliveryTimeStats;
+import com.jayanti.freight_tracker.dto.HeavyHitter;
+import com.jayanti.freight_tracker.dto.KeyCount;
+import com.jayanti.freight_tracker.dto.OriginCount;
+import com.jayanti.freight_tracker.dto.PriorityCount;
+import com.jayanti.freight_tracker.dto.ShipmentStatusView;
+import com.jayanti.freight_tracker.model.Priority;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentEventRepository;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ShipmentAnalyticsTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 7, 1, 8, 0);
+
+    @Mock
+    private ShipmentRepository shipmentRepository;
+
+    @Mock
+    private ShipmentEventRepository eventRepository;
+
+    @Mock
+    private ShipmentChangeClock changeClock;
+
+    @InjectMocks
+    private ShipmentAnalytics analytics;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(analytics, "capacity", 2);
+        when(shipmentRepository.countGroupedByOrigin()).thenReturn(List.of(
+                new OriginCount("Boston", 4L),
+                new OriginCount("Denver", 1L),
+                new OriginCount("New York", 6L)));
+        when(shipmentRepository.countGroupedByDestination()).thenReturn(List.of(new KeyCount("Chicago", 11L)));
+        when(shipmentRepository.countGroupedByLane()).thenReturn(List.of(
+                new KeyCount("Boston -> Chicago", 4L),
+                new KeyCount("New York -> Chicago", 6L)));
+        when(shipmentRepository.countGroupedByCarrier()).thenReturn(List.of(
+                new KeyCount("UPS", 7L),
+                new KeyCount(null, 4L)));
+        when(shipmentRepository.countGroupedByPriority()).thenReturn(List.of(
+                new PriorityCount(Priority.HIGH, 3L),
+                new PriorityCount(null, 8L)));
+        when(eventRepository.streamDeliveryIntervals(ShipmentStatus.DELIVERED)).thenReturn(Stream.of(
+                new DeliveryInterval(T0, T0.plusHours(10))));
+        when(eventRepository.streamArchivedDeliveryIntervals(ShipmentStatus.DELIVERED)).thenReturn(Stream.of(
+                new DeliveryInterval(T0, T0.plusHours(20))));
+        analytics.reconcile();
+        analytics.rebuildDeliveryTimes();
+    }
+
+    @Test
+    void reconcile_KeepsTheLargestGroupsExactly() {
+        // capacity 2: Denver is left out, the others carry no error
+        assertEquals(List.of(new HeavyHitter("New York", 6, 0), new HeavyHitter("Boston", 4, 0)),
+                analytics.topOrigins(10));
+        assertEquals(List.of(new HeavyHitter("New York -> Chicago", 6, 0)), analytics.topLanes(1));
+        assertEquals(Map.of("UPS", 7L, ShipmentAnalytics.UNSPECIFIED, 4L), analytics.carrierCounts());
+        assertEquals(List.of(ShipmentAnalytics.UNSPECIFIED, "HIGH"), List.copyOf(analytics.priorityCounts().keySet()));
+
+        DeliveryTimeStats deliveries = analytics.deliveryTimes();
+        assertEquals(2, deliveries.getDeliveries());
+        assertEquals(36_000, deliveries.getP50Seconds(), 36_000 * 0.03);
+        assertEquals(72_000, deliveries.getP99Seconds(), 72_000 * 0.03);
+    }
+
+    @Test
+    void reconcile_KeepsTheDeliveryHistogram() {
+        analytics.recordStatusChanged(new ShipmentStatusView(1L, "TRK1", "Mumbai", ShipmentStatus.IN_TRANSIT, 1, T0),
+                ShipmentStatus.DELIVERED, T0.plusHours(2));
+
+        analytics.reconcile();
+
+        assertEquals(3, analytics.deliveryTimes().getDeliveries());
+        verify(eventRepository, times(1)).streamDeliveryIntervals(ShipmentStatus.DELIVERED);
+    }
+
+    @Test
+    void reconcile_OnlyTicksTheClockWhenTheCountsDrifted() {
+        clearInvocations(changeClock);
+
+        analytics.reconcile();
+        verify(changeClock, never()).tick();
+
+        // a create whose row never made it to the database, say
+        analytics.recordCreated(shipment("Denver", "Chicago", "FedEx", Priority.HIGH, ShipmentStatus.PENDING));
+        analytics.reconcile();
+        verify(changeClock, times(1)).tick();
+    }
+
+    @Test
+    void writeDeltas_MoveCountsBetweenKeys() {
+        Shipment shipment = shipment("Denver", "Chicago", "FedEx", Priority.HIGH, ShipmentStatus.PENDING);
+        // an untracked origin displaces the smallest counter and inherits its count as error
+        analytics.recordCreated(shipment);
+        assertEquals(new HeavyHitter("Denver", 5, 4), analytics.topOrigins(2).get(1));
+
+        ShipmentAnalytics.Dimensions before = ShipmentAnalytics.Dimensions.of(shipment);
+        shipment.setCarrier("UPS");
+        shipment.setStatus(ShipmentStatus.DELIVERED);
+        shipment.setLastUpdatedTime(T0.plusHours(30));
+        analytics.recordUpdated(before, ShipmentStatus.PENDING, shipment);
+
+        assertEquals(8L, analytics.carrierCounts().get("UPS"));
+        assertFalse(analytics.carrierCounts().containsKey("FedEx"));
+        assertEquals(3, analytics.deliveryTimes().getDeliveries());
+
+        analytics.recordDeleted(shipment);
+        assertEquals(7L, analytics.carrierCounts().get("UPS"));
+        assertEquals(3L, analytics.priorityCounts().get("HIGH"));
+    }
+
+    @Test
+    void recordStatusChanged_OnlyCountsTheMoveToDelivered() {
+        analytics.recordStatusChanged(new ShipmentStatusView(1L, "TRK1", "Mumbai", ShipmentStatus.PENDING, 0, T0),
+                ShipmentStatus.IN_TRANSIT, T0.plusHours(1));
+        analytics.recordStatusChanged(new ShipmentStatusView(1L, "TRK1", "Mumbai", ShipmentStatus.IN_TRANSIT, 1, T0),
+                ShipmentStatus.DELIVERED, T0.plusHours(2));
+        // created before createdAt existed: no start time to measure from
+        analytics.recordStatusChanged(new ShipmentStatusView(2L, "TRK2", "Mumbai", ShipmentStatus.IN_TRANSIT, 1, null),
+                ShipmentStatus.DELIVERED, T0.plusHours(2));
+
+        DeliveryTimeStats deliveries = analytics.deliveryTimes();
+        assertEquals(3, deliveries.getDeliveries());
+        // 2h joins the 10h and 20h from the rebuild, so 10h is now the median
+        assertEquals(36_000, deliveries.getP50Seconds(), 36_000 * 0.03);
+    }
+
+    private Shipment shipment(String origin, String destination, String carrier, Priority priority,
+                              ShipmentStatus status) {
+        Shipment shipment = new Shipment();
+        shipment.setOrigin(origin);
+        shipment.setDestination(destination);
+        shipment.setCarrier(carrier);
+        shipment.setPriority(priority);
+        shipment.setStatus(status);
+        shipment.setCreatedAt(T0);
+        shipment.setLastUpdatedTime(T0);
+        return shipment;
+    }
+}
@@ -0,0 +1,116 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.JobLeaseRepository;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import com.jayanti.freight_tracker.repository.ShipmentTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ShipmentArchiverTest {
+
+    @Mock
+    private ShipmentRepository shipmentRepository;
+
+    @Mock
+    private ShipmentTombstoneRepository tombstoneRepository;
+
+    @Mock
+    private JobLeaseRepository leaseRepository;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Mock
+    private ShipmentCache shipmentCache;
+
+    @Mock
+    private ShipmentStatsSnapshot statsSnapshot;
+
+    @Mock
+    private ShipmentAnalytics analytics;
+
+    @Mock
+    private ShipmentSearchIndex searchIndex;
+
+    @Mock
+    private ShipmentChangeClock changeClock;
+
+    @InjectMocks
+    private ShipmentArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(archiver, "archiveAfter", Duration.ofDays(30));
+        ReflectionTestUtils.setField(archiver, "batchSize", 2);
+        ReflectionTestUtils.setField(archiver, "interval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(archiver, "clock",
+                Clock.fixed(Instant.parse("2026-12-15T10:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    void archive_MovesFinalShipmentsInBatchesUntilAShortOne() {
+        LocalDateTime cutoff = LocalDateTime.parse("2026-11-15T10:00:00");
+        when(shipmentRepository.findArchivable(eq(List.of(ShipmentStatus.DELIVERED, ShipmentStatus.CANCELLED)),
+                eq(cutoff), any()))
+                .thenReturn(List.of(shipment(1L), shipment(2L)))
+                .thenReturn(List.of(shipment(3L)));
+        when(shipmentRepository.nextChangeVersion()).thenReturn(41L, 42L);
+
+        int archived = archiver.archiveAll();
+
+        assertEquals(3, archived);
+        verify(tombstoneRepository).insertArchived(eq(List.of(1L, 2L)), eq(41L), any(LocalDateTime.class));
+        verify(tombstoneRepository).insertArchived(eq(List.of(3L)), eq(42L), any(LocalDateTime.class));
+        verify(shipmentRepository).moveToArchive(eq(List.of(1L, 2L)), any(LocalDateTime.class), eq(null));
+        verify(shipmentRepository).moveToArchive(eq(List.of(3L)), any(LocalDateTime.class), eq(null));
+        verify(shipmentRepository, times(2)).findArchivable(any(), any(), any());
+        verify(shipmentCache).invalidate(3L, "TRK3");
+        verify(statsSnapshot, times(3)).recordDeleted(any(Shipment.class));
+        verify(analytics, times(3)).recordDeleted(any(Shipment.class));
+        verify(searchIndex).recordDeleted(2L);
+    }
+
+    @Test
+    void archive_DoesNothingWhenNoShipmentIsOldEnough() {
+        when(shipmentRepository.findArchivable(any(), any(), any())).thenReturn(List.of());
+
+        assertEquals(0, archiver.archiveAll());
+        verify(shipmentRepository, never()).moveToArchive(any(), any(), any());
+        verify(tombstoneRepository, never()).insertArchived(any(), anyLong(), any());
+    }
+
+    @Test
+    void archive_SkipsTheRunWhileAnotherNodeHoldsTheLease() {
+        when(leaseRepository.tryAcquire("archive", Duration.ofHours(1))).thenReturn(false);
+
+        archiver.archive();
+
+        verifyNoInteractions(shipmentRepository, tombstoneRepository);
+    }
+
+    private static Shipment shipment(Long id) {
+        return Shipment.builder().id(id).trackingNumber("TRK" + id).status(ShipmentStatus.DELIVERED).build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.jayanti.freight_tracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShipmentChangeClockTest {
+
+    private final ShipmentChangeClock changeClock = new ShipmentChangeClock();
+
+    @Test
+    void etag_IsTheFollowedPositionAndTheSameOnEveryNode() {
+        ShipmentChangeClock otherNode = new ShipmentChangeClock();
+        // nothing followed yet: no tag another node could hand out
+        assertNotEquals(changeClock.etag(), otherNode.etag());
+
+        changeClock.advance(5, null);
+        otherNode.advance(5, null);
+        assertEquals("\"5\"", changeClock.etag());
+        assertEquals(changeClock.etag(), otherNode.etag());
+
+        // part way through a version
+        changeClock.advance(6, 17L);
+        assertEquals("\"6.17\"", changeClock.etag());
+    }
+
+    @Test
+    void tick_ChangesTheETagUntilTheFollowerPassesTheWrite() {
+        changeClock.advance(5, null);
+
+        changeClock.tick(7);
+        String afterWrite = changeClock.etag();
+        assertNotEquals("\"5\"", afterWrite);
+        assertNotEquals(afterWrite, new ShipmentChangeClock().etag());
+
+        // the follower has not reached the write yet
+        changeClock.advance(6, 2L);
+        assertTrue(changeClock.etag().startsWith("\"6.2-"));
+
+        changeClock.advance(7, 3L);
+        assertEquals("\"7.3\"", changeClock.etag());
+    }
+
+    @Test
+    void tick_WithoutAWriteKeepsItsSuffixUntilThePositionMoves() {
+        changeClock.advance(5, null);
+        changeClock.tick();
+        String corrected = changeClock.etag();
+        assertNotEquals("\"5\"", corrected);
+
+        // the stale answers went out as "5", so an idle poll must not go back to it
+        changeClock.advance(5, null);
+        assertEquals(corrected, changeClock.etag());
+
+        changeClock.advance(6, null);
+        assertEquals("\"6\"", changeClock.etag());
+    }
+}
@@ -0,0 +1,168 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.dto.ShipmentChanges;
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.model.ShipmentTombstone;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import com.jayanti.freight_tracker.repository.ShipmentTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ShipmentChangeFollowerTest {
+
+    @Mock
+    private ShipmentService shipmentService;
+
+    @Mock
+    private ShipmentRepository shipmentRepository;
+
+    @Mock
+    private ShipmentTombstoneRepository tombstoneRepository;
+
+    @Mock
+    private ActiveShipmentView activeView;
+
+    @Mock
+    private ShipmentSearchIndex searchIndex;
+
+    @Mock
+    private ShipmentCache shipmentCache;
+
+    @Mock
+    private ShipmentStatsSnapshot statsSnapshot;
+
+    @Mock
+    private ShipmentAnalytics analytics;
+
+    @Mock
+    private ShipmentChangeClock changeClock;
+
+    @InjectMocks
+    private ShipmentChangeFollower follower;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(follower, "settleTime", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(follower, "batchSize", 2);
+        when(shipmentRepository.findMaxChangeVersionBefore(any())).thenReturn(40L);
+        when(tombstoneRepository.findMaxChangeVersionBefore(any())).thenReturn(41L);
+    }
+
+    @Test
+    void poll_AppliesEveryPageFromTheSettledStartAndAdvancesTheClockOnce() {
+        ShipmentView first = view(1L, 42);
+        ShipmentView second = view(2L, 43);
+        ShipmentTombstone tombstone = new ShipmentTombstone();
+        tombstone.setShipmentId(3L);
+        tombstone.setChangeVersion(44);
+        when(shipmentService.getChangesSince(41L, null, 2)).thenReturn(changes(List.of(first, second), List.of(), 43, 2L, true));
+        when(shipmentService.getChangesSince(43L, 2L, 2)).thenReturn(changes(List.of(), List.of(tombstone), 44, 3L, false));
+
+        follower.poll();
+
+        InOrder inOrder = inOrder(activeView, searchIndex, changeClock);
+        inOrder.verify(activeView).recordChanged(first);
+        inOrder.verify(searchIndex).recordChanged(first);
+        inOrder.verify(activeView).recordChanged(second);
+        inOrder.verify(searchIndex).recordChanged(second);
+        inOrder.verify(activeView).recordDeleted(3L);
+        inOrder.verify(searchIndex).recordDeleted(3L);
+        inOrder.verify(changeClock).advance(44, 3L);
+    }
+
+    @Test
+    void poll_DropsFollowedChangesFromTheShipmentCache() {
+        // renamed on another node: lookups by the old tracking number must go too
+        ShipmentView renamed = view(1L, 42);
+        when(searchIndex.trackingNumberOf(1L)).thenReturn("TRK-OLD");
+        ShipmentTombstone tombstone = new ShipmentTombstone(3L, "TRK-3", 43, LocalDateTime.now(), false);
+        when(shipmentService.getChangesSince(41L, null, 2))
+                .thenReturn(changes(List.of(renamed), List.of(tombstone), 43, 3L, false));
+
+        follower.poll();
+
+        verify(shipmentCache).invalidate(1L, "TRK-OLD", "TRK-1");
+        verify(shipmentCache).invalidate(3L, "TRK-3");
+    }
+
+    @Test
+    void poll_CountsChangesTheSearchIndexHadNotSeen() {
+        ShipmentView created = view(1L, 42);
+        ShipmentView updated = view(2L, 42);
+        ShipmentView own = view(3L, 42);
+        Shipment previous = Shipment.builder().id(2L).origin("Elko").status(ShipmentStatus.PENDING).build();
+        when(searchIndex.recordChanged(created)).thenReturn(new ShipmentSearchIndex.Replaced(null));
+        when(searchIndex.recordChanged(updated)).thenReturn(new ShipmentSearchIndex.Replaced(previous));
+        // written through this node, so already counted
+        when(searchIndex.recordChanged(own)).thenReturn(null);
+        when(shipmentService.getChangesSince(41L, null, 2))
+                .thenReturn(changes(List.of(created, updated, own), List.of(), 42, null, false));
+
+        follower.poll();
+
+        verify(statsSnapshot).recordCreated(argThat(shipment -> shipment.getId() == 1L));
+        verify(analytics).recordCreated(argThat(shipment -> shipment.getId() == 1L));
+        verify(statsSnapshot).recordUpdated(eq(ShipmentStatus.PENDING), eq("Elko"), argThat(shipment -> shipment.getId() == 2L));
+        verify(analytics).recordUpdated(eq(ShipmentAnalytics.Dimensions.of(previous)), eq(ShipmentStatus.PENDING),
+                argThat(shipment -> shipment.getId() == 2L));
+        verifyNoMoreInteractions(statsSnapshot, analytics);
+    }
+
+    @Test
+    void poll_TakesDeletesAndArchivesOutOfStatsOnlyIfTheIndexStillHadThem() {
+        Shipment indexed = Shipment.builder().id(3L).origin("Reno").status(ShipmentStatus.DELIVERED).build();
+        when(searchIndex.recordDeleted(3L)).thenReturn(indexed);
+        // already removed by this node's own archive run
+        when(searchIndex.recordDeleted(4L)).thenReturn(null);
+        when(shipmentService.getChangesSince(41L, null, 2)).thenReturn(changes(List.of(),
+                List.of(new ShipmentTombstone(3L, "TRK-3", 43, LocalDateTime.now(), true),
+                        new ShipmentTombstone(4L, "TRK-4", 43, LocalDateTime.now(), true)), 43, 4L, false));
+
+        follower.poll();
+
+        verify(statsSnapshot).recordDeleted(indexed);
+        verify(analytics).recordDeleted(indexed);
+        verifyNoMoreInteractions(statsSnapshot, analytics);
+    }
+
+    @Test
+    void poll_ContinuesFromTheLastPosition() {
+        when(shipmentService.getChangesSince(41L, null, 2)).thenReturn(changes(List.of(), List.of(), 41, null, false));
+
+        follower.poll();
+        follower.poll();
+
+        // the starting position is only looked up once
+        verify(shipmentRepository, times(1)).findMaxChangeVersionBefore(any(LocalDateTime.class));
+        verify(shipmentService, times(2)).getChangesSince(41L, null, 2);
+        verifyNoInteractions(activeView, searchIndex, shipmentCache);
+        // the tag is the settled start position from the first poll on
+        verify(changeClock, times(2)).advance(41, null);
+    }
+
+    private static ShipmentChanges changes(List<ShipmentView> changed, List<ShipmentTombstone> deleted, long version,
+                                           Long afterId, boolean hasMore) {
+        return ShipmentChanges.builder().changed(changed).deleted(deleted).version(version).afterId(afterId)
+                .hasMore(hasMore).build();
+    }
+
+    private static ShipmentView view(Long id, long changeVersion) {
+        return new ShipmentView(id, "Reno", "Elko", ShipmentStatus.PENDING, LocalDateTime.now(), LocalDateTime.now(),
+                "TRK-" + id, "UPS", null, 1, changeVersion);
+    }
+}
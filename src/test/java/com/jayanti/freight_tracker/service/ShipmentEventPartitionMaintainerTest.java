@@ -0,0 +1,43 @@
+package com.jayanti.freight_tracker.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.mockito.Mockito.*;
+
+class ShipmentEventPartitionMaintainerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private ShipmentEventPartitionMaintainer maintainer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(maintainer, "monthsAhead", 1);
+        ReflectionTestUtils.setField(maintainer, "clock",
+                Clock.fixed(Instant.parse("2026-12-15T10:00:00Z"), ZoneOffset.UTC));
+    }
+
+    @Test
+    void createUpcomingPartitions_CreatesCurrentAndNextMonthAcrossYearEnd() {
+        maintainer.createUpcomingPartitions();
+
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS shipment_event_p2026_12 PARTITION OF shipment_event " +
+                "FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+        verify(jdbcTemplate).execute("CREATE TABLE IF NOT EXISTS shipment_event_p2027_01 PARTITION OF shipment_event " +
+                "FOR VALUES FROM ('2027-01-01') TO ('2027-02-01')");
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+}
@@ -0,0 +1,69 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentEvent;
+import com.jayanti.freight_tracker.model.ShipmentEventType;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentEventRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShipmentHistoryRecorderTest {
+
+    @Mock
+    private ShipmentEventRepository eventRepository;
+
+    @InjectMocks
+    private ShipmentHistoryRecorder recorder;
+
+    @Captor
+    private ArgumentCaptor<List<ShipmentEvent>> saved;
+
+    @Test
+    void publish_AppendsOnlyStatusTransitionsInOneBatch() {
+        recorder.publish(List.of(
+                event(1L, ShipmentEventType.CREATED, 1, null, ShipmentStatus.PENDING),
+                // destination change only, status stays the same
+                event(1L, ShipmentEventType.UPDATED, 2, ShipmentStatus.PENDING, ShipmentStatus.PENDING),
+                event(1L, ShipmentEventType.UPDATED, 3, ShipmentStatus.PENDING, ShipmentStatus.IN_TRANSIT)));
+
+        verify(eventRepository, times(1)).saveAllAndFlush(saved.capture());
+        assertEquals(List.of(1L, 3L), saved.getValue().stream().map(ShipmentEvent::getSequence).toList());
+        ShipmentEvent transition = saved.getValue().get(1);
+        assertEquals(ShipmentStatus.PENDING, transition.getPreviousStatus());
+        assertEquals(ShipmentStatus.IN_TRANSIT, transition.getStatus());
+        assertNotNull(transition.getOccurredAt());
+    }
+
+    @Test
+    void publish_SkipsTheDatabaseWhenNothingChangedStatus() {
+        recorder.publish(List.of(event(1L, ShipmentEventType.UPDATED, 2, ShipmentStatus.PENDING, ShipmentStatus.PENDING)));
+
+        verify(eventRepository, never()).saveAllAndFlush(anyList());
+    }
+
+    private ShipmentOutboxEvent event(Long id, ShipmentEventType type, long sequence,
+                                      ShipmentStatus previousStatus, ShipmentStatus status) {
+        Shipment shipment = new Shipment();
+        shipment.setId(id);
+        shipment.setTrackingNumber("TRK" + id);
+        shipment.setStatus(status);
+        shipment.setLastUpdatedTime(LocalDateTime.now());
+        shipment.setVersion(sequence - 1);
+        return ShipmentOutboxEvent.of(shipment, type, previousStatus, false);
+    }
+}
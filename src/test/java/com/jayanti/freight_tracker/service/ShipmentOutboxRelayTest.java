@@ -0,0 +1,66 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+import com.jayanti.freight_tracker.repository.ShipmentOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ShipmentOutboxRelayTest {
+
+    @Mock
+    private ShipmentOutboxRepository outboxRepository;
+
+    @Mock
+    private ShipmentEventSink sink;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ShipmentOutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(relay, "sinks", List.of(sink));
+        ReflectionTestUtils.setField(relay, "batchSize", 500);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void drain_ClaimsNoMoreThanTheSinksCanTake() {
+        when(sink.remainingCapacity()).thenReturn(2, 0);
+        List<ShipmentOutboxEvent> events = List.of(new ShipmentOutboxEvent(), new ShipmentOutboxEvent());
+        when(outboxRepository.findUnpublished(PageRequest.of(0, 2))).thenReturn(events);
+
+        relay.drain();
+
+        verify(sink).publish(events);
+        verify(outboxRepository).markPublished(anyList(), any());
+        // the sink is full after the first batch, so the rest waits for the next poll
+        verify(outboxRepository, times(1)).findUnpublished(any());
+    }
+
+    @Test
+    void drain_LeavesEventsInTheOutboxWhileASinkIsFull() {
+        when(sink.remainingCapacity()).thenReturn(0);
+
+        relay.drain();
+
+        verifyNoInteractions(outboxRepository);
+        verify(sink, never()).publish(anyList());
+    }
+}
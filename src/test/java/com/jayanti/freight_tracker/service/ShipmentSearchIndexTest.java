@@ -0,0 +1,129 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.dto.ShipmentSearchHit;
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import com.jayanti.freight_tracker.util.ReplicaRouting;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ShipmentSearchIndexTest {
+
+    @Mock
+    private ShipmentRepository shipmentRepository;
+
+    @InjectMocks
+    private ShipmentSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        searchIndex.recordCreated(shipment(1L, "TRK-100245", "Chicago", "Denver", "FedEx", ShipmentStatus.IN_TRANSIT));
+        searchIndex.recordCreated(shipment(2L, "TRK-100987", "New York", "Chicago", "UPS", ShipmentStatus.PENDING));
+        searchIndex.recordCreated(shipment(3L, "ZX-554433", "Boston", "Miami", "DHL Express", ShipmentStatus.DELIVERED));
+    }
+
+    @Test
+    void search_MatchesPrefixesOfAnyField() {
+        assertEquals(List.of(3L), ids(searchIndex.search("zx-55", null, 10)));
+        assertEquals(List.of(3L), ids(searchIndex.search("exp", null, 10)));
+        assertEquals(List.of(2L, 1L), ids(searchIndex.search("100", null, 10)));
+    }
+
+    @Test
+    void search_MatchesPartialTrackingNumbersAndMisspellings() {
+        assertEquals(List.of(1L), ids(searchIndex.search("0245", null, 10)));
+        // "chicgo": misspelled, still both shipments that touch Chicago
+        List<ShipmentSearchHit> hits = searchIndex.search("chicgo", null, 10);
+        assertEquals(List.of(2L, 1L), ids(hits));
+        assertTrue(hits.get(0).score() < 1.0);
+        assertEquals(List.of(), searchIndex.search("seattle", null, 10));
+    }
+
+    @Test
+    void search_RequiresEveryWordAndRanksExactMatchesFirst() {
+        assertEquals(List.of(2L), ids(searchIndex.search("chicago ups", null, 10)));
+        assertEquals(List.of(1L), ids(searchIndex.search("chicago", ShipmentStatus.IN_TRANSIT, 10)));
+        searchIndex.recordCreated(shipment(4L, "TRK-4", "Chicagoland", "Austin", "UPS", ShipmentStatus.PENDING));
+        assertEquals(List.of(2L, 1L, 4L), ids(searchIndex.search("chicago", null, 10)));
+        assertEquals(List.of(2L), ids(searchIndex.search("chicago", null, 1)));
+    }
+
+    @Test
+    void record_FollowsUpdatesStatusChangesAndDeletes() {
+        Shipment updated = shipment(1L, "TRK-100245", "Dallas", "Denver", "FedEx", ShipmentStatus.IN_TRANSIT);
+        updated.setVersion(2);
+        searchIndex.recordUpdated(updated);
+        assertEquals(List.of(2L), ids(searchIndex.search("chicago new", null, 10)));
+        assertEquals(List.of(1L), ids(searchIndex.search("dallas", null, 10)));
+
+        // an older version arriving late, e.g. read by the change follower before the update, changes nothing
+        searchIndex.recordChanged(new ShipmentView(1L, "Chicago", "Denver", ShipmentStatus.IN_TRANSIT, null, null,
+                "TRK-100245", "FedEx", null, 1, 0));
+        searchIndex.recordStatusChanged(1L, ShipmentStatus.PENDING, 2);
+        assertEquals(List.of(1L), ids(searchIndex.search("dallas", null, 10)));
+        assertEquals(ShipmentStatus.IN_TRANSIT, searchIndex.search("dallas", null, 10).get(0).status());
+
+        searchIndex.recordStatusChanged(1L, ShipmentStatus.DELIVERED, 3);
+        assertEquals(ShipmentStatus.DELIVERED, searchIndex.search("dallas", null, 10).get(0).status());
+
+        // the removed shipment comes back for the counters, but only to the first caller
+        Shipment removed = searchIndex.recordDeleted(1L);
+        assertEquals(ShipmentStatus.DELIVERED, removed.getStatus());
+        assertEquals("Dallas", removed.getOrigin());
+        assertNull(searchIndex.recordDeleted(1L));
+        assertEquals(List.of(), searchIndex.search("dallas", null, 10));
+        assertEquals(2, searchIndex.size());
+    }
+
+    @Test
+    void rebuild_ReplacesTheIndexWithTheDatabaseContents() {
+        when(shipmentRepository.streamAllViews()).thenReturn(Stream.of(new ShipmentView(9L, "Reno", "Elko",
+                ShipmentStatus.PENDING, null, null, "TRK-9", "OnTrac", null, 0, 0)));
+
+        searchIndex.rebuild();
+
+        assertEquals(1, searchIndex.size());
+        assertEquals(List.of(9L), ids(searchIndex.search("ontrac", null, 10)));
+        assertEquals(List.of(), searchIndex.search("chicago", null, 10));
+    }
+
+    @Test
+    void rebuild_ReplaysWritesMadeWhileItStreamsAndReadsThePrimary() {
+        when(shipmentRepository.streamAllViews()).thenAnswer(invocation -> {
+            assertTrue(ReplicaRouting.isPinnedToPrimary());
+            // committed after the stream's snapshot
+            Shipment created = shipment(5L, "TRK-5", "Fresno", "Tulsa", "UPS", ShipmentStatus.PENDING);
+            searchIndex.recordCreated(created);
+            return Stream.of(new ShipmentView(9L, "Reno", "Elko", ShipmentStatus.PENDING, null, null, "TRK-9",
+                    "OnTrac", null, 0, 0));
+        });
+
+        searchIndex.rebuild();
+
+        assertEquals(2, searchIndex.size());
+        assertEquals(List.of(5L), ids(searchIndex.search("fresno", null, 10)));
+        assertFalse(ReplicaRouting.isPinnedToPrimary());
+    }
+
+    private static List<Long> ids(List<ShipmentSearchHit> hits) {
+        return hits.stream().map(ShipmentSearchHit::id).toList();
+    }
+
+    private static Shipment shipment(Long id, String trackingNumber, String origin, String destination, String carrier,
+                                     ShipmentStatus status) {
+        return Shipment.builder().id(id).trackingNumber(trackingNumber).origin(origin).destination(destination)
+                .carrier(carrier).status(status).build();
+    }
+}
@@ -1,25 +1,59 @@
 package com.jayanti.freight_tracker.service;
 
+import com.jayanti.freight_tracker.dto.BatchCreateShipmentResponse;
+import com.jayanti.freight_tracker.dto.BulkStatusUpdateItem;
+import com.jayanti.freight_tracker.dto.BulkStatusUpdateResponse;
+import com.jayanti.freight_tracker.dto.ShipmentChanges;
+import com.jayanti.freight_tracker.dto.ShipmentStatusChange;
+import com.jayanti.freight_tracker.dto.ShipmentStatusView;
 import com.jayanti.freight_tracker.dto.CreateShipmentRequest;
 import com.jayanti.freight_tracker.dto.UpdateShipmentRequest;
 import com.jayanti.freight_tracker.dto.ShipmentStatsDTO;
+import com.jayanti.freight_tracker.dto.ShipmentView;
+import com.jayanti.freight_tracker.exception.InvalidStatusTransitionException;
+import com.jayanti.freight_tracker.exception.PreconditionFailedException;
+import com.jayanti.freight_tracker.exception.ShipmentConflictException;
+import com.jayanti.freight_tracker.exception.ShipmentNotFoundException;
+import com.jayanti.freight_tracker.model.ArchivedShipment;
 import com.jayanti.freight_tracker.model.Priority;
 import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentEventType;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
 import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.model.ShipmentTombstone;
+import com.jayanti.freight_tracker.repository.ArchivedShipmentRepository;
+import com.jayanti.freight_tracker.repository.ShipmentOutboxRepository;
 import com.jayanti.freight_tracker.repository.ShipmentRepository;
-import com.jayanti.freight_tracker.websocket.ShipmentStatusBroadcaster;
-import com.jayanti.freight_tracker.websocket.ShipmentUpdateMessage;
+import com.jayanti.freight_tracker.repository.ShipmentTombstoneRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class ShipmentServiceTest {
@@ -28,7 +62,43 @@ class ShipmentServiceTest {
     private ShipmentRepository shipmentRepository;
 
     @Mock
-    private ShipmentStatusBroadcaster broadcaster;
+    private ShipmentOutboxRepository outboxRepository;
+
+    @Mock
+    private ShipmentTombstoneRepository tombstoneRepository;
+
+    @Mock
+    private ArchivedShipmentRepository archiveRepository;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Mock
+    private ShipmentStatsSnapshot statsSnapshot;
+
+    @Mock
+    private ShipmentAnalytics analytics;
+
+    @Mock
+    private ShipmentSearchIndex searchIndex;
+
+    @Mock
+    private ActiveShipmentView activeView;
+
+    @Spy
+    private ShipmentCache shipmentCache = new ShipmentCache(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ShipmentChangeClock changeClock;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
 
     @InjectMocks
     private ShipmentServiceImpl shipmentService;
@@ -40,7 +110,7 @@ class ShipmentServiceTest {
 
     // -------- CREATE TEST --------
     @Test
-    void testCreateShipment_SetsFieldsAndBroadcasts() {
+    void testCreateShipment_SetsFieldsAndWritesOutboxEvent() {
         // Arrange: DTO with input
         CreateShipmentRequest request = new CreateShipmentRequest();
         request.setOrigin("New York");
@@ -62,13 +132,81 @@ class ShipmentServiceTest {
 
         // Assert: check fields the SERVICE sets
         assertNotNull(result.getLastUpdatedTime());
+        assertEquals(result.getLastUpdatedTime(), result.getCreatedAt());
         assertEquals("New York", result.getOrigin());
         assertEquals("TRK12345", result.getTrackingNumber());
         assertEquals(1L, result.getId());
 
-        // Verify broadcaster called
-        // broadcaster should send a ShipmentUpdateMessage and its called once
-        verify(broadcaster, times(1)).broadcastUpdate(any(Shipment.class));
+        // Verify one CREATED outbox event written in the same transaction; the relay broadcasts it
+        ArgumentCaptor<ShipmentOutboxEvent> event = ArgumentCaptor.forClass(ShipmentOutboxEvent.class);
+        verify(outboxRepository, times(1)).save(event.capture());
+        assertEquals(ShipmentEventType.CREATED, event.getValue().getEventType());
+        assertEquals(1L, event.getValue().getShipmentId());
+        assertEquals(1L, event.getValue().getSequence());
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(statsSnapshot, times(1)).recordCreated(result);
+        verify(analytics, times(1)).recordCreated(result);
+        verify(changeClock, times(1)).tick(result.getChangeVersion());
+    }
+
+    // -------- BATCH CREATE TEST --------
+    @Test
+    void testCreateShipments_RejectsInvalidAndDuplicateRows() {
+        CreateShipmentRequest valid = batchRow("TRKBATCH1");
+        CreateShipmentRequest duplicateInBatch = batchRow("TRKBATCH1");
+        CreateShipmentRequest alreadyStored = batchRow("TRKBATCH2");
+        CreateShipmentRequest invalid = batchRow("TRKBATCH3");
+        invalid.setOrigin(" ");
+
+        when(shipmentRepository.findExistingTrackingNumbers(anyCollection())).thenReturn(Set.of("TRKBATCH2"));
+        when(shipmentRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        BatchCreateShipmentResponse response = shipmentService.createShipments(
+                List.of(valid, duplicateInBatch, alreadyStored, invalid));
+
+        assertEquals(4, response.getReceived());
+        assertEquals(1, response.getCreated());
+        assertEquals(List.of(1, 2, 3), response.getRejected().stream().map(r -> r.getRow()).toList());
+        assertTrue(response.getRejected().get(2).getErrors().containsKey("origin"));
+
+        // one bulk outbox event per created row, written with the chunk
+        ArgumentCaptor<List<ShipmentOutboxEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository, times(1)).saveAll(events.capture());
+        assertEquals(1, events.getValue().size());
+        assertTrue(events.getValue().get(0).isBulk());
+    }
+
+    @Test
+    void testCreateShipments_RetriesAChunkRowByRowWhenAConcurrentInsertWins() {
+        ReflectionTestUtils.setField(shipmentService, "batchSize", 50);
+        // nothing stored at the check; TRKRACE2 is inserted by another request before the chunk commits
+        when(shipmentRepository.findExistingTrackingNumbers(anyCollection()))
+                .thenReturn(Set.of())
+                .thenReturn(Set.of("TRKRACE2"));
+        when(shipmentRepository.saveAll(anyList()))
+                .thenThrow(new DataIntegrityViolationException("uk_tracking_number"))
+                .thenAnswer(invocation -> invocation.getArgument(0))
+                .thenThrow(new DataIntegrityViolationException("uk_tracking_number"));
+
+        List<CreateShipmentRequest> rows = new ArrayList<>(List.of(batchRow("TRKRACE1"), batchRow("TRKRACE2")));
+        rows.add(null);
+        BatchCreateShipmentResponse response = shipmentService.createShipments(rows);
+
+        assertEquals(3, response.getReceived());
+        assertEquals(1, response.getCreated());
+        assertEquals(List.of(1, 2), response.getRejected().stream().map(r -> r.getRow()).toList());
+        assertEquals("Tracking number already exists", response.getRejected().get(0).getErrors().get("trackingNumber"));
+        assertTrue(response.getRejected().get(1).getErrors().containsKey("row"));
+        verify(statsSnapshot, times(1)).recordCreated(any());
+    }
+
+    private CreateShipmentRequest batchRow(String trackingNumber) {
+        CreateShipmentRequest request = new CreateShipmentRequest();
+        request.setOrigin("Denver");
+        request.setDestination("Phoenix");
+        request.setStatus(ShipmentStatus.PENDING);
+        request.setTrackingNumber(trackingNumber);
+        return request;
     }
 
     // -------- GET BY ID TEST --------
@@ -93,9 +231,59 @@ class ShipmentServiceTest {
         assertThrows(RuntimeException.class, () -> shipmentService.getShipmentByIdOrThrow(99L));
     }
 
+    @Test
+    void testGetShipmentByIdOrThrow_ServesRepeatReadsFromCacheUntilUpdated() {
+        Shipment shipment = new Shipment();
+        shipment.setId(6L);
+        shipment.setTrackingNumber("TRKCACHE");
+        shipment.setStatus(ShipmentStatus.PENDING);
+
+        when(shipmentRepository.findById(6L)).thenReturn(Optional.of(shipment));
+        when(shipmentRepository.findByTrackingNumber("TRKCACHE")).thenReturn(Optional.of(shipment));
+        when(shipmentRepository.saveAndFlush(any(Shipment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        shipmentService.getShipmentByIdOrThrow(6L);
+        shipmentService.getShipmentByIdOrThrow(6L);
+        shipmentService.getShipmentByTrackingNumberOrThrow("TRKCACHE");
+        shipmentService.getShipmentByTrackingNumberOrThrow("TRKCACHE");
+        verify(shipmentRepository, times(1)).findById(6L);
+        verify(shipmentRepository, times(1)).findByTrackingNumber("TRKCACHE");
+
+        UpdateShipmentRequest updateRequest = new UpdateShipmentRequest();
+        updateRequest.setStatus(ShipmentStatus.IN_TRANSIT);
+        shipmentService.updateShipment(6L, updateRequest, null);
+
+        // update loads once itself, then both cache entries must have been dropped
+        shipmentService.getShipmentByIdOrThrow(6L);
+        shipmentService.getShipmentByTrackingNumberOrThrow("TRKCACHE");
+        verify(shipmentRepository, times(3)).findById(6L);
+        verify(shipmentRepository, times(2)).findByTrackingNumber("TRKCACHE");
+    }
+
+    @Test
+    void testGetShipmentByIdOrThrow_FallsBackToArchiveOnlyWhenAsked() {
+        when(shipmentRepository.findById(7L)).thenReturn(Optional.empty());
+        when(archiveRepository.findByIdAndDeletedAtIsNull(7L)).thenReturn(Optional.of(ArchivedShipment.builder()
+                .id(7L).trackingNumber("TRKOLD").status(ShipmentStatus.DELIVERED).version(3).build()));
+
+        assertThrows(ShipmentNotFoundException.class, () -> shipmentService.getShipmentByIdOrThrow(7L));
+        Shipment archived = shipmentService.getShipmentByIdOrThrow(7L, true);
+
+        assertEquals("TRKOLD", archived.getTrackingNumber());
+        assertEquals(ShipmentStatus.DELIVERED, archived.getStatus());
+        assertEquals(3L, archived.getVersion());
+    }
+
+    @Test
+    void testGetShipmentByTrackingNumberOrThrow_ThrowsWhenNotFound() {
+        when(shipmentRepository.findByTrackingNumber("TRKNONE")).thenReturn(Optional.empty());
+
+        assertThrows(RuntimeException.class, () -> shipmentService.getShipmentByTrackingNumberOrThrow("TRKNONE"));
+    }
+
     // -------- UPDATE TEST --------
     @Test
-    void testUpdateShipment_UpdatesFieldsAndBroadcasts() {
+    void testUpdateShipment_UpdatesFieldsAndWritesOutboxEvent() {
         // Arrange: existing shipment in DB
         Shipment existing = new Shipment();
         existing.setId(2L);
@@ -103,9 +291,15 @@ class ShipmentServiceTest {
         existing.setDestination("Chicago");
         existing.setStatus(ShipmentStatus.PENDING);
         existing.setTrackingNumber("TRK111");
+        existing.setVersion(3);
 
         when(shipmentRepository.findById(2L)).thenReturn(Optional.of(existing));
-        when(shipmentRepository.save(any(Shipment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        // simulate the flush bumping the version
+        when(shipmentRepository.saveAndFlush(any(Shipment.class))).thenAnswer(invocation -> {
+            Shipment s = invocation.getArgument(0);
+            s.setVersion(s.getVersion() + 1);
+            return s;
+        });
 
         // DTO for update
         UpdateShipmentRequest updateRequest = new UpdateShipmentRequest();
@@ -113,46 +307,277 @@ class ShipmentServiceTest {
         updateRequest.setStatus(ShipmentStatus.DELIVERED);
 
         // Act
-        Shipment updated = shipmentService.updateShipment(2L, updateRequest);
+        Shipment updated = shipmentService.updateShipment(2L, updateRequest, 3L);
 
         // Assert: origin/status updated, tracking number unchanged
         assertEquals("Los Angeles", updated.getOrigin());
         assertEquals(ShipmentStatus.DELIVERED, updated.getStatus());
         assertNotNull(updated.getLastUpdatedTime());
 
-        verify(broadcaster, times(1)).broadcastUpdate(any(Shipment.class));
+        ArgumentCaptor<ShipmentOutboxEvent> event = ArgumentCaptor.forClass(ShipmentOutboxEvent.class);
+        verify(outboxRepository, times(1)).save(event.capture());
+        assertEquals(ShipmentEventType.UPDATED, event.getValue().getEventType());
+        assertEquals(5L, event.getValue().getSequence());
+        assertEquals(ShipmentStatus.PENDING, event.getValue().getPreviousStatus());
+        verify(statsSnapshot, times(1)).recordUpdated(ShipmentStatus.PENDING, "NY", updated);
+        // the dimensions the rollups must take the shipment out of
+        verify(analytics, times(1)).recordUpdated(new ShipmentAnalytics.Dimensions("NY", "Chicago", null, null),
+                ShipmentStatus.PENDING, updated);
+    }
+
+    @Test
+    void testUpdateShipment_RejectsStaleIfMatchVersion() {
+        Shipment existing = new Shipment();
+        existing.setId(2L);
+        existing.setStatus(ShipmentStatus.PENDING);
+        existing.setVersion(4);
+        when(shipmentRepository.findById(2L)).thenReturn(Optional.of(existing));
+
+        UpdateShipmentRequest updateRequest = new UpdateShipmentRequest();
+        updateRequest.setStatus(ShipmentStatus.IN_TRANSIT);
+
+        assertThrows(PreconditionFailedException.class, () -> shipmentService.updateShipment(2L, updateRequest, 3L));
+        verify(shipmentRepository, never()).saveAndFlush(any(Shipment.class));
+        verifyNoInteractions(outboxRepository);
+    }
+
+    @Test
+    void testUpdateShipment_RejectsIllegalStatusTransition() {
+        Shipment existing = new Shipment();
+        existing.setId(2L);
+        existing.setStatus(ShipmentStatus.DELIVERED);
+        when(shipmentRepository.findById(2L)).thenReturn(Optional.of(existing));
+
+        UpdateShipmentRequest updateRequest = new UpdateShipmentRequest();
+        updateRequest.setStatus(ShipmentStatus.PENDING);
+
+        assertThrows(InvalidStatusTransitionException.class, () -> shipmentService.updateShipment(2L, updateRequest, null));
+        verify(shipmentRepository, never()).saveAndFlush(any(Shipment.class));
+    }
+
+    @Test
+    void testUpdateShipment_RetriesStatusOnlyUpdateAfterOptimisticLockFailure() {
+        ReflectionTestUtils.setField(shipmentService, "statusUpdateAttempts", 3);
+        Shipment existing = new Shipment();
+        existing.setId(2L);
+        existing.setStatus(ShipmentStatus.PENDING);
+        when(shipmentRepository.findById(2L)).thenAnswer(invocation -> {
+            Shipment copy = new Shipment();
+            copy.setId(2L);
+            copy.setStatus(existing.getStatus());
+            return Optional.of(copy);
+        });
+        when(shipmentRepository.saveAndFlush(any(Shipment.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Shipment.class, 2L))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        UpdateShipmentRequest updateRequest = new UpdateShipmentRequest();
+        updateRequest.setStatus(ShipmentStatus.IN_TRANSIT);
+
+        Shipment updated = shipmentService.updateShipment(2L, updateRequest, null);
+
+        assertEquals(ShipmentStatus.IN_TRANSIT, updated.getStatus());
+        verify(shipmentRepository, times(2)).findById(2L);
+        verify(outboxRepository, times(1)).save(any(ShipmentOutboxEvent.class));
+    }
+
+    @Test
+    void testUpdateShipment_DoesNotRetryFullUpdateAfterOptimisticLockFailure() {
+        ReflectionTestUtils.setField(shipmentService, "statusUpdateAttempts", 3);
+        Shipment existing = new Shipment();
+        existing.setId(2L);
+        existing.setStatus(ShipmentStatus.PENDING);
+        when(shipmentRepository.findById(2L)).thenReturn(Optional.of(existing));
+        when(shipmentRepository.saveAndFlush(any(Shipment.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Shipment.class, 2L));
+
+        UpdateShipmentRequest updateRequest = new UpdateShipmentRequest();
+        updateRequest.setStatus(ShipmentStatus.IN_TRANSIT);
+        updateRequest.setDestination("Boston");
+
+        // another writer may have changed the destination too, so this must go back to the client
+        assertThrows(ShipmentConflictException.class, () -> shipmentService.updateShipment(2L, updateRequest, null));
+        verify(shipmentRepository, times(1)).findById(2L);
+    }
+
+    // -------- STATUS FAST PATH TESTS --------
+    @Test
+    void testUpdateShipmentStatus_WritesConditionalUpdateAndOutboxEventWithoutLoadingEntity() {
+        when(shipmentRepository.findStatusViewById(7L))
+                .thenReturn(Optional.of(new ShipmentStatusView(7L, "TRK777", "Mumbai", ShipmentStatus.PENDING, 2, null)));
+        when(shipmentRepository.updateStatusIfVersion(eq(7L), eq(2L), eq(ShipmentStatus.IN_TRANSIT), any(), anyLong()))
+                .thenReturn(1);
+
+        ShipmentStatusChange change = shipmentService.updateShipmentStatus(7L, ShipmentStatus.IN_TRANSIT, null);
+
+        assertEquals(ShipmentStatus.PENDING, change.getPreviousStatus());
+        assertEquals(3L, change.getVersion());
+        verify(shipmentRepository, never()).findById(anyLong());
+        ArgumentCaptor<ShipmentOutboxEvent> event = ArgumentCaptor.forClass(ShipmentOutboxEvent.class);
+        verify(outboxRepository).save(event.capture());
+        assertEquals(4L, event.getValue().getSequence());
+        assertEquals("TRK777", event.getValue().getTrackingNumber());
+        verify(statsSnapshot).recordStatusChanged(ShipmentStatus.PENDING, ShipmentStatus.IN_TRANSIT);
+        verify(analytics).recordStatusChanged(any(ShipmentStatusView.class), eq(ShipmentStatus.IN_TRANSIT),
+                eq(change.getLastUpdatedTime()));
+    }
+
+    @Test
+    void testUpdateShipmentStatus_RereadsAndRetriesWhenVersionMoved() {
+        ReflectionTestUtils.setField(shipmentService, "statusUpdateAttempts", 3);
+        when(shipmentRepository.findStatusViewById(7L))
+                .thenReturn(Optional.of(new ShipmentStatusView(7L, "TRK777", "Mumbai", ShipmentStatus.PENDING, 2, null)))
+                .thenReturn(Optional.of(new ShipmentStatusView(7L, "TRK777", "Mumbai", ShipmentStatus.IN_TRANSIT, 3, null)));
+        when(shipmentRepository.updateStatusIfVersion(eq(7L), eq(2L), any(), any(), anyLong())).thenReturn(0);
+        when(shipmentRepository.updateStatusIfVersion(eq(7L), eq(3L), any(), any(), anyLong())).thenReturn(1);
+
+        ShipmentStatusChange change = shipmentService.updateShipmentStatus(7L, ShipmentStatus.DELIVERED, null);
+
+        assertEquals(ShipmentStatus.IN_TRANSIT, change.getPreviousStatus());
+        assertEquals(4L, change.getVersion());
+        verify(outboxRepository, times(1)).save(any(ShipmentOutboxEvent.class));
+    }
+
+    @Test
+    void testUpdateShipmentStatus_SameStatusIsANoOp() {
+        when(shipmentRepository.findStatusViewById(7L))
+                .thenReturn(Optional.of(new ShipmentStatusView(7L, "TRK777", "Mumbai", ShipmentStatus.IN_TRANSIT, 2, null)));
+
+        ShipmentStatusChange change = shipmentService.updateShipmentStatus(7L, ShipmentStatus.IN_TRANSIT, null);
+
+        assertEquals(2L, change.getVersion());
+        verify(shipmentRepository, never()).updateStatusIfVersion(anyLong(), anyLong(), any(), any(), anyLong());
+        verifyNoInteractions(outboxRepository);
+        verifyNoInteractions(changeClock);
+    }
+
+    @Test
+    void testUpdateShipmentStatuses_BatchesUpdatesAndReportsRejectedRows() {
+        ReflectionTestUtils.setField(shipmentService, "batchSize", 50);
+        when(shipmentRepository.findStatusViewsByIdIn(anyCollection())).thenReturn(List.of(
+                new ShipmentStatusView(1L, "TRKA", "Mumbai", ShipmentStatus.PENDING, 0, null),
+                new ShipmentStatusView(2L, "TRKB", "Mumbai", ShipmentStatus.DELIVERED, 5, null),
+                new ShipmentStatusView(4L, "TRKD", "Mumbai", ShipmentStatus.IN_TRANSIT, 2, null)));
+        when(shipmentRepository.findStatusViewsByTrackingNumberIn(anyCollection())).thenReturn(List.of(
+                new ShipmentStatusView(3L, "TRKC", "Mumbai", ShipmentStatus.IN_TRANSIT, 1, null)));
+        // second UPDATE in the batch lost a race
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        BulkStatusUpdateResponse response = shipmentService.updateShipmentStatuses(List.of(
+                new BulkStatusUpdateItem(1L, null, ShipmentStatus.IN_TRANSIT),
+                new BulkStatusUpdateItem(2L, null, ShipmentStatus.PENDING),      // illegal transition
+                new BulkStatusUpdateItem(null, "TRKC", ShipmentStatus.DELIVERED),
+                new BulkStatusUpdateItem(null, "TRKZ", ShipmentStatus.DELIVERED), // unknown
+                new BulkStatusUpdateItem(1L, "TRKA", ShipmentStatus.IN_TRANSIT),   // both keys
+                new BulkStatusUpdateItem(4L, null, ShipmentStatus.IN_TRANSIT)));   // already there
+
+        assertEquals(6, response.getReceived());
+        assertEquals(1, response.getUpdated());
+        assertEquals(1, response.getUnchanged());
+        assertEquals(List.of(1, 2, 3, 4), response.getRejected().stream().map(r -> r.getRow()).toList());
+
+        ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), args.capture());
+        assertEquals(2, args.getValue().size());
+        ArgumentCaptor<List<ShipmentOutboxEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository).saveAll(events.capture());
+        assertEquals(List.of(1L), events.getValue().stream().map(ShipmentOutboxEvent::getShipmentId).toList());
+        verify(statsSnapshot, times(1)).recordStatusChanged(ShipmentStatus.PENDING, ShipmentStatus.IN_TRANSIT);
     }
 
     // -------- DELETE TEST --------
     @Test
     void testDeleteShipment_DeletesWhenExists() {
-        when(shipmentRepository.existsById(3L)).thenReturn(true);
+        Shipment existing = new Shipment();
+        existing.setId(3L);
+        existing.setTrackingNumber("TRK333");
+        existing.setStatus(ShipmentStatus.DELIVERED);
+        existing.setVersion(4);
+        when(shipmentRepository.findLockedById(3L)).thenReturn(Optional.of(existing));
+        when(shipmentRepository.nextChangeVersion()).thenReturn(42L);
 
         shipmentService.deleteShipment(3L);
 
-        verify(shipmentRepository, times(1)).deleteById(3L);
+        // soft delete: moved to the archive with deletedAt set rather than dropped
+        verify(shipmentRepository, times(1)).moveToArchive(eq(List.of(3L)), any(LocalDateTime.class),
+                any(LocalDateTime.class));
+        verify(shipmentRepository, never()).deleteById(any());
+        ArgumentCaptor<ShipmentTombstone> tombstone = ArgumentCaptor.forClass(ShipmentTombstone.class);
+        verify(tombstoneRepository).save(tombstone.capture());
+        assertEquals(42L, tombstone.getValue().getChangeVersion());
+        assertEquals("TRK333", tombstone.getValue().getTrackingNumber());
+        ArgumentCaptor<ShipmentOutboxEvent> event = ArgumentCaptor.forClass(ShipmentOutboxEvent.class);
+        verify(outboxRepository).save(event.capture());
+        assertEquals(ShipmentEventType.DELETED, event.getValue().getEventType());
+        assertEquals(6L, event.getValue().getSequence());
+        verify(statsSnapshot, times(1)).recordDeleted(existing);
+        verify(analytics, times(1)).recordDeleted(existing);
+        verify(searchIndex).recordDeleted(3L);
+        verify(changeClock).tick(42L);
     }
 
     @Test
     void testDeleteShipment_ThrowsWhenNotFound() {
-        when(shipmentRepository.existsById(4L)).thenReturn(false);
+        when(shipmentRepository.findLockedById(4L)).thenReturn(Optional.empty());
 
         assertThrows(RuntimeException.class, () -> shipmentService.deleteShipment(4L));
     }
 
+    // -------- CHANGES TEST --------
+    @Test
+    void testGetChangesSince_MergesUpdatesAndTombstonesInChangeOrder() {
+        ReflectionTestUtils.setField(shipmentService, "changesSettleTime", Duration.ofSeconds(2));
+        LocalDateTime old = LocalDateTime.now().minusMinutes(1);
+        when(shipmentRepository.findViewsChangedAfter(eq(10L), eq(Long.MAX_VALUE), any())).thenReturn(List.of(
+                view(5L, 11, old), view(6L, 13, old), view(7L, 14, old)));
+        when(tombstoneRepository.findChangedAfter(eq(10L), eq(Long.MAX_VALUE), any())).thenReturn(List.of(
+                new ShipmentTombstone(4L, "TRK4", 12, old, false)));
+
+        ShipmentChanges page = shipmentService.getChangesSince(10L, null, 3);
+
+        assertEquals(List.of(5L, 6L), page.getChanged().stream().map(ShipmentView::id).toList());
+        assertEquals(List.of(4L), page.getDeleted().stream().map(ShipmentTombstone::getShipmentId).toList());
+        assertEquals(13L, page.getVersion());
+        assertEquals(6L, page.getAfterId());
+        assertTrue(page.isHasMore());
+    }
+
+    @Test
+    void testGetChangesSince_StopsAtFirstUnsettledChange() {
+        ReflectionTestUtils.setField(shipmentService, "changesSettleTime", Duration.ofSeconds(2));
+        LocalDateTime old = LocalDateTime.now().minusMinutes(1);
+        // version 21 may still have an uncommitted neighbour at 20, so nothing after it is returned yet
+        when(shipmentRepository.findViewsChangedAfter(anyLong(), anyLong(), any())).thenReturn(List.of(
+                view(1L, 19, old), view(2L, 21, LocalDateTime.now()), view(3L, 22, old)));
+        when(tombstoneRepository.findChangedAfter(anyLong(), anyLong(), any())).thenReturn(List.of());
+
+        ShipmentChanges page = shipmentService.getChangesSince(null, null, 100);
+
+        assertEquals(List.of(1L), page.getChanged().stream().map(ShipmentView::id).toList());
+        assertEquals(19L, page.getVersion());
+        assertFalse(page.isHasMore());
+    }
+
+    private static ShipmentView view(Long id, long changeVersion, LocalDateTime lastUpdatedTime) {
+        return new ShipmentView(id, "Reno", "Elko", ShipmentStatus.PENDING, lastUpdatedTime, lastUpdatedTime,
+                "TRK" + id, null, null, 0, changeVersion);
+    }
+
     // -------- STATS TEST --------
     @Test
-    void testGetShipmentStats_ReturnsCounts() {
-        when(shipmentRepository.count()).thenReturn(10L);
-        when(shipmentRepository.countByStatus(ShipmentStatus.IN_TRANSIT)).thenReturn(5L);
-        when(shipmentRepository.countByStatus(ShipmentStatus.PENDING)).thenReturn(3L);
-        when(shipmentRepository.countByStatus(ShipmentStatus.DELIVERED)).thenReturn(2L);
-        when(shipmentRepository.findMostCommonOrigin()).thenReturn("New York");
+    void testGetShipmentStats_ServedFromSnapshot() {
+        ShipmentStatsDTO snapshot = ShipmentStatsDTO.builder()
+                .totalShipments(10L)
+                .statusCounts(Map.of(ShipmentStatus.IN_TRANSIT, 5L))
+                .mostCommonOrigin("New York")
+                .build();
+        when(statsSnapshot.current()).thenReturn(snapshot);
 
         ShipmentStatsDTO stats = shipmentService.getShipmentStats();
 
         assertEquals(10L, stats.getTotalShipments());
         assertEquals(5L, stats.getStatusCounts().get(ShipmentStatus.IN_TRANSIT));
         assertEquals("New York", stats.getMostCommonOrigin());
+        verifyNoInteractions(shipmentRepository);
     }
 }
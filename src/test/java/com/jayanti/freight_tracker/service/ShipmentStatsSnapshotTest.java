@@ -0,0 +1,100 @@
+package com.jayanti.freight_tracker.service;
+
+import com.jayanti.freight_tracker.dto.OriginCount;
+import com.jayanti.freight_tracker.dto.ShipmentStatsDTO;
+import com.jayanti.freight_tracker.dto.StatusCount;
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ShipmentStatsSnapshotTest {
+
+    @Mock
+    private ShipmentRepository shipmentRepository;
+
+    @Mock
+    private ShipmentChangeClock changeClock;
+
+    @InjectMocks
+    private ShipmentStatsSnapshot statsSnapshot;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(shipmentRepository.countGroupedByStatus()).thenReturn(List.of(
+                new StatusCount(ShipmentStatus.IN_TRANSIT, 5L),
+                new StatusCount(ShipmentStatus.PENDING, 3L),
+                new StatusCount(ShipmentStatus.DELIVERED, 2L)));
+        when(shipmentRepository.countGroupedByOrigin()).thenReturn(List.of(
+                new OriginCount("Boston", 4L),
+                new OriginCount("New York", 6L)));
+        statsSnapshot.reconcile();
+    }
+
+    @Test
+    void reconcile_LoadsCountsFromAggregateQueries() {
+        ShipmentStatsDTO stats = statsSnapshot.current();
+
+        assertEquals(10L, stats.getTotalShipments());
+        assertEquals(5L, stats.getStatusCounts().get(ShipmentStatus.IN_TRANSIT));
+        assertEquals(0L, stats.getStatusCounts().get(ShipmentStatus.CANCELLED));
+        assertEquals("New York", stats.getMostCommonOrigin());
+    }
+
+    @Test
+    void writeDeltas_AdjustCountsWithoutTouchingTheDatabase() {
+        clearInvocations(shipmentRepository);
+
+        Shipment created = shipment(ShipmentStatus.PENDING, "Boston");
+        statsSnapshot.recordCreated(created);
+        statsSnapshot.recordCreated(shipment(ShipmentStatus.PENDING, "Boston"));
+        statsSnapshot.recordCreated(shipment(ShipmentStatus.PENDING, "Boston"));
+
+        Shipment moved = shipment(ShipmentStatus.IN_TRANSIT, "Boston");
+        statsSnapshot.recordUpdated(ShipmentStatus.PENDING, "Boston", moved);
+        statsSnapshot.recordDeleted(shipment(ShipmentStatus.DELIVERED, "New York"));
+
+        ShipmentStatsDTO stats = statsSnapshot.current();
+
+        assertEquals(12L, stats.getTotalShipments());
+        assertEquals(5L, stats.getStatusCounts().get(ShipmentStatus.PENDING));
+        assertEquals(6L, stats.getStatusCounts().get(ShipmentStatus.IN_TRANSIT));
+        assertEquals(1L, stats.getStatusCounts().get(ShipmentStatus.DELIVERED));
+        assertEquals("Boston", stats.getMostCommonOrigin());
+        verifyNoInteractions(shipmentRepository);
+    }
+
+    @Test
+    void reconcile_OnlyTicksTheClockWhenTheCountsDrifted() {
+        // the first reconcile replaced the empty counters
+        verify(changeClock, times(1)).tick();
+
+        statsSnapshot.reconcile();
+        verify(changeClock, times(1)).tick();
+
+        // a delete that bypassed the service
+        when(shipmentRepository.countGroupedByStatus()).thenReturn(List.of(
+                new StatusCount(ShipmentStatus.IN_TRANSIT, 5L),
+                new StatusCount(ShipmentStatus.PENDING, 3L),
+                new StatusCount(ShipmentStatus.DELIVERED, 1L)));
+        statsSnapshot.reconcile();
+        verify(changeClock, times(2)).tick();
+    }
+
+    private Shipment shipment(ShipmentStatus status, String origin) {
+        Shipment shipment = new Shipment();
+        shipment.setStatus(status);
+        shipment.setOrigin(origin);
+        return shipment;
+    }
+}
@@ -0,0 +1,74 @@
+package com.jayanti.freight_tracker.websocket;
+
+import com.jayanti.freight_tracker.model.ShipmentEventType;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import com.jayanti.freight_tracker.repository.ShipmentOutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ShipmentEventStreamTest {
+
+    @Mock
+    private ShipmentOutboxRepository outboxRepository;
+
+    @InjectMocks
+    private ShipmentEventStream eventStream;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(eventStream, "replayCapacity", 100);
+        ReflectionTestUtils.setField(eventStream, "sendThreads", 1);
+        ReflectionTestUtils.setField(eventStream, "batchSize", 10);
+        ReflectionTestUtils.setField(eventStream, "settleTime", Duration.ofMinutes(1));
+        eventStream.start();
+        when(outboxRepository.findMaxChangeVersionBefore(any())).thenReturn(4L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventStream.stop();
+    }
+
+    @Test
+    void poll_RereadsFromTheLastSettledEventWithoutResendingOrMissingLateCommits() {
+        ShipmentOutboxEvent settled = event(1L, 5, LocalDateTime.now().minusMinutes(5));
+        ShipmentOutboxEvent recent = event(3L, 7, LocalDateTime.now());
+        when(outboxRepository.findChangedAfter(4L, Long.MAX_VALUE, PageRequest.of(0, 10)))
+                .thenReturn(List.of(settled, recent));
+        // version 6 commits late, below the recent one already sent
+        ShipmentOutboxEvent late = event(2L, 6, LocalDateTime.now());
+        when(outboxRepository.findChangedAfter(5L, Long.MAX_VALUE, PageRequest.of(0, 10)))
+                .thenReturn(List.of(late, recent));
+
+        eventStream.poll();
+        eventStream.poll();
+
+        // each event once: two from the first poll, only the late one from the second
+        assertEquals(4L, ReflectionTestUtils.getField(eventStream, "nextId"));
+        verify(outboxRepository).findChangedAfter(4L, Long.MAX_VALUE, PageRequest.of(0, 10));
+        verify(outboxRepository, times(1)).findMaxChangeVersionBefore(any());
+        assertEquals(5L, ReflectionTestUtils.getField(eventStream, "settledVersion"));
+    }
+
+    private static ShipmentOutboxEvent event(Long id, long changeVersion, LocalDateTime lastUpdatedTime) {
+        return ShipmentOutboxEvent.builder().id(id).shipmentId(id).sequence(1).changeVersion(changeVersion)
+                .eventType(ShipmentEventType.CREATED).trackingNumber("TRK-" + id).origin("Reno")
+                .status(ShipmentStatus.PENDING).lastUpdatedTime(lastUpdatedTime).build();
+    }
+}
@@ -0,0 +1,125 @@
+package com.jayanti.freight_tracker.websocket;
+
+import com.jayanti.freight_tracker.model.Shipment;
+import com.jayanti.freight_tracker.model.ShipmentEventType;
+import com.jayanti.freight_tracker.model.ShipmentOutboxEvent;
+import com.jayanti.freight_tracker.model.ShipmentStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ShipmentStatusBroadcasterTest {
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    @InjectMocks
+    private ShipmentStatusBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(broadcaster, "maxPending", 2);
+    }
+
+    @Test
+    void flush_CoalescesUpdatesToTheSameShipment() {
+        broadcaster.publish(List.of(
+                event(1L, "TRK00001", ShipmentStatus.PENDING, 1, false),
+                event(1L, "TRK00001", ShipmentStatus.IN_TRANSIT, 2, false)));
+
+        // nothing goes out on the caller's thread
+        verifyNoInteractions(messagingTemplate);
+        assertEquals(1, broadcaster.getPendingCount());
+
+        broadcaster.flush();
+
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/shipments"), sent.capture());
+        ShipmentUpdateMessage message = (ShipmentUpdateMessage) sent.getValue();
+        assertEquals(ShipmentStatus.IN_TRANSIT, message.getStatus());
+        assertEquals("TRK00001", message.getTrackingNumber());
+        assertEquals(2L, message.getSequence());
+
+        verify(messagingTemplate).convertAndSend(eq("/topic/shipments/tracking/TRK00001"), any(Object.class));
+        verify(messagingTemplate).convertAndSend(eq("/topic/shipments/status/IN_TRANSIT"), any(Object.class));
+        assertEquals(0, broadcaster.getPendingCount());
+    }
+
+    @Test
+    void publish_RejectsTheBatchWhenQueueIsFull() {
+        broadcaster.publish(List.of(
+                event(1L, "TRK00001", ShipmentStatus.PENDING, 1, false),
+                event(2L, "TRK00002", ShipmentStatus.PENDING, 1, false)));
+        assertEquals(0, broadcaster.remainingCapacity());
+
+        // an already-queued shipment can still be replaced
+        broadcaster.publish(List.of(event(2L, "TRK00002", ShipmentStatus.CANCELLED, 2, false)));
+        // a new one fails the batch, so the relay keeps it in the outbox
+        assertThrows(IllegalStateException.class, () ->
+                broadcaster.publish(List.of(event(3L, "TRK00003", ShipmentStatus.PENDING, 1, false))));
+
+        assertEquals(2, broadcaster.getPendingCount());
+        assertEquals(1, broadcaster.getRejectedCount());
+
+        broadcaster.flush();
+
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/shipments"), any(Object.class));
+        verify(messagingTemplate).convertAndSend(eq("/topic/shipments/status/CANCELLED"), any(Object.class));
+        verify(messagingTemplate, never()).convertAndSend(eq("/topic/shipments/tracking/TRK00003"), any(Object.class));
+        assertEquals(2, broadcaster.getSentCount());
+        assertEquals(2, broadcaster.remainingCapacity());
+    }
+
+    @Test
+    void broadcastUpdate_KeepsNewerSequenceWhenOlderEventIsRedelivered() {
+        broadcaster.broadcastUpdate(ShipmentUpdateMessage.from(event(1L, "TRK00001", ShipmentStatus.DELIVERED, 3, false)));
+        broadcaster.broadcastUpdate(ShipmentUpdateMessage.from(event(1L, "TRK00001", ShipmentStatus.IN_TRANSIT, 2, false)));
+
+        broadcaster.flush();
+
+        verify(messagingTemplate).convertAndSend(eq("/topic/shipments/status/DELIVERED"), any(Object.class));
+        verify(messagingTemplate, never()).convertAndSend(eq("/topic/shipments/status/IN_TRANSIT"), any(Object.class));
+    }
+
+    @Test
+    void publish_SendsBulkEventsAsOneBatchMessage() {
+        broadcaster.publish(List.of(
+                event(1L, "TRK00001", ShipmentStatus.PENDING, 1, true),
+                event(2L, "TRK00002", ShipmentStatus.PENDING, 1, true)));
+
+        ArgumentCaptor<Object> sent = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate).convertAndSend(eq("/topic/shipments/batch"), sent.capture());
+        assertEquals(2, ((List<?>) sent.getValue()).size());
+        // subscribers to one shipment or one status still see bulk updates, one message each
+        verify(messagingTemplate).convertAndSend(eq("/topic/shipments/tracking/TRK00001"), any(Object.class));
+        verify(messagingTemplate).convertAndSend(eq("/topic/shipments/tracking/TRK00002"), any(Object.class));
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/shipments/status/PENDING"), any(Object.class));
+        verify(messagingTemplate, never()).convertAndSend(eq("/topic/shipments"), any(Object.class));
+        assertEquals(0, broadcaster.getPendingCount());
+        assertEquals(2, broadcaster.getSentCount());
+    }
+
+    private ShipmentOutboxEvent event(Long id, String trackingNumber, ShipmentStatus status, long sequence, boolean bulk) {
+        Shipment shipment = new Shipment();
+        shipment.setId(id);
+        shipment.setTrackingNumber(trackingNumber);
+        shipment.setStatus(status);
+        shipment.setLastUpdatedTime(LocalDateTime.now());
+        shipment.setVersion(sequence - 1);
+        return ShipmentOutboxEvent.of(shipment, ShipmentEventType.UPDATED, null, bulk);
+    }
+}